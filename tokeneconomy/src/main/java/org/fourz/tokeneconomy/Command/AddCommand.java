@@ -30,10 +30,16 @@ public class AddCommand extends BaseCommand {
         if (amount == null) return true;
 
         String formattedAmount = CurrencyFormatter.format(amount, plugin.currencyNameSingular(), plugin.currencyNamePlural());
-        plugin.getDataConnector().changePlayerBalance(targetUUID, amount);
-        sendSuccess(sender, "You added " + formattedAmount + " to " + args[0] + ".");
-        Player online = plugin.getServer().getPlayer(targetUUID);
-        if (online != null) sendSuccess(online, "You received " + formattedAmount + ".");
+        String targetName = args[0];
+        runAsync(sender, () -> plugin.getDataConnector().changePlayerBalance(targetUUID, amount, "command.add"), success -> {
+            if (!success) {
+                sendError(sender, "Failed to add " + formattedAmount + " to " + targetName + ".");
+                return;
+            }
+            sendSuccess(sender, "You added " + formattedAmount + " to " + targetName + ".");
+            Player online = plugin.getServer().getPlayer(targetUUID);
+            if (online != null) sendSuccess(online, "You received " + formattedAmount + ".");
+        });
 
         return true;
     }
@@ -25,9 +25,11 @@ public class BalanceCommand extends BaseCommand {
         if (args.length == 0) {
             Player player = (Player) sender;
             if (!checkAnyPermission(player, "balance", "balance.*")) return true;
-            double balance = plugin.getPlayerBalance(player);
-            String formattedBalance = CurrencyFormatter.format(balance, plugin.currencyNameSingular(), plugin.currencyNamePlural());
-            player.sendMessage(ChatColor.GREEN + "Your balance: " + formattedBalance);
+            UUID uuid = player.getUniqueId();
+            runAsync(player, () -> plugin.getDataConnector().getPlayerBalanceByUUID(uuid), balance -> {
+                String formattedBalance = CurrencyFormatter.format(balance, plugin.currencyNameSingular(), plugin.currencyNamePlural());
+                player.sendMessage(ChatColor.GREEN + "Your balance: " + formattedBalance);
+            });
             return true;
         }
 
@@ -36,9 +38,11 @@ public class BalanceCommand extends BaseCommand {
         UUID targetUUID = resolvePlayerUUID(sender, args[0]);
         if (targetUUID == null) return true;
 
-        double balance = plugin.getDataConnector().getPlayerBalanceByUUID(targetUUID);
-        String formattedBalance = CurrencyFormatter.format(balance, plugin.currencySymbol());
-        sender.sendMessage(ChatColor.GREEN + args[0] + "'s balance: " + formattedBalance);
+        String targetName = args[0];
+        runAsync(sender, () -> plugin.getDataConnector().getPlayerBalanceByUUID(targetUUID), balance -> {
+            String formattedBalance = CurrencyFormatter.format(balance, plugin.currencySymbol());
+            sender.sendMessage(ChatColor.GREEN + targetName + "'s balance: " + formattedBalance);
+        });
         return true;
     }
 }
\ No newline at end of file
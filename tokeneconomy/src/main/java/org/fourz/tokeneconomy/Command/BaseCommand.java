@@ -9,11 +9,14 @@ import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.util.StringUtil;
 import org.fourz.tokeneconomy.TokenEconomy;
+import org.fourz.tokeneconomy.Data.DataConnector;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 public abstract class BaseCommand implements CommandExecutor, TabCompleter {
@@ -70,6 +73,20 @@ public abstract class BaseCommand implements CommandExecutor, TabCompleter {
         return result.get();
     }
 
+    // Run storage work off the server thread and reply on it; a slow database never stalls a tick
+    protected <T> void runAsync(CommandSender sender, Supplier<T> storageWork, Consumer<T> onMainThread) {
+        DataConnector connector = plugin.getDataConnector();
+        connector.supplyAsync(storageWork)
+            .thenAcceptAsync(onMainThread, connector.getMainThreadExecutor())
+            .exceptionally(ex -> {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                plugin.getLogger().severe("Command storage call failed: " + cause.getMessage());
+                connector.getMainThreadExecutor().execute(() ->
+                    sendError(sender, "A database error occurred. Check console for details."));
+                return null;
+            });
+    }
+
     // Common amount parsing
     protected Double parseAmount(CommandSender sender, String amountStr) {
         try {
@@ -3,12 +3,24 @@ package org.fourz.tokeneconomy.Command;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.fourz.tokeneconomy.TokenEconomy;
+import org.fourz.tokeneconomy.Data.AbstractDataStore;
+import org.fourz.tokeneconomy.Data.AccountLocks;
+import org.fourz.tokeneconomy.Data.CachingDataStore;
+import org.fourz.tokeneconomy.Data.CoalescingDataStore;
+import org.fourz.tokeneconomy.Data.DataStore;
+import org.fourz.tokeneconomy.Data.DualWriteDataStore;
+import org.fourz.tokeneconomy.Data.JournalDataStore;
+import org.fourz.tokeneconomy.Data.LedgerCompactor;
+import org.fourz.tokeneconomy.Data.TransactionLedger;
+import org.fourz.tokeneconomy.Data.connection.PoolStats;
+import org.fourz.tokeneconomy.Data.connection.StandalonePoolDelegate;
 import org.fourz.tokeneconomy.Utility.CurrencyFormatter;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Level;
 
 /**
@@ -54,24 +66,138 @@ public class DebugCommand extends BaseCommand {
             ChatColor.WHITE + plugin.getConfigLoader().getStorageType());
         sender.sendMessage(ChatColor.GOLD + "Migration Status: " +
             ChatColor.WHITE + plugin.getConfigLoader().getMigrationStatus());
+        DualWriteDataStore dualWrite = plugin.getDataConnector().findStoreLayer(DualWriteDataStore.class);
+        if (dualWrite != null) {
+            sender.sendMessage(ChatColor.GOLD + "Live Migration: " + ChatColor.WHITE + MigrateCommand.describe(dualWrite));
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "Balance Format: " +
+            ChatColor.WHITE + plugin.getDataConnector().getDataStore().getBalanceFormat() + ", keys " +
+            plugin.getDataConnector().getDataStore().getUuidFormat());
+        sender.sendMessage(ChatColor.GOLD + "Balance Operations: " +
+            ChatColor.WHITE + plugin.getDataConnector().getBalanceWriteCount() + " writes, " +
+            plugin.getDataConnector().getBalanceReadCount() + " reads");
+
+        DataStore store = plugin.getDataConnector().getDataStore();
+        if (store instanceof CachingDataStore) {
+            CachingDataStore cache = (CachingDataStore) store;
+            double hitRatio = cache.getOnlineHitRatio();
+            sender.sendMessage(ChatColor.GOLD + "Online Working Set: " +
+                ChatColor.WHITE + cache.getResidentCount() + " resident, hit ratio " +
+                (hitRatio < 0 ? "n/a" : String.format("%.1f%%", hitRatio * 100)) +
+                " (" + cache.getOnlineLookups() + " lookups)");
+        }
+        if (store instanceof CachingDataStore && ((CachingDataStore) store).isWriteBehind()) {
+            CachingDataStore cache = (CachingDataStore) store;
+            sender.sendMessage(ChatColor.GOLD + "Write-behind Cache: " +
+                ChatColor.WHITE + cache.getCachedAccountCount() + " accounts, " +
+                cache.getQueueDepth() + " dirty, lag " + cache.getFlushLagMillis() + "ms");
+            sender.sendMessage(ChatColor.GOLD + "Last Flush: " +
+                ChatColor.WHITE + cache.getLastFlushCount() + " accounts in " +
+                cache.getLastFlushDurationMillis() + "ms" +
+                (cache.getFailedFlushes() > 0 ? ChatColor.RED + " (" + cache.getFailedFlushes() + " failed)" : ""));
+        }
+
+        CoalescingDataStore coalescer = plugin.getDataConnector().findStoreLayer(CoalescingDataStore.class);
+        if (coalescer != null) {
+            double ratio = coalescer.getCoalescingRatio();
+            sender.sendMessage(ChatColor.GOLD + "Credit Coalescing: " +
+                ChatColor.WHITE + coalescer.getCreditsAccepted() + " credits in " +
+                coalescer.getCreditStatements() + " statements (ratio " +
+                (ratio < 0 ? "n/a" : String.format("%.1f", ratio)) + ", " +
+                String.format("%.1f", coalescer.getCreditsPerSecond()) + "/s)");
+            sender.sendMessage(ChatColor.GOLD + "Last Window: " +
+                ChatColor.WHITE + coalescer.getLastWindowCredits() + " credits in " +
+                coalescer.getLastWindowStatements() + " statements, " +
+                coalescer.getPendingAccountCount() + " accounts pending" +
+                (coalescer.getFailedWrites() > 0 ? ChatColor.RED + " (" + coalescer.getFailedWrites() + " failed)" : ""));
+        }
+
+        JournalDataStore journal = plugin.getDataConnector().findStoreLayer(JournalDataStore.class);
+        if (journal != null) {
+            sender.sendMessage(ChatColor.GOLD + "Journal: " +
+                ChatColor.WHITE + journal.getAccountCount() + " accounts, segment " + journal.getGeneration() + " at " +
+                journal.getSegmentUsedBytes() / 1024 + "/" + journal.getSegmentBytes() / 1024 + " KiB, " +
+                journal.getAppendedRecords() + " records, " + journal.getFsyncCount() + " syncs (" +
+                journal.getFsyncPolicy() + ")");
+            sender.sendMessage(ChatColor.GOLD + "Last Checkpoint: " +
+                ChatColor.WHITE + (journal.getLastCheckpointAt() == 0 ? "never" :
+                    journal.getLastCheckpointAccounts() + " accounts in " + journal.getLastCheckpointDurationMillis() + "ms") +
+                ", " + journal.getRecordsSinceCheckpoint() + " records since" +
+                (journal.getFailedCheckpoints() > 0 ? ChatColor.RED + " (" + journal.getFailedCheckpoints() + " failed)" : ""));
+        }
+
+        TransactionLedger ledger = plugin.getDataConnector().getLedger();
+        if (ledger != null) {
+            sender.sendMessage(ChatColor.GOLD + "Ledger: " +
+                ChatColor.WHITE + ledger.getQueueDepth() + "/" + ledger.getQueueCapacity() + " queued, " +
+                ledger.getWritten() + " written, last batch " + ledger.getLastFlushCount() + " in " +
+                ledger.getLastFlushMillis() + "ms (max " + ledger.getMaxFlushMillis() + "ms, lag " +
+                ledger.getLastFlushLagMillis() + "ms)" +
+                (ledger.getDropped() > 0 ? ChatColor.RED + " " + ledger.getDropped() + " dropped" : "") +
+                (ledger.getFailedFlushes() > 0 ? ChatColor.RED + " (" + ledger.getFailedFlushes() + " failed)" : ""));
+        }
+        LedgerCompactor compactor = plugin.getDataConnector().getLedgerCompactor();
+        if (compactor != null) {
+            sender.sendMessage(ChatColor.GOLD + "Ledger Compaction: " +
+                ChatColor.WHITE + (compactor.isRunning() ? "running, " : "") +
+                (compactor.getLastRunAt() == 0 ? "not run yet" :
+                    "last run folded " + compactor.getLastRunRows() + " rows in " + compactor.getLastRunChunks() +
+                    " chunks (" + compactor.getLastRunMillis() + "ms)") +
+                ", " + compactor.getTotalRows() + " total, keeps " + compactor.getRetentionDays() + " days" +
+                (compactor.getFailedRuns() > 0 ? ChatColor.RED + " (" + compactor.getFailedRuns() + " failed)" : ""));
+        }
 
-        // Get top 3 balances
-        Map<String, Double> topBalances = plugin.getDataConnector().getTopBalances(3);
-        sender.sendMessage(ChatColor.GOLD + "Top 3 Balances:");
-        int rank = 1;
-        for (Map.Entry<String, Double> entry : topBalances.entrySet()) {
-            sender.sendMessage(ChatColor.GOLD + String.valueOf(rank++) + ". " +
-                ChatColor.WHITE + entry.getKey() + ": " +
-                CurrencyFormatter.format(entry.getValue(), plugin.currencyNameSingular(), plugin.currencyNamePlural()));
+        AbstractDataStore sqlStore = plugin.getDataConnector().findStoreLayer(AbstractDataStore.class);
+        if (sqlStore != null) {
+            sendPoolStats(sender, "Pool: ", sqlStore.getPool().getPoolStats());
+            sendPoolStats(sender, "Reader Pool: ", sqlStore.getPool().getReadPoolStats());
+            if (sqlStore.getPool().isReadReplica() && sqlStore.getPool() instanceof StandalonePoolDelegate) {
+                sender.sendMessage(ChatColor.GOLD + "Replica Reads: " + ChatColor.WHITE +
+                    ((StandalonePoolDelegate) sqlStore.getPool()).getReplicaBypasses() + " sent to the primary within the read-your-writes window");
+            }
         }
 
-        // Total number of records
-        Map<String, Double> allBalances = plugin.getDataConnector().getAllPlayerBalances();
-        sender.sendMessage(ChatColor.GOLD + "Total Records: " +
-            ChatColor.WHITE + allBalances.size());
+        AccountLocks locks = plugin.getDataConnector().getAccountLocks();
+        StringBuilder waits = new StringBuilder();
+        for (Map.Entry<String, Long> bucket : locks.getWaitHistogram().entrySet()) {
+            waits.append(' ').append(bucket.getKey()).append('=').append(bucket.getValue());
+        }
+        sender.sendMessage(ChatColor.GOLD + "Account Locks: " +
+            ChatColor.WHITE + locks.getAcquisitions() + " acquired, " + locks.getContended() +
+            " contended over " + locks.getStripeCount() + " stripes;" + waits);
+        if (locks.getContended() > 0) {
+            List<Map.Entry<UUID, Long>> hottest = locks.getHottestAccounts(5);
+            List<UUID> hotUUIDs = new ArrayList<>();
+            hottest.forEach(entry -> hotUUIDs.add(entry.getKey()));
+            runAsync(sender, () -> plugin.getDataConnector().getPlayerNames(hotUUIDs), names -> {
+                StringBuilder hot = new StringBuilder();
+                for (Map.Entry<UUID, Long> entry : hottest) {
+                    if (hot.length() > 0) hot.append(", ");
+                    hot.append(names.get(entry.getKey())).append(" (").append(entry.getValue()).append(')');
+                }
+                sender.sendMessage(ChatColor.GOLD + "Hot Accounts: " + ChatColor.WHITE + hot);
+            });
+        }
 
-        // Show available subcommands
-        sender.sendMessage(ChatColor.GRAY + "Subcommands: /eco debug seed|loglevel <action>");
+        // Top 3 balances and total number of records, fetched off the server thread
+        int[] totalRecords = new int[1];
+        runAsync(sender, () -> {
+            totalRecords[0] = plugin.getDataConnector().getAccountCount();
+            return plugin.getDataConnector().getTopBalances(3);
+        }, topBalances -> {
+            sender.sendMessage(ChatColor.GOLD + "Top 3 Balances:");
+            int rank = 1;
+            for (Map.Entry<String, Double> entry : topBalances.entrySet()) {
+                sender.sendMessage(ChatColor.GOLD + String.valueOf(rank++) + ". " +
+                    ChatColor.WHITE + entry.getKey() + ": " +
+                    CurrencyFormatter.format(entry.getValue(), plugin.currencyNameSingular(), plugin.currencyNamePlural()));
+            }
+            sender.sendMessage(ChatColor.GOLD + "Total Records: " + ChatColor.WHITE + totalRecords[0]);
+
+            // Show available subcommands
+            sender.sendMessage(ChatColor.GRAY + "Subcommands: /eco debug seed|loglevel <action>");
+        });
 
         return true;
     }
@@ -80,6 +206,21 @@ public class DebugCommand extends BaseCommand {
      * Handle the loglevel subcommand.
      * Usage: /eco debug loglevel [DEBUG|INFO|WARN|OFF]
      */
+    private static void sendPoolStats(CommandSender sender, String label, PoolStats stats) {
+        if (stats == null) return;
+        String counts = stats.getTotal() < 0 ? "counts owned by " + stats.getName() :
+            stats.getActive() + " active, " + stats.getIdle() + " idle, " + stats.getTotal() + "/" +
+                stats.getMaximumSize() + " open, " + stats.getPending() + " waiting";
+        sender.sendMessage(ChatColor.GOLD + label + ChatColor.WHITE + counts + "; acquire p50 " +
+            formatMillis(stats.getP50AcquireMillis()) + " p95 " + formatMillis(stats.getP95AcquireMillis()) +
+            " p99 " + formatMillis(stats.getP99AcquireMillis()) + " max " + formatMillis(stats.getMaxAcquireMillis()) +
+            " over " + stats.getAcquisitions() + (stats.getResizes() > 0 ? ", resized " + stats.getResizes() + "x" : ""));
+    }
+
+    private static String formatMillis(double millis) {
+        return millis < 1 ? String.format("%.2fms", millis) : String.format("%.0fms", millis);
+    }
+
     private boolean handleLogLevel(CommandSender sender, String[] args) {
         if (args.length == 0) {
             // Show current log level from config
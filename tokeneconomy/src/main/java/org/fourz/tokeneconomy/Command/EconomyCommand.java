@@ -38,6 +38,11 @@ public class EconomyCommand implements CommandExecutor, TabCompleter {
         commands.put("add", new AddCommand(plugin, resolver));
         commands.put("top", new TopCommand(plugin, resolver));
         commands.put("debug", new DebugCommand(plugin, resolver));
+        commands.put("migrate", new MigrateCommand(plugin, resolver));
+        commands.put("verify", new VerifyCommand(plugin, resolver));
+        SnapshotCommand[] snapshot = SnapshotCommand.create(plugin, resolver);
+        commands.put("export", snapshot[0]);
+        commands.put("import", snapshot[1]);
         commands.put("help", new HelpCommand(plugin, resolver));
     }
 
@@ -83,6 +88,10 @@ public class EconomyCommand implements CommandExecutor, TabCompleter {
                 playerNames.add(player.getName());
             }
             StringUtil.copyPartialMatches(args[1], playerNames, completions);
+        } else if (args.length == 2 && (args[0].equalsIgnoreCase("import") || args[0].equalsIgnoreCase("migrate")
+                || args[0].equalsIgnoreCase("verify"))) {
+            completions.addAll(commands.get(args[0].toLowerCase())
+                .onTabComplete(sender, command, alias, Arrays.copyOfRange(args, 1, args.length)));
         }
         return completions;
     }
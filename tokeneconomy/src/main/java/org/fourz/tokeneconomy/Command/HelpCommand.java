@@ -17,6 +17,11 @@ public class HelpCommand extends BaseCommand {
         sender.sendMessage(ChatColor.YELLOW + "/economy set <player> <amount>" + ChatColor.WHITE + " - Set player's balance (admin)");
         sender.sendMessage(ChatColor.YELLOW + "/economy add <player> <amount>" + ChatColor.WHITE + " - Add tokens to player's balance (admin)");
         sender.sendMessage(ChatColor.YELLOW + "/economy top [page]" + ChatColor.WHITE + " - View top token holders");
+        sender.sendMessage(ChatColor.YELLOW + "/economy top me" + ChatColor.WHITE + " - Show your leaderboard rank");
+        sender.sendMessage(ChatColor.YELLOW + "/economy export [name]" + ChatColor.WHITE + " - Snapshot all balances to a file (admin)");
+        sender.sendMessage(ChatColor.YELLOW + "/economy import <name>" + ChatColor.WHITE + " - Load balances from a snapshot (admin)");
+        sender.sendMessage(ChatColor.YELLOW + "/economy verify [type]" + ChatColor.WHITE + " - Compare balances between two stores (admin)");
+        sender.sendMessage(ChatColor.YELLOW + "/economy migrate status|cutover" + ChatColor.WHITE + " - Control a live storage migration (admin)");
         sender.sendMessage(ChatColor.YELLOW + "/economy debug" + ChatColor.WHITE + " - Show debug information (admin)");
         sender.sendMessage(ChatColor.YELLOW + "/economy help" + ChatColor.WHITE + " - Show this help message");
         sender.sendMessage(ChatColor.GOLD + "================================");
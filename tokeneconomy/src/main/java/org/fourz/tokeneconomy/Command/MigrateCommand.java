@@ -0,0 +1,94 @@
+package org.fourz.tokeneconomy.Command;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.fourz.tokeneconomy.TokenEconomy;
+import org.fourz.tokeneconomy.Data.DualWriteDataStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Controls a live storage migration (storage.migration.live).
+ *
+ * Usage:
+ *   /eco migrate status  - Show backfill and mirroring progress
+ *   /eco migrate cutover - Switch reads to the target once the backfill is done
+ */
+public class MigrateCommand extends BaseCommand {
+
+    private static final List<String> ACTIONS = Arrays.asList("status", "cutover");
+
+    public MigrateCommand(TokenEconomy plugin, PlayerResolver playerResolver) {
+        super(plugin, playerResolver);
+    }
+
+    @Override
+    protected boolean execute(CommandSender sender, String[] args) {
+        if (!checkAnyPermission(sender, "admin.migrate", "admin")) return true;
+
+        DualWriteDataStore dualWrite = plugin.getDataConnector().findStoreLayer(DualWriteDataStore.class);
+        if (dualWrite == null) {
+            sendError(sender, "No live migration is running. Set storage.migration.live and a migrate_from flag, then restart.");
+            return true;
+        }
+
+        String action = args.length > 0 ? args[0].toLowerCase() : "status";
+        switch (action) {
+            case "status":
+                sender.sendMessage(ChatColor.GOLD + "Live Migration: " + ChatColor.WHITE + describe(dualWrite));
+                return true;
+            case "cutover":
+                // Null on success, otherwise why the target is not ready yet
+                runAsync(sender, () -> {
+                    try {
+                        plugin.getDataConnector().cutoverLiveMigration();
+                        return null;
+                    } catch (IllegalStateException e) {
+                        return e.getMessage();
+                    }
+                }, refusal -> {
+                    String target = dualWrite.getTargetType();
+                    if (refusal != null) {
+                        sendError(sender, "Cannot cut over: " + refusal);
+                    } else {
+                        sendSuccess(sender, "Reads now go to " + target + ". The next restart runs on " + target + " alone.");
+                    }
+                });
+                return true;
+            default:
+                sendError(sender, "Usage: /eco migrate status|cutover");
+                return true;
+        }
+    }
+
+    /** One-line progress summary, shared with /eco debug. */
+    static String describe(DualWriteDataStore dualWrite) {
+        String phase;
+        if (dualWrite.isCutOver()) {
+            phase = "cut over to " + dualWrite.getTargetType();
+        } else if (dualWrite.getBackfillError() != null) {
+            phase = ChatColor.RED + "backfill failed: " + dualWrite.getBackfillError() + ChatColor.WHITE;
+        } else if (dualWrite.isBackfillDone()) {
+            phase = "caught up, ready for cutover";
+        } else {
+            phase = "backfilling " + dualWrite.getBackfilled() + "/" + dualWrite.getBackfillTotal();
+        }
+        return dualWrite.getSourceType() + " -> " + dualWrite.getTargetType() + ", " + phase + ", " +
+            dualWrite.getMirrorWrites() + " mirrored writes, " + dualWrite.getBackfillSkipped() + " skipped by backfill" +
+            (dualWrite.getUnsyncedCount() > 0 ? ChatColor.RED + " (" + dualWrite.getUnsyncedCount() + " unsynced, " +
+                dualWrite.getMirrorFailures() + " failed mirrors)" : "");
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            StringUtil.copyPartialMatches(args[0], ACTIONS, completions);
+        }
+        return completions;
+    }
+}
@@ -38,17 +38,19 @@ public class PayCommand extends BaseCommand {
         Double amount = parseAmount(sender, args[1]);
         if (amount == null) return true;
 
-        if (plugin.getPlayerBalance(player) < amount) {
-            sendError(sender, "Insufficient funds.");
-            return true;
-        }
-
-        plugin.getEconomy().withdrawPlayer(player, amount);
-        plugin.getEconomy().depositPlayer(target, amount);
-
-        String formattedAmount = CurrencyFormatter.format(amount, plugin.currencyNameSingular(), plugin.currencyNamePlural());
-        sendSuccess(sender, "You sent " + formattedAmount + " to " + target.getName() + ".");
-        sendSuccess(target, "You received " + formattedAmount + " from " + sender.getName() + ".");
+        runAsync(sender, () -> plugin.getDataConnector().transferAndGet(player.getUniqueId(), target.getUniqueId(), amount, "command.pay"), result -> {
+            if (result.isError()) {
+                sendError(sender, "A database error occurred. Check console for details.");
+                return;
+            }
+            if (!result.isSuccess()) {
+                sendError(sender, "Insufficient funds.");
+                return;
+            }
+            String formattedAmount = CurrencyFormatter.format(amount, plugin.currencyNameSingular(), plugin.currencyNamePlural());
+            sendSuccess(sender, "You sent " + formattedAmount + " to " + target.getName() + ".");
+            sendSuccess(target, "You received " + formattedAmount + " from " + sender.getName() + ".");
+        });
 
         return true;
     }
@@ -110,6 +110,8 @@ public class SeedCommand extends BaseCommand {
 
         generator.seed(category).thenAccept(count -> {
             seeding = false;
+            // Seeded rows are written over raw JDBC, bypassing the leaderboard
+            plugin.getDataConnector().rebuildLeaderboard();
             if (count > 0) {
                 sender.sendMessage(ChatColor.GREEN + "Seed complete: " + count + " total records created");
             } else {
@@ -135,6 +137,7 @@ public class SeedCommand extends BaseCommand {
 
         generator.cleanup().thenAccept(success -> {
             seeding = false;
+            plugin.getDataConnector().rebuildLeaderboard();
             if (success) {
                 sender.sendMessage(ChatColor.GREEN + "Cleanup complete");
             } else {
@@ -165,6 +168,7 @@ public class SeedCommand extends BaseCommand {
 
         generator.cleanupByPlayer(playerUuid).thenAccept(count -> {
             seeding = false;
+            plugin.getDataConnector().rebuildLeaderboard();
             sender.sendMessage(ChatColor.GREEN + "Cleaned up " + count + " records for player");
         }).exceptionally(ex -> {
             seeding = false;
@@ -184,7 +188,7 @@ public class SeedCommand extends BaseCommand {
 
         // Get record count from data store
         try {
-            int recordCount = plugin.getDataConnector().getAllPlayerBalances().size();
+            int recordCount = plugin.getDataConnector().getAccountCount();
             sender.sendMessage(ChatColor.GRAY + "Total Records: " + ChatColor.WHITE + recordCount);
         } catch (Exception e) {
             sender.sendMessage(ChatColor.GRAY + "Total Records: " + ChatColor.RED + "Error reading");
@@ -29,12 +29,16 @@ public class SetCommand extends BaseCommand {
         Double amount = parseAmount(sender, args[1]);
         if (amount == null) return true;
 
-        plugin.getDataConnector().setPlayerBalance(targetUUID, amount);
-
         String formattedAmount = CurrencyFormatter.format(amount, plugin.currencyNameSingular(), plugin.currencyNamePlural());
-        sendSuccess(sender, "Set " + args[0] + "'s balance to " + formattedAmount);
-        Player online = plugin.getServer().getPlayer(targetUUID);
-        if (online != null) sendSuccess(online, "Your balance has been set to " + formattedAmount);
+        String targetName = args[0];
+        runAsync(sender, () -> {
+            plugin.getDataConnector().setPlayerBalance(targetUUID, amount, "command.set");
+            return null;
+        }, ignored -> {
+            sendSuccess(sender, "Set " + targetName + "'s balance to " + formattedAmount);
+            Player online = plugin.getServer().getPlayer(targetUUID);
+            if (online != null) sendSuccess(online, "Your balance has been set to " + formattedAmount);
+        });
 
         return true;
     }
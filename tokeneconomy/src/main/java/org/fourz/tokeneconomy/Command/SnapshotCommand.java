@@ -0,0 +1,118 @@
+package org.fourz.tokeneconomy.Command;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.fourz.tokeneconomy.TokenEconomy;
+import org.fourz.tokeneconomy.Data.DataConnector;
+import org.fourz.tokeneconomy.Data.EconomySnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Export and import of balance snapshots in plugins/TokenEconomy/exports.
+ * One instance serves both subcommands so an import never runs beside an export.
+ *
+ * Usage:
+ *   /eco export [name] - Write every balance to exports/[name].tesnap
+ *   /eco import <name> - Load a snapshot, overwriting the balances it contains
+ */
+public class SnapshotCommand extends BaseCommand {
+
+    private static final String EXTENSION = ".tesnap";
+    // Plain file names only, so a snapshot can never be read or written outside exports/
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final boolean importing;
+    private final AtomicBoolean busy;
+
+    private SnapshotCommand(TokenEconomy plugin, PlayerResolver playerResolver, boolean importing, AtomicBoolean busy) {
+        super(plugin, playerResolver);
+        this.importing = importing;
+        this.busy = busy;
+    }
+
+    /** The export and import subcommands, sharing one in-progress guard. */
+    public static SnapshotCommand[] create(TokenEconomy plugin, PlayerResolver playerResolver) {
+        AtomicBoolean busy = new AtomicBoolean();
+        return new SnapshotCommand[] {
+            new SnapshotCommand(plugin, playerResolver, false, busy),
+            new SnapshotCommand(plugin, playerResolver, true, busy)
+        };
+    }
+
+    @Override
+    protected boolean execute(CommandSender sender, String[] args) {
+        if (!checkAnyPermission(sender, "admin.snapshot", "admin")) return true;
+
+        String name;
+        if (args.length > 0) {
+            name = args[0].endsWith(EXTENSION) ? args[0].substring(0, args[0].length() - EXTENSION.length()) : args[0];
+        } else if (importing) {
+            sendError(sender, "Usage: /eco import <name>");
+            return true;
+        } else {
+            name = "economy-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        }
+        if (!NAME.matcher(name).matches()) {
+            sendError(sender, "Snapshot names may only contain letters, digits, '.', '_' and '-'.");
+            return true;
+        }
+        File dir = new File(plugin.getDataFolder(), "exports");
+        File file = new File(dir, name + EXTENSION);
+        if (importing && !file.isFile()) {
+            sendError(sender, "No snapshot named " + file.getName() + " in " + dir.getName() + "/.");
+            return true;
+        }
+        if (!busy.compareAndSet(false, true)) {
+            sendError(sender, "A snapshot export or import is already running.");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + (importing ? "Importing " : "Exporting to ") + file.getName() + "...");
+        EconomySnapshot snapshot = new EconomySnapshot(plugin.getDataConnector().getDataStore(), plugin.getLogger());
+        runAsync(sender, () -> {
+            try {
+                if (importing) {
+                    DataConnector connector = plugin.getDataConnector();
+                    return snapshot.importFrom(file, Math.max(1, plugin.getConfigLoader().getMigrationBatchSize()),
+                        batch -> connector.setPlayerBalances(batch, "command.import"));
+                }
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Could not create " + dir);
+                }
+                return snapshot.export(file, Math.max(1, plugin.getConfigLoader().getMigrationFetchSize()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                busy.set(false);
+            }
+        }, result -> {
+            sendSuccess(sender, (importing ? "Imported " : "Exported ") + result.getAccounts() + " accounts (" +
+                result.getBytes() / 1024 + " KiB) in " + result.getMillis() + "ms.");
+        });
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (importing && args.length == 1) {
+            String[] files = new File(plugin.getDataFolder(), "exports").list((d, n) -> n.endsWith(EXTENSION));
+            if (files != null) {
+                StringUtil.copyPartialMatches(args[0], Arrays.asList(files), completions);
+            }
+        }
+        return completions;
+    }
+}
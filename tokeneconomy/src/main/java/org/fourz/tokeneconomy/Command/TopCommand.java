@@ -5,14 +5,28 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.bukkit.util.StringUtil;
 import org.fourz.tokeneconomy.TokenEconomy;
 import org.fourz.tokeneconomy.Utility.CurrencyFormatter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public class TopCommand extends BaseCommand implements CommandExecutor, TabCompleter {
+    // One leaderboard page plus the total needed for the "page x/y" header
+    private static final class Page {
+        final int totalPages;
+        final Map<String, Double> rows;
+
+        Page(int totalPages, Map<String, Double> rows) {
+            this.totalPages = totalPages;
+            this.rows = rows;
+        }
+    }
+
     public TopCommand(TokenEconomy plugin, PlayerResolver playerResolver) {
         super(plugin, playerResolver);
     }
@@ -21,20 +35,78 @@ public class TopCommand extends BaseCommand implements CommandExecutor, TabCompl
     protected boolean execute(CommandSender sender, String[] args) {
         if (!checkPermission(sender, "top")) return true;
 
-        // Retrieve and display top balances in formatted currency
-        Map<String, Double> topBalances = plugin.getTopBalances();
-        sender.sendMessage(ChatColor.GREEN + "Top Balances:");
-        topBalances.forEach((playerName, balance) -> {
-            String formattedBalance = CurrencyFormatter.format(balance, plugin.currencyNameSingular(), plugin.currencyNamePlural());
-            sender.sendMessage(ChatColor.GREEN + playerName + ": " + formattedBalance);
+        if (args.length > 0 && args[0].equalsIgnoreCase("me")) {
+            return showOwnRank(sender);
+        }
+
+        int page = 1;
+        if (args.length > 0) {
+            try {
+                page = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                sendError(sender, "Usage: /top [page|me]");
+                return true;
+            }
+            if (page < 1) {
+                sendError(sender, "Page must be 1 or higher.");
+                return true;
+            }
+        }
+
+        int pageSize = plugin.getConfigLoader().getTopPageSize();
+        final int requested = page;
+        runAsync(sender, () -> {
+            int totalPages = Math.max(1, (plugin.getDataConnector().getAccountCount() + pageSize - 1) / pageSize);
+            return new Page(totalPages, requested > totalPages ? null : plugin.getTopBalances(requested));
+        }, result -> {
+            if (result.rows == null) {
+                sendError(sender, "There are only " + result.totalPages + " pages.");
+                return;
+            }
+            // Display the requested page in formatted currency
+            sender.sendMessage(ChatColor.GREEN + "Top Balances (page " + requested + "/" + result.totalPages + "):");
+            int rank = (requested - 1) * pageSize + 1;
+            for (Map.Entry<String, Double> entry : result.rows.entrySet()) {
+                String formattedBalance = CurrencyFormatter.format(entry.getValue(), plugin.currencyNameSingular(), plugin.currencyNamePlural());
+                sender.sendMessage(ChatColor.GREEN + "#" + rank++ + " " + entry.getKey() + ": " + formattedBalance);
+            }
+            if (requested < result.totalPages) {
+                sender.sendMessage(ChatColor.GRAY + "Use /top " + (requested + 1) + " for the next page.");
+            }
         });
 
         return true;
     }
 
-    // Provide empty tab completion as no arguments are needed
+    private boolean showOwnRank(CommandSender sender) {
+        if (!(sender instanceof Player)) {
+            sendError(sender, "Only players have a leaderboard rank.");
+            return true;
+        }
+        Player player = (Player) sender;
+        int rank = plugin.getDataConnector().getRank(player.getUniqueId());
+        if (rank < 0) {
+            sendError(sender, "Leaderboard ranks are not available right now.");
+            return true;
+        }
+        if (rank == 0) {
+            sendError(sender, "You don't have an account on the leaderboard yet.");
+            return true;
+        }
+        int total = plugin.getDataConnector().getAccountCount();
+        int page = (rank - 1) / plugin.getConfigLoader().getTopPageSize() + 1;
+        runAsync(sender, () -> plugin.getDataConnector().getPlayerBalanceByUUID(player.getUniqueId()), balance -> {
+            String formattedBalance = CurrencyFormatter.format(balance, plugin.currencyNameSingular(), plugin.currencyNamePlural());
+            sendSuccess(sender, "You are ranked #" + rank + " of " + total + " with " + formattedBalance
+                + ChatColor.GREEN + " (page " + page + ").");
+        });
+        return true;
+    }
+
+    // Suggest the "me" shortcut; page numbers are free-form
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
-        return new ArrayList<>();
+        if (args.length != 1) return new ArrayList<>();
+        return StringUtil.copyPartialMatches(args[0], Collections.singletonList("me"), new ArrayList<>());
     }
-}
\ No newline at end of file
+}
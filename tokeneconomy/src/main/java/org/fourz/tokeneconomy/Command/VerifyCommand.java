@@ -0,0 +1,115 @@
+package org.fourz.tokeneconomy.Command;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.fourz.tokeneconomy.TokenEconomy;
+import org.fourz.tokeneconomy.Data.DataConnector;
+import org.fourz.tokeneconomy.Data.DataStore;
+import org.fourz.tokeneconomy.Data.DualWriteDataStore;
+import org.fourz.tokeneconomy.Data.StoreVerifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares every balance in two stores and reports the accounts that differ.
+ *
+ * Usage:
+ *   /eco verify        - During a live migration, compare its source and target
+ *   /eco verify <type> - Compare the live store with the sqlite, mysql or journal store
+ */
+public class VerifyCommand extends BaseCommand {
+
+    private static final List<String> TYPES = Arrays.asList("sqlite", "mysql", "journal");
+    private static final int SHOWN_DIFFERENCES = 10;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public VerifyCommand(TokenEconomy plugin, PlayerResolver playerResolver) {
+        super(plugin, playerResolver);
+    }
+
+    @Override
+    protected boolean execute(CommandSender sender, String[] args) {
+        if (!checkAnyPermission(sender, "admin.verify", "admin")) return true;
+
+        DataConnector connector = plugin.getDataConnector();
+        DualWriteDataStore dualWrite = connector.findStoreLayer(DualWriteDataStore.class);
+        String otherType = args.length > 0 ? args[0].toLowerCase() : null;
+        if (otherType == null && dualWrite == null) {
+            sendError(sender, "Usage: /eco verify <sqlite|mysql|journal>");
+            return true;
+        }
+        if (otherType != null && !TYPES.contains(otherType)) {
+            sendError(sender, "Unknown storage type: " + otherType);
+            return true;
+        }
+        if (otherType != null && otherType.equals(plugin.getConfigLoader().getStorageType())) {
+            sendError(sender, "The live store is already " + otherType + "; name the other backend.");
+            return true;
+        }
+        if (!running.compareAndSet(false, true)) {
+            sendError(sender, "A verification is already running.");
+            return true;
+        }
+
+        String leftName = otherType == null ? dualWrite.getSourceType() : "live";
+        String rightName = otherType == null ? dualWrite.getTargetType() : otherType;
+        sender.sendMessage(ChatColor.GOLD + "Comparing " + leftName + " with " + rightName + "...");
+        StoreVerifier verifier = new StoreVerifier(plugin.getLogger(), plugin.getConfigLoader().getMigrationParallelism());
+        runAsync(sender, () -> {
+            try {
+                if (otherType == null) {
+                    return verifier.verify(dualWrite.getSource(), dualWrite.getTarget());
+                }
+                DataStore other = connector.openStore(otherType);
+                try {
+                    return verifier.verify(connector.getDataStore(), other);
+                } finally {
+                    other.closeDatabase();
+                }
+            } finally {
+                running.set(false);
+            }
+        }, report -> {
+            if (report.isMatch()) {
+                sendSuccess(sender, "Stores match: " + report.getRows() + " accounts compared in " +
+                    report.getMillis() + "ms.");
+                return;
+            }
+            sendError(sender, report.getDifferenceCount() + " accounts differ (" + report.getMismatchedPartitions() +
+                "/" + report.getPartitions() + " partitions, " + report.getMillis() + "ms):");
+            List<StoreVerifier.Difference> differences = report.getDifferences();
+            for (int i = 0; i < Math.min(SHOWN_DIFFERENCES, differences.size()); i++) {
+                StoreVerifier.Difference difference = differences.get(i);
+                sender.sendMessage(ChatColor.GRAY + difference.getUuid().toString() + ChatColor.WHITE + " " +
+                    leftName + "=" + describe(difference.getLeft()) + ", " + rightName + "=" + describe(difference.getRight()));
+            }
+            if (report.getDifferenceCount() > SHOWN_DIFFERENCES) {
+                sender.sendMessage(ChatColor.GRAY + "... see the server log for more.");
+                for (StoreVerifier.Difference difference : differences.subList(Math.min(SHOWN_DIFFERENCES, differences.size()), differences.size())) {
+                    plugin.getLogger().info("Verify difference " + difference.getUuid() + ": " + leftName + "=" +
+                        describe(difference.getLeft()) + ", " + rightName + "=" + describe(difference.getRight()));
+                }
+            }
+        });
+        return true;
+    }
+
+    private static String describe(Double balance) {
+        return balance == null ? "missing" : String.valueOf(balance);
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            StringUtil.copyPartialMatches(args[0], TYPES, completions);
+        }
+        return completions;
+    }
+}
@@ -10,6 +10,9 @@ public class ConfigLoader {
     private String currencyNameSingular;
     private String currencyNamePlural;
     private String currencySymbol;
+    private int topPageSize;
+    private boolean migrateOldEconomy;
+    private String legacyMergePolicy;
     private String storageType;
     private String mysqlHost;
     private int mysqlPort;
@@ -21,10 +24,64 @@ public class ConfigLoader {
     private int mysqlConnectionTimeout;
     private int mysqlMaxRetries;
     private int mysqlRetryDelay;
+    private int mysqlPoolSize;
+    private int mysqlPoolMinIdle;
+    private boolean mysqlPoolAdaptive;
+    private int mysqlPoolMinSize;
+    private int mysqlPoolMaxSize;
+    private double mysqlPoolTargetWait;
+    private long mysqlPoolAdjustInterval;
+    private boolean mysqlReplicaEnabled;
+    private String mysqlReplicaHost;
+    private int mysqlReplicaPort;
+    private String mysqlReplicaDatabase;
+    private String mysqlReplicaUsername;
+    private String mysqlReplicaPassword;
+    private int mysqlReplicaPoolSize;
+    private long mysqlReplicaReadYourWritesWindow;
     private boolean migrateFromMySQL;
     private boolean migrateFromSQLite;
     private String migrationStatus; // "none", "in_progress", "completed", "failed"
     private String databaseMode; // "shared" or "standalone"
+    private boolean cacheEnabled;
+    private long cacheFlushInterval;
+    private int cacheBatchSize;
+    private int cacheMaxEntries;
+    private boolean preloadOnline;
+    private boolean leaderboardEnabled;
+    private long leaderboardRefreshInterval;
+    private long nameCacheTtl;
+    private boolean coalesceEnabled;
+    private int lockStripes;
+    private int asyncThreads;
+    private String balanceFormat;
+    private int balanceScale;
+    private String uuidFormat;
+    private boolean sqliteWal;
+    private int sqliteReaders;
+    private int sqliteCacheSizeKb;
+    private int sqliteMmapSizeMb;
+    private long coalesceWindow;
+    private String journalFsync;
+    private boolean ledgerEnabled;
+    private int ledgerQueueSize;
+    private int ledgerBatchSize;
+    private long ledgerFlushInterval;
+    private int ledgerRetentionDays;
+    private int migrationBatchSize;
+    private int migrationFetchSize;
+    private int migrationParallelism;
+    private int migrationRanges;
+    private boolean liveMigration;
+    private int backfillBatchSize;
+    private long backfillPause;
+    private long ledgerCompactionInterval;
+    private int ledgerCompactionChunkSize;
+    private long ledgerCompactionPause;
+    private long journalFsyncInterval;
+    private int journalSegmentSizeMb;
+    private long journalCheckpointInterval;
+    private int nameCacheMaxEntries;
 
     public ConfigLoader(TokenEconomy plugin) {
         this.plugin = plugin;
@@ -43,6 +100,9 @@ public class ConfigLoader {
         currencyNameSingular = config.getString("economy.currencyNameSingular", "Token");
         currencyNamePlural = config.getString("economy.currencyNamePlural", "Tokens");
         currencySymbol = config.getString("economy.currencySymbol", "[o]");
+        topPageSize = Math.max(1, config.getInt("economy.topPageSize", 15));
+        migrateOldEconomy = config.getBoolean("economy.migrate_old_economy", false);
+        legacyMergePolicy = config.getString("economy.legacyMergePolicy", "skip");
         
         storageType = config.getString("storage.type", "sqlite").toLowerCase();
         databaseMode = config.getString("database.mode", "standalone").toLowerCase();
@@ -55,6 +115,56 @@ public class ConfigLoader {
             plugin.saveConfig();
         }
 
+        cacheEnabled = config.getBoolean("storage.cache.enabled", false);
+        cacheFlushInterval = config.getLong("storage.cache.flushInterval", 1000L);
+        cacheBatchSize = config.getInt("storage.cache.batchSize", 500);
+        cacheMaxEntries = config.getInt("storage.cache.maxEntries", 50000);
+        // Other servers on a MySQL database write past resident accounts and this index,
+        // so both are opt-in there
+        preloadOnline = config.getBoolean("storage.cache.preloadOnline", !storageType.equals("mysql"));
+        leaderboardEnabled = config.getBoolean("storage.leaderboard.enabled", !storageType.equals("mysql"));
+        leaderboardRefreshInterval = config.getLong("storage.leaderboard.refreshInterval", 0L);
+        nameCacheTtl = config.getLong("storage.names.ttl", 3600L);
+        nameCacheMaxEntries = config.getInt("storage.names.maxEntries", 10000);
+        coalesceEnabled = config.getBoolean("storage.coalesce.enabled", false);
+        coalesceWindow = config.getLong("storage.coalesce.window", 50L);
+        lockStripes = config.getInt("storage.locks.stripes", 256);
+        asyncThreads = config.getInt("storage.async.threads", 0);
+        balanceFormat = config.getString("storage.balanceFormat", "decimal");
+        balanceScale = config.getInt("storage.balanceScale", 2);
+        uuidFormat = config.getString("storage.uuidFormat", "text");
+        sqliteWal = config.getBoolean("storage.sqlite.wal", false);
+        sqliteReaders = config.getInt("storage.sqlite.readers", 4);
+        sqliteCacheSizeKb = config.getInt("storage.sqlite.cacheSize", 16384);
+        sqliteMmapSizeMb = config.getInt("storage.sqlite.mmapSize", 64);
+        journalFsync = config.getString("storage.journal.fsync", "tick");
+        ledgerEnabled = config.getBoolean("storage.ledger.enabled", true);
+        ledgerQueueSize = config.getInt("storage.ledger.queueSize", 10000);
+        ledgerBatchSize = config.getInt("storage.ledger.batchSize", 500);
+        ledgerFlushInterval = config.getLong("storage.ledger.flushInterval", 250L);
+        ledgerRetentionDays = config.getInt("storage.ledger.retentionDays", 30);
+        migrationBatchSize = config.getInt("storage.migration.batchSize", 5000);
+        migrationFetchSize = config.getInt("storage.migration.fetchSize", 1000);
+        migrationParallelism = config.getInt("storage.migration.parallelism", 4);
+        migrationRanges = config.getInt("storage.migration.ranges", 16);
+        liveMigration = config.getBoolean("storage.migration.live", false);
+        backfillBatchSize = config.getInt("storage.migration.backfillBatchSize", 500);
+        backfillPause = config.getLong("storage.migration.backfillPause", 50L);
+        ledgerCompactionInterval = config.getLong("storage.ledger.compactionInterval", 60L);
+        ledgerCompactionChunkSize = config.getInt("storage.ledger.compactionChunkSize", 1000);
+        ledgerCompactionPause = config.getLong("storage.ledger.compactionPause", 100L);
+        journalFsyncInterval = config.getLong("storage.journal.fsyncInterval", 200L);
+        journalSegmentSizeMb = config.getInt("storage.journal.segmentSize", 64);
+        journalCheckpointInterval = config.getLong("storage.journal.checkpointInterval", 300L);
+
+        // Pool settings are read for every storage type: a migration may open a MySQL pool
+        mysqlPoolSize = config.getInt("storage.mysql.pool.size", 10);
+        mysqlPoolMinIdle = config.getInt("storage.mysql.pool.minIdle", 2);
+        mysqlPoolAdaptive = config.getBoolean("storage.mysql.pool.adaptive", false);
+        mysqlPoolMinSize = Math.max(1, config.getInt("storage.mysql.pool.minSize", 4));
+        mysqlPoolMaxSize = Math.max(mysqlPoolMinSize, config.getInt("storage.mysql.pool.maxSize", 20));
+        mysqlPoolTargetWait = config.getDouble("storage.mysql.pool.targetWait", 5.0);
+        mysqlPoolAdjustInterval = config.getLong("storage.mysql.pool.adjustInterval", 30L);
         if (storageType.equals("mysql")) {
             mysqlHost = config.getString("storage.mysql.host");
             mysqlPort = config.getInt("storage.mysql.port", 3306);
@@ -66,6 +176,20 @@ public class ConfigLoader {
             mysqlConnectionTimeout = config.getInt("storage.mysql.connectionTimeout", 5000);
             mysqlMaxRetries = config.getInt("storage.mysql.maxRetries", 3);
             mysqlRetryDelay = config.getInt("storage.mysql.retryDelay", 2000);
+
+            // Replica connection settings default to the primary's
+            mysqlReplicaEnabled = config.getBoolean("storage.mysql.replica.enabled", false);
+            mysqlReplicaHost = config.getString("storage.mysql.replica.host", mysqlHost);
+            mysqlReplicaPort = config.getInt("storage.mysql.replica.port", mysqlPort);
+            mysqlReplicaDatabase = config.getString("storage.mysql.replica.database", mysqlDatabase);
+            mysqlReplicaUsername = config.getString("storage.mysql.replica.username", mysqlUsername);
+            mysqlReplicaPassword = config.getString("storage.mysql.replica.password", mysqlPassword);
+            mysqlReplicaPoolSize = config.getInt("storage.mysql.replica.poolSize", 6);
+            mysqlReplicaReadYourWritesWindow = config.getLong("storage.mysql.replica.readYourWritesWindow", 2000L);
+            if (mysqlReplicaEnabled && (mysqlReplicaHost == null || mysqlReplicaHost.isEmpty())) {
+                plugin.getLogger().warning("storage.mysql.replica.host is not set; replica reads disabled.");
+                mysqlReplicaEnabled = false;
+            }
             
             // Log MySQL configuration (excluding sensitive data)
             plugin.getLogger().info(String.format(
@@ -92,6 +216,18 @@ public class ConfigLoader {
         return currencySymbol;
     }
 
+    public int getTopPageSize() {
+        return topPageSize;
+    }
+
+    public boolean shouldMigrateOldEconomy() {
+        return migrateOldEconomy;
+    }
+
+    public String getLegacyMergePolicy() {
+        return legacyMergePolicy;
+    }
+
     public String getStorageType() {
         return storageType;
     }
@@ -128,6 +264,69 @@ public class ConfigLoader {
         return mysqlConnectionTimeout;
     }
 
+    public int getMySQLPoolSize() {
+        return mysqlPoolSize;
+    }
+
+    public int getMySQLPoolMinIdle() {
+        return mysqlPoolMinIdle;
+    }
+
+    public boolean isMySQLPoolAdaptive() {
+        return mysqlPoolAdaptive;
+    }
+
+    public int getMySQLPoolMinSize() {
+        return mysqlPoolMinSize;
+    }
+
+    public int getMySQLPoolMaxSize() {
+        return mysqlPoolMaxSize;
+    }
+
+    /** Target 95th-percentile connection acquire wait in milliseconds. */
+    public double getMySQLPoolTargetWait() {
+        return mysqlPoolTargetWait;
+    }
+
+    /** Seconds between adaptive pool size evaluations. */
+    public long getMySQLPoolAdjustInterval() {
+        return mysqlPoolAdjustInterval;
+    }
+
+    public boolean isMySQLReplicaEnabled() {
+        return mysqlReplicaEnabled;
+    }
+
+    public String getMySQLReplicaHost() {
+        return mysqlReplicaHost;
+    }
+
+    public int getMySQLReplicaPort() {
+        return mysqlReplicaPort;
+    }
+
+    public String getMySQLReplicaDatabase() {
+        return mysqlReplicaDatabase;
+    }
+
+    public String getMySQLReplicaUsername() {
+        return mysqlReplicaUsername;
+    }
+
+    public String getMySQLReplicaPassword() {
+        return mysqlReplicaPassword;
+    }
+
+    public int getMySQLReplicaPoolSize() {
+        return mysqlReplicaPoolSize;
+    }
+
+    /** Milliseconds after a write during which the account is read from the primary. */
+    public long getMySQLReplicaReadYourWritesWindow() {
+        return mysqlReplicaReadYourWritesWindow;
+    }
+
     public int getMySQLMaxRetries() {
         return mysqlMaxRetries;
     }
@@ -140,6 +339,162 @@ public class ConfigLoader {
         return databaseMode;
     }
 
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public long getCacheFlushInterval() {
+        return cacheFlushInterval;
+    }
+
+    public int getCacheBatchSize() {
+        return cacheBatchSize;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public boolean isPreloadOnlineEnabled() {
+        return preloadOnline;
+    }
+
+    public boolean isLeaderboardEnabled() {
+        return leaderboardEnabled;
+    }
+
+    public long getLeaderboardRefreshInterval() {
+        return leaderboardRefreshInterval;
+    }
+
+    public long getNameCacheTtl() {
+        return nameCacheTtl;
+    }
+
+    public int getNameCacheMaxEntries() {
+        return nameCacheMaxEntries;
+    }
+
+    public boolean isCoalesceEnabled() {
+        return coalesceEnabled;
+    }
+
+    public long getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    public String getBalanceFormat() {
+        return balanceFormat;
+    }
+
+    public int getBalanceScale() {
+        return balanceScale;
+    }
+
+    public String getUuidFormat() {
+        return uuidFormat;
+    }
+
+    public boolean isSQLiteWal() {
+        return sqliteWal;
+    }
+
+    public int getSQLiteReaders() {
+        return sqliteReaders;
+    }
+
+    public int getSQLiteCacheSizeKb() {
+        return sqliteCacheSizeKb;
+    }
+
+    public int getSQLiteMmapSizeMb() {
+        return sqliteMmapSizeMb;
+    }
+
+    public boolean isLedgerEnabled() {
+        return ledgerEnabled;
+    }
+
+    public int getLedgerQueueSize() {
+        return ledgerQueueSize;
+    }
+
+    public int getLedgerBatchSize() {
+        return ledgerBatchSize;
+    }
+
+    public long getLedgerFlushInterval() {
+        return ledgerFlushInterval;
+    }
+
+    public int getMigrationBatchSize() {
+        return migrationBatchSize;
+    }
+
+    public int getMigrationFetchSize() {
+        return migrationFetchSize;
+    }
+
+    public int getMigrationParallelism() {
+        return migrationParallelism;
+    }
+
+    public int getMigrationRanges() {
+        return migrationRanges;
+    }
+
+    public boolean isLiveMigration() {
+        return liveMigration;
+    }
+
+    public int getBackfillBatchSize() {
+        return backfillBatchSize;
+    }
+
+    public long getBackfillPause() {
+        return backfillPause;
+    }
+
+    public int getLedgerRetentionDays() {
+        return ledgerRetentionDays;
+    }
+
+    public long getLedgerCompactionInterval() {
+        return ledgerCompactionInterval;
+    }
+
+    public int getLedgerCompactionChunkSize() {
+        return ledgerCompactionChunkSize;
+    }
+
+    public long getLedgerCompactionPause() {
+        return ledgerCompactionPause;
+    }
+
+    public String getJournalFsync() {
+        return journalFsync;
+    }
+
+    public long getJournalFsyncInterval() {
+        return journalFsyncInterval;
+    }
+
+    public int getJournalSegmentSizeMb() {
+        return journalSegmentSizeMb;
+    }
+
+    public long getJournalCheckpointInterval() {
+        return journalCheckpointInterval;
+    }
+
     public boolean shouldMigrateFromMySQL() {
         return migrateFromMySQL;
     }
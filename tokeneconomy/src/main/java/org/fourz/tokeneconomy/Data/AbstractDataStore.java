@@ -1,18 +1,40 @@
 package org.fourz.tokeneconomy.Data;
 
+import org.fourz.tokeneconomy.Data.connection.PoolDelegate;
+
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 
-public abstract class AbstractDataStore implements DataStore {
+public abstract class AbstractDataStore implements DataStore, LedgerStore {
+
+    private static final int LOOKUP_CHUNK = 500;
 
     private final String tablePrefix;
+    // Both settled against the existing economy table during setup
+    private volatile BalanceFormat balanceFormat;
+    private volatile UuidFormat uuidFormat;
 
-    protected AbstractDataStore(String tablePrefix) {
+    protected AbstractDataStore(String tablePrefix, BalanceFormat balanceFormat, UuidFormat uuidFormat) {
         this.tablePrefix = tablePrefix != null ? tablePrefix : "";
+        this.balanceFormat = balanceFormat;
+        this.uuidFormat = uuidFormat;
     }
 
     protected String table(String baseName) {
@@ -24,20 +46,648 @@ public abstract class AbstractDataStore implements DataStore {
         return tablePrefix;
     }
 
+    @Override
+    public BalanceFormat getBalanceFormat() {
+        return balanceFormat;
+    }
+
+    protected void bindBalance(PreparedStatement stmt, int index, double amount) throws SQLException {
+        balanceFormat.bind(stmt, index, amount);
+    }
+
+    protected double readBalance(ResultSet rs, int column) throws SQLException {
+        return balanceFormat.read(rs, column);
+    }
+
+    protected double readBalance(ResultSet rs, String column) throws SQLException {
+        return balanceFormat.read(rs, column);
+    }
+
+    @Override
+    public UuidFormat getUuidFormat() {
+        return uuidFormat;
+    }
+
+    /** Binds an economy-table key; the name table and rvnk_players always use text keys. */
+    protected void bindUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        uuidFormat.bind(stmt, index, uuid);
+    }
+
+    protected UUID readUuid(ResultSet rs, String column) throws SQLException {
+        return uuidFormat.read(rs, column);
+    }
+
+    protected String readUuidString(ResultSet rs, String column) throws SQLException {
+        return uuidFormat.readString(rs, column);
+    }
+
+    // ─── Schema metadata and economy table layout ────────────────────────────
+
+    protected void createMetaTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("economy_meta") + " (" +
+                    "META_KEY VARCHAR(64) NOT NULL PRIMARY KEY," +
+                    "META_VALUE VARCHAR(255) NOT NULL" +
+                    ")");
+        }
+    }
+
+    protected String readMeta(Connection conn, String key) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT META_VALUE FROM " + table("economy_meta") + " WHERE META_KEY = ?")) {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    protected void writeMeta(Connection conn, String key, String value) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(
+                "DELETE FROM " + table("economy_meta") + " WHERE META_KEY = ?");
+             PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO " + table("economy_meta") + " (META_KEY, META_VALUE) VALUES (?, ?)")) {
+            delete.setString(1, key);
+            delete.executeUpdate();
+            if (value == null) return;
+            insert.setString(1, key);
+            insert.setString(2, value);
+            insert.executeUpdate();
+        }
+    }
+
+    /** Declared type of a column as reported by the driver, or null if the column is missing. */
+    protected String columnType(Connection conn, String tableName, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        // getColumns takes a LIKE pattern, where the '_' of a table prefix matches any character.
+        // The escaped pattern is tried first; the exact TABLE_NAME check keeps the unescaped
+        // fallback (for drivers that ignore escapes) from matching a neighbouring table.
+        String escaped = escapePattern(tableName, meta.getSearchStringEscape());
+        for (String pattern : escaped.equals(tableName) ? List.of(tableName) : List.of(escaped, tableName)) {
+            try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, pattern, null)) {
+                while (rs.next()) {
+                    if (tableName.equalsIgnoreCase(rs.getString("TABLE_NAME"))
+                            && column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                        return rs.getString("TYPE_NAME");
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String escapePattern(String name, String escape) {
+        if (escape == null || escape.isEmpty()) return name;
+        StringBuilder escaped = new StringBuilder(name.length() + 4);
+        for (char c : name.toCharArray()) {
+            if (c == '_' || c == '%' || c == escape.charAt(0)) escaped.append(escape);
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Brings the economy table in line with the configured balance and key layouts,
+     * converting existing rows once when either changed. Fixed-point columns keep the
+     * scale they were written with (recorded in the meta table) even if the configured
+     * scale differs.
+     */
+    protected void reconcileEconomySchema(Connection conn) throws SQLException {
+        BalanceFormat wantedBalance = balanceFormat;
+        UuidFormat wantedKey = uuidFormat;
+        String economy = table("economy");
+
+        String balanceType = columnType(conn, economy, "BALANCE");
+        boolean integerColumn = balanceType != null && balanceType.toUpperCase().contains("INT");
+        String storedScale = readMeta(conn, "balance_scale");
+        BalanceFormat currentBalance = BalanceFormat.decimal();
+        if (integerColumn) {
+            currentBalance = BalanceFormat.fixed(storedScale != null ? Integer.parseInt(storedScale) : wantedBalance.getScale());
+        }
+        UuidFormat currentKey = UuidFormat.ofColumnType(columnType(conn, economy, "UUID"));
+
+        BalanceFormat targetBalance = wantedBalance;
+        if (currentBalance.isFixed() && wantedBalance.isFixed() && currentBalance.getScale() != wantedBalance.getScale()) {
+            getLogger().warning("Balances are stored with scale " + currentBalance.getScale() +
+                    " but storage.balanceScale is " + wantedBalance.getScale() + "; keeping the stored scale.");
+            targetBalance = currentBalance;
+        }
+
+        boolean balanceChanges = currentBalance.isFixed() != targetBalance.isFixed();
+        boolean keyChanges = currentKey.isBinary() != wantedKey.isBinary();
+        if ((balanceChanges || keyChanges) && !allowsLayoutConversion()) {
+            getLogger().warning("Economy table is stored as balances " + currentBalance + ", keys " + currentKey +
+                    " but the config asks for " + targetBalance + ", " + wantedKey + ". Layout changes are refused " +
+                    "on a shared database; keeping the stored layout. Stop every server using this database and " +
+                    "convert from a single standalone server instead.");
+            targetBalance = currentBalance;
+            wantedKey = currentKey;
+            balanceChanges = false;
+            keyChanges = false;
+        }
+        if (balanceChanges || keyChanges) {
+            getLogger().info("Converting economy table: balances " + currentBalance + " -> " + targetBalance +
+                    ", keys " + currentKey + " -> " + wantedKey + "...");
+            long start = System.currentTimeMillis();
+            convertEconomyTable(conn, currentBalance, targetBalance, currentKey, wantedKey);
+            getLogger().info("Economy table converted in " + (System.currentTimeMillis() - start) + "ms.");
+        }
+        balanceFormat = targetBalance;
+        uuidFormat = wantedKey;
+        writeMeta(conn, "balance_scale", targetBalance.isFixed() ? String.valueOf(targetBalance.getScale()) : null);
+    }
+
+    /** Whether reconcileEconomySchema may rewrite the table; otherwise the stored layout is adopted. */
+    protected boolean allowsLayoutConversion() {
+        return true;
+    }
+
+    /** SQL expression turning a BALANCE value stored in {@code from} into {@code to}. */
+    protected static String balanceConversion(BalanceFormat from, BalanceFormat to) {
+        if (to.isFixed()) return "ROUND(BALANCE * " + to.getFactor() + ")";
+        return "BALANCE * 1.0 / " + from.getFactor();
+    }
+
+    /** Rewrites every row of the economy table from one layout to another. */
+    protected abstract void convertEconomyTable(Connection conn, BalanceFormat fromBalance, BalanceFormat toBalance,
+                                                UuidFormat fromKey, UuidFormat toKey) throws SQLException;
+
     @Override
     public double getPlayerBalanceByUUID(UUID playerUUID) {
-        try (Connection conn = getConnection();
+        try {
+            Double balance = queryBalance(playerUUID);
+            return balance != null ? balance : 0.0;
+        } catch (SQLException e) {
+            getLogger().warning("Failed to retrieve player balance: " + e.getMessage());
+        }
+        return 0.0;
+    }
+
+    @Override
+    public Optional<Double> findPlayerBalanceByUUID(UUID playerUUID) {
+        try {
+            return Optional.ofNullable(queryBalance(playerUUID));
+        } catch (SQLException e) {
+            getLogger().warning("Failed to retrieve player balance: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve balance", e);
+        }
+    }
+
+    @Override
+    public boolean changePlayerBalance(UUID playerUUID, double amount) {
+        return changePlayerBalanceAndGet(playerUUID, amount).isSuccess();
+    }
+
+    /**
+     * Applies every change as one batched transaction with the same rules as
+     * changePlayerBalance. The current balances are read first (locking the rows where the
+     * backend supports it), existing accounts are updated by a conditional UPDATE batch,
+     * missing accounts with non-negative deltas are created by an upsert batch, and the
+     * touched rows are read back in the same transaction, so resulting balances cost one
+     * query per chunk rather than one per account. Drivers that rewrite batches may report
+     * SUCCESS_NO_INFO instead of row counts; those rows are decided from the balances read
+     * before and after, never assumed applied.
+     */
+    @Override
+    public Map<UUID, BalanceChange> changeBalances(Map<UUID, Double> changes) {
+        Map<UUID, BalanceChange> outcome = new HashMap<>();
+        List<UUID> order = new ArrayList<>(changes.keySet());
+        if (order.isEmpty()) return new LinkedHashMap<>();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<UUID, Double> before = readBalances(conn, order, true);
+                List<UUID> existing = new ArrayList<>();
+                List<UUID> created = new ArrayList<>();
+                for (UUID uuid : order) {
+                    if (before.containsKey(uuid)) {
+                        existing.add(uuid);
+                    } else if (changes.get(uuid) >= 0) {
+                        created.add(uuid);
+                    } else {
+                        outcome.put(uuid, BalanceChange.rejected(0.0));
+                    }
+                }
+                int[] counts = new int[0];
+                if (!existing.isEmpty()) {
+                    try (PreparedStatement update = conn.prepareStatement(
+                            "UPDATE " + table("economy") + " SET BALANCE = BALANCE + ? WHERE UUID = ? AND BALANCE + ? >= 0")) {
+                        for (UUID uuid : existing) {
+                            double amount = changes.get(uuid);
+                            bindBalance(update, 1, amount);
+                            bindUuid(update, 2, uuid);
+                            bindBalance(update, 3, amount);
+                            update.addBatch();
+                        }
+                        counts = update.executeBatch();
+                    }
+                }
+                if (!created.isEmpty()) {
+                    try (PreparedStatement insert = conn.prepareStatement(creditUpsertSql())) {
+                        for (UUID uuid : created) {
+                            bindUuid(insert, 1, uuid);
+                            bindBalance(insert, 2, changes.get(uuid));
+                            insert.addBatch();
+                        }
+                        insert.executeBatch();
+                    }
+                }
+                List<UUID> touched = new ArrayList<>(existing);
+                touched.addAll(created);
+                Map<UUID, Double> after = readBalances(conn, touched, false);
+                for (int i = 0; i < existing.size(); i++) {
+                    UUID uuid = existing.get(i);
+                    double was = before.get(uuid);
+                    double now = after.getOrDefault(uuid, was);
+                    boolean applied = i < counts.length && (counts[i] > 0
+                        || counts[i] == Statement.SUCCESS_NO_INFO && changedBy(was, now, changes.get(uuid)));
+                    outcome.put(uuid, applied ? BalanceChange.applied(now) : BalanceChange.rejected(now));
+                }
+                for (UUID uuid : created) {
+                    outcome.put(uuid, BalanceChange.applied(after.getOrDefault(uuid, changes.get(uuid))));
+                }
+                touched.forEach(this::noteWritten);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            getLogger().warning("Failed to apply batched balance changes: " + e.getMessage());
+            outcome.clear();
+        }
+        Map<UUID, BalanceChange> results = new LinkedHashMap<>();
+        for (UUID uuid : order) {
+            results.put(uuid, outcome.getOrDefault(uuid, BalanceChange.failed()));
+        }
+        return results;
+    }
+
+    /** Whether a guarded update with an unreported row count took effect, judged from the row's balances. */
+    private boolean changedBy(double was, double now, double amount) {
+        if (balanceFormat.toMinor(amount) == 0) return was >= 0;
+        return balanceFormat.toMinor(now) != balanceFormat.toMinor(was);
+    }
+
+    /** Current balances of the given accounts; missing accounts are absent from the result. */
+    private Map<UUID, Double> readBalances(Connection conn, List<UUID> uuids, boolean lockRows) throws SQLException {
+        Map<UUID, Double> balances = new HashMap<>();
+        for (int from = 0; from < uuids.size(); from += LOOKUP_CHUNK) {
+            List<UUID> chunk = uuids.subList(from, Math.min(from + LOOKUP_CHUNK, uuids.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT UUID, BALANCE FROM " + table("economy") + " WHERE UUID IN (" + placeholders + ")" +
+                    (lockRows ? lockingReadClause() : ""))) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    bindUuid(stmt, i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        balances.put(readUuid(rs, "UUID"), readBalance(rs, "BALANCE"));
+                    }
+                }
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Suffix that makes a SELECT lock the rows it reads until commit, so they cannot change
+     * between a read and the writes based on it. Empty where the transaction already
+     * excludes other writers (SQLite's single writer).
+     */
+    protected String lockingReadClause() {
+        return "";
+    }
+
+    /**
+     * Insert-or-add statement for the economy table taking (UUID, amount); an existing
+     * row has the amount added to its balance.
+     */
+    protected abstract String creditUpsertSql();
+
+    @Override
+    public long forEachBalance(int fetchSize, BiConsumer<UUID, Double> action) {
+        return streamBalances(null, null, false, fetchSize, action);
+    }
+
+    /**
+     * Text keys are lowercase hex at fixed positions and binary keys compare bytewise,
+     * so in both layouts the primary-key order is unsigned UUID order.
+     */
+    @Override
+    public long forEachBalanceInRange(UUID from, UUID to, int fetchSize, BiConsumer<UUID, Double> action) {
+        return streamBalances(from, to, true, fetchSize, action);
+    }
+
+    /**
+     * Forward-only, read-only cursor over (part of) the economy table on a reader connection.
+     * Scans feed migrations, snapshots and verification, so they never read a lagging replica.
+     */
+    private long streamBalances(UUID from, UUID to, boolean ordered, int fetchSize, BiConsumer<UUID, Double> action) {
+        long rows = 0;
+        long skipped = 0;
+        String sql = "SELECT UUID, BALANCE FROM " + table("economy") + keyRangeClause(from, to) +
+                (ordered ? " ORDER BY UUID" : "");
+        try (Connection conn = getScanConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(streamingFetchSize(fetchSize));
+            bindKeyRange(stmt, from, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid;
+                    try {
+                        uuid = readUuid(rs, "UUID");
+                    } catch (IllegalArgumentException e) {
+                        skipped++;
+                        continue;
+                    }
+                    action.accept(uuid, readBalance(rs, "BALANCE"));
+                    rows++;
+                }
+            }
+        } catch (SQLException e) {
+            getLogger().warning("Failed to stream player balances: " + e.getMessage());
+            throw new RuntimeException("Failed to stream balances", e);
+        }
+        if (skipped > 0) {
+            getLogger().warning("Skipped " + skipped + " economy rows with malformed UUID keys.");
+        }
+        return rows;
+    }
+
+    @Override
+    public BalanceSummary summarizeBalances(UUID from, UUID to) {
+        try (Connection conn = getScanConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                "SELECT COUNT(*), SUM(BALANCE) FROM " + table("economy") + keyRangeClause(from, to))) {
+            bindKeyRange(stmt, from, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new BalanceSummary(rs.getLong(1), readBalance(rs, 2));
+            }
+        } catch (SQLException e) {
+            getLogger().warning("Failed to summarize balances: " + e.getMessage());
+            throw new RuntimeException("Failed to summarize balances", e);
+        }
+    }
+
+    private static String keyRangeClause(UUID from, UUID to) {
+        if (from == null && to == null) return "";
+        if (from == null) return " WHERE UUID < ?";
+        if (to == null) return " WHERE UUID >= ?";
+        return " WHERE UUID >= ? AND UUID < ?";
+    }
+
+    private void bindKeyRange(PreparedStatement stmt, UUID from, UUID to) throws SQLException {
+        int index = 1;
+        if (from != null) bindUuid(stmt, index++, from);
+        if (to != null) bindUuid(stmt, index, to);
+    }
+
+    /** Fetch size to request from the driver for a streaming read of {@code requested} rows per round trip. */
+    protected int streamingFetchSize(int requested) {
+        return Math.max(1, requested);
+    }
+
+    /** Returns the stored balance, or null when the account does not exist. */
+    private Double queryBalance(UUID playerUUID) throws SQLException {
+        try (Connection conn = getReadConnection(playerUUID);
              PreparedStatement stmt = conn.prepareStatement(
                 "SELECT BALANCE FROM " + table("economy") + " WHERE UUID = ?")) {
-            stmt.setString(1, playerUUID.toString());
+            bindUuid(stmt, 1, playerUUID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readBalance(rs, "BALANCE") : null;
+            }
+        }
+    }
+
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uuids) {
+        Map<UUID, String> names = new LinkedHashMap<>();
+        List<UUID> ordered = new ArrayList<>(uuids);
+        try (Connection conn = getReadConnection()) {
+            for (int from = 0; from < ordered.size(); from += LOOKUP_CHUNK) {
+                List<UUID> chunk = ordered.subList(from, Math.min(from + LOOKUP_CHUNK, ordered.size()));
+                String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT UUID, NAME FROM " + table("player_names") + " WHERE UUID IN (" + placeholders + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i).toString());
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            names.put(UUID.fromString(rs.getString("UUID")), rs.getString("NAME"));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            getLogger().warning("Failed to look up player names: " + e.getMessage());
+        }
+        return names;
+    }
+
+    @Override
+    public Map<UUID, String> loadPlayerNames(int limit) {
+        Map<UUID, String> names = new LinkedHashMap<>();
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                "SELECT UUID, NAME FROM " + table("player_names") + " ORDER BY UPDATED_AT DESC LIMIT ?")) {
+            stmt.setInt(1, limit);
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) return rs.getDouble("BALANCE");
+                while (rs.next()) {
+                    try {
+                        names.put(UUID.fromString(rs.getString("UUID")), rs.getString("NAME"));
+                    } catch (IllegalArgumentException ignored) {}
+                }
             }
         } catch (SQLException e) {
-            getLogger().warning("Failed to retrieve player balance: " + e.getMessage());
+            getLogger().warning("Failed to load player names: " + e.getMessage());
+        }
+        return names;
+    }
+
+    /**
+     * Ledger amounts are always stored as DOUBLE and keys as text, independent of the
+     * economy table layout, so the audit trail never needs converting.
+     */
+    @Override
+    public void writeLedger(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) return;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO " + table("ledger") + " (TX_ID, UUID, DELTA, BALANCE, CAUSE, CREATED_AT) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (LedgerEntry entry : entries) {
+                    stmt.setString(1, entry.getTxId().toString());
+                    stmt.setString(2, entry.getUuid().toString());
+                    setNullableDouble(stmt, 3, entry.getDelta());
+                    setNullableDouble(stmt, 4, entry.getBalance());
+                    stmt.setString(5, entry.getCause());
+                    stmt.setLong(6, entry.getCreatedAt());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to write ledger entries", e);
+        }
+    }
+
+    /** Per-player, per-day totals of the ledger rows in one compaction chunk. */
+    private static final class DailyRollup {
+        final String uuid;
+        final String day;
+        int count;
+        double credits;
+        double debits;
+        Double closingBalance;
+        long lastAt;
+
+        DailyRollup(String uuid, String day) {
+            this.uuid = uuid;
+            this.day = day;
         }
-        return 0.0;
     }
 
+    /**
+     * Deletes the chunk first and only rolls it up when every selected row was deleted
+     * here; a concurrent compactor on another server sharing the database then rolls
+     * back instead of counting the same rows twice.
+     */
+    @Override
+    public int compactLedgerChunk(long cutoff, int limit) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<String, DailyRollup> rollups = new LinkedHashMap<>();
+                int rows = 0;
+                long maxId = -1;
+                try (PreparedStatement select = conn.prepareStatement(
+                        "SELECT ID, UUID, DELTA, BALANCE, CREATED_AT FROM " + table("ledger") +
+                                " WHERE CREATED_AT < ? ORDER BY ID LIMIT ?")) {
+                    select.setLong(1, cutoff);
+                    select.setInt(2, limit);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            maxId = rs.getLong("ID");
+                            String uuid = rs.getString("UUID");
+                            long createdAt = rs.getLong("CREATED_AT");
+                            String day = LocalDate.ofEpochDay(Math.floorDiv(createdAt, 86_400_000L)).toString();
+                            DailyRollup rollup = rollups.computeIfAbsent(uuid + ' ' + day, k -> new DailyRollup(uuid, day));
+                            rollup.count++;
+                            double delta = rs.getDouble("DELTA");
+                            if (!rs.wasNull()) {
+                                if (delta >= 0) rollup.credits += delta; else rollup.debits -= delta;
+                            }
+                            double balance = rs.getDouble("BALANCE");
+                            if (!rs.wasNull() && createdAt >= rollup.lastAt) rollup.closingBalance = balance;
+                            rollup.lastAt = Math.max(rollup.lastAt, createdAt);
+                        }
+                    }
+                }
+                if (rows == 0) {
+                    conn.commit();
+                    return 0;
+                }
+                try (PreparedStatement delete = conn.prepareStatement(
+                        "DELETE FROM " + table("ledger") + " WHERE ID <= ? AND CREATED_AT < ?")) {
+                    delete.setLong(1, maxId);
+                    delete.setLong(2, cutoff);
+                    if (delete.executeUpdate() != rows) {
+                        conn.rollback();
+                        getLogger().info("Ledger rows changed during compaction (another server compacting?); skipping this run.");
+                        return 0;
+                    }
+                }
+                try (PreparedStatement upsert = conn.prepareStatement(ledgerRollupUpsertSql())) {
+                    for (DailyRollup rollup : rollups.values()) {
+                        upsert.setString(1, rollup.uuid);
+                        upsert.setString(2, rollup.day);
+                        upsert.setInt(3, rollup.count);
+                        upsert.setDouble(4, rollup.credits);
+                        upsert.setDouble(5, rollup.debits);
+                        setNullableDouble(upsert, 6, rollup.closingBalance);
+                        upsert.setLong(7, rollup.lastAt);
+                        upsert.addBatch();
+                    }
+                    upsert.executeBatch();
+                }
+                conn.commit();
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to compact ledger", e);
+        }
+    }
+
+    /**
+     * Insert-or-merge statement for the daily ledger table taking (UUID, DAY, TX_COUNT,
+     * CREDITS, DEBITS, CLOSING_BALANCE, LAST_AT). Counts and sums add up; the closing
+     * balance is taken from whichever side has the later LAST_AT.
+     */
+    protected abstract String ledgerRollupUpsertSql();
+
+    private static void setNullableDouble(PreparedStatement stmt, int index, Double value) throws SQLException {
+        if (value != null) {
+            stmt.setDouble(index, value);
+        } else {
+            stmt.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    /** Resolves names for leaderboard rows from the name table, falling back to the UUID string. */
+    protected Map<String, Double> withDisplayNames(Map<UUID, Double> rows) {
+        Map<UUID, String> names = getPlayerNames(rows.keySet());
+        Map<String, Double> named = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Double> row : rows.entrySet()) {
+            String name = names.get(row.getKey());
+            named.put(name != null ? name : row.getKey().toString(), row.getValue());
+        }
+        return named;
+    }
+
+    /** Connection for queries that never write; stores with a reader pool override this. */
+    protected Connection getReadConnection() throws SQLException {
+        return getConnection();
+    }
+
+    /** Reader connection for a query about one account, honouring the replica's read-your-writes window. */
+    protected Connection getReadConnection(UUID account) throws SQLException {
+        return getPool().getReadConnection(account);
+    }
+
+    /** Connection for scans that must see every committed write: the primary when reads go to a replica. */
+    protected Connection getScanConnection() throws SQLException {
+        return getPool().isReadReplica() ? getConnection() : getReadConnection();
+    }
+
+    /**
+     * Records a balance write so the account is read from the primary for a while. Call it
+     * before the write commits, so no read can reach the replica between the two.
+     */
+    protected void noteWritten(UUID account) {
+        getPool().noteWrite(account);
+    }
+
+    /** The pool this store draws its connections from, for diagnostics. */
+    public abstract PoolDelegate getPool();
+
     protected abstract Logger getLogger();
 }
@@ -0,0 +1,177 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lock-striped guard for account mutations inside this server.
+ *
+ * <p>Each UUID maps to one of a fixed number of reentrant locks, so callers touching
+ * different accounts rarely wait on each other and memory stays constant however many
+ * accounts exist. Multi-account operations take their stripes in ascending index order,
+ * which rules out lock-order deadlocks. That order only holds if every stripe is taken in
+ * one call, so a thread already holding a stripe may re-enter it but not add new ones;
+ * trying throws IllegalStateException instead of risking a deadlock. Waits are recorded
+ * in a latency histogram and per account, to show which accounts are hot.
+ */
+public class AccountLocks {
+
+    /** Upper bounds (ms) of the wait-time buckets; the last bucket is open-ended. */
+    private static final long[] WAIT_BUCKETS_MILLIS = { 1, 5, 20, 100 };
+    private static final int MAX_TRACKED_ACCOUNTS = 1000;
+
+    private final ReentrantLock[] stripes;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder[] waitHistogram = new LongAdder[WAIT_BUCKETS_MILLIS.length + 1];
+    private final Map<UUID, LongAdder> contentionByAccount = new ConcurrentHashMap<>();
+    // Distinct stripes held by the current thread, not counting re-entries
+    private final ThreadLocal<int[]> heldByThread = ThreadLocal.withInitial(() -> new int[1]);
+
+    public AccountLocks(int stripeCount) {
+        // Power of two so the stripe index is a mask
+        int size = Integer.highestOneBit(Math.max(1, Math.min(stripeCount, 1 << 16)));
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < waitHistogram.length; i++) {
+            waitHistogram[i] = new LongAdder();
+        }
+    }
+
+    /** Runs the action while holding the account's stripe. */
+    public <T> T withLock(UUID uuid, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(uuid)];
+        boolean fresh = !lock.isHeldByCurrentThread();
+        if (fresh) checkNotNested();
+        acquire(lock, uuid);
+        try {
+            return action.get();
+        } finally {
+            release(lock, fresh);
+        }
+    }
+
+    /** Runs the action while holding the stripes of every given account. */
+    public <T> T withLocks(Collection<UUID> uuids, Supplier<T> action) {
+        // Distinct stripes in ascending order: two accounts sharing a stripe lock it once
+        TreeSet<Integer> order = new TreeSet<>();
+        Map<Integer, UUID> firstAccount = new HashMap<>();
+        for (UUID uuid : uuids) {
+            int stripe = stripeOf(uuid);
+            order.add(stripe);
+            firstAccount.putIfAbsent(stripe, uuid);
+        }
+        boolean[] fresh = new boolean[order.size()];
+        int index = 0;
+        boolean anyFresh = false;
+        for (int stripe : order) {
+            fresh[index] = !stripes[stripe].isHeldByCurrentThread();
+            anyFresh |= fresh[index++];
+        }
+        if (anyFresh) checkNotNested();
+        List<ReentrantLock> held = new ArrayList<>(order.size());
+        try {
+            for (int stripe : order) {
+                ReentrantLock lock = stripes[stripe];
+                acquire(lock, firstAccount.get(stripe));
+                held.add(lock);
+            }
+            return action.get();
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                release(held.get(i), fresh[i]);
+            }
+        }
+    }
+
+    /** Taking a new stripe while holding another could invert the ascending order. */
+    private void checkNotNested() {
+        if (heldByThread.get()[0] > 0) {
+            throw new IllegalStateException("Account locks cannot be extended while held; "
+                + "lock every account the operation touches in one call");
+        }
+    }
+
+    private void release(ReentrantLock lock, boolean fresh) {
+        lock.unlock();
+        if (fresh) heldByThread.get()[0]--;
+    }
+
+    private void acquire(ReentrantLock lock, UUID uuid) {
+        acquisitions.increment();
+        if (!lock.isHeldByCurrentThread()) heldByThread.get()[0]++;
+        if (lock.tryLock()) return;
+        long start = System.nanoTime();
+        lock.lock();
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        contended.increment();
+        waitHistogram[bucketOf(waitedMillis)].increment();
+        LongAdder perAccount = contentionByAccount.get(uuid);
+        if (perAccount == null && contentionByAccount.size() < MAX_TRACKED_ACCOUNTS) {
+            perAccount = contentionByAccount.computeIfAbsent(uuid, k -> new LongAdder());
+        }
+        if (perAccount != null) perAccount.increment();
+    }
+
+    private int stripeOf(UUID uuid) {
+        int h = uuid.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+
+    private static int bucketOf(long waitedMillis) {
+        for (int i = 0; i < WAIT_BUCKETS_MILLIS.length; i++) {
+            if (waitedMillis < WAIT_BUCKETS_MILLIS[i]) return i;
+        }
+        return WAIT_BUCKETS_MILLIS.length;
+    }
+
+    // ─── Diagnostics ─────────────────────────────────────────────────────────
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContended() {
+        return contended.sum();
+    }
+
+    /** Contended waits per bucket, labelled by upper bound ("<1ms" ... ">=100ms"). */
+    public Map<String, Long> getWaitHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < WAIT_BUCKETS_MILLIS.length; i++) {
+            histogram.put("<" + WAIT_BUCKETS_MILLIS[i] + "ms", waitHistogram[i].sum());
+        }
+        histogram.put(">=" + WAIT_BUCKETS_MILLIS[WAIT_BUCKETS_MILLIS.length - 1] + "ms",
+            waitHistogram[WAIT_BUCKETS_MILLIS.length].sum());
+        return histogram;
+    }
+
+    /** The accounts that waited most often, hottest first. */
+    public List<Map.Entry<UUID, Long>> getHottestAccounts(int limit) {
+        List<Map.Entry<UUID, Long>> hottest = new ArrayList<>();
+        for (Map.Entry<UUID, LongAdder> entry : contentionByAccount.entrySet()) {
+            hottest.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+        }
+        hottest.sort(Map.Entry.<UUID, Long>comparingByValue(Comparator.reverseOrder()));
+        return hottest.subList(0, Math.min(limit, hottest.size()));
+    }
+}
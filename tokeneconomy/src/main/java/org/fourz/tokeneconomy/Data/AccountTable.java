@@ -0,0 +1,112 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from UUID (as its two longs) to a balance, held in parallel
+ * primitive arrays so a million accounts cost a few dozen megabytes and no boxing.
+ * Accounts are never removed, so linear probing needs no tombstones. Not thread-safe.
+ */
+final class AccountTable {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private long[] msbs;
+    private long[] lsbs;
+    private double[] balances;
+    private boolean[] used;
+    private int size;
+
+    AccountTable(int expectedAccounts) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L < expectedAccounts * 4L) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        balances = new double[capacity];
+        used = new boolean[capacity];
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Number of slots; iterate with {@link #isUsed(int)} to visit every account. */
+    int capacity() {
+        return used.length;
+    }
+
+    boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    long msbAt(int slot) {
+        return msbs[slot];
+    }
+
+    long lsbAt(int slot) {
+        return lsbs[slot];
+    }
+
+    double balanceAt(int slot) {
+        return balances[slot];
+    }
+
+    /** Slot holding the account, or -1 when it does not exist. */
+    int find(long msb, long lsb) {
+        int mask = used.length - 1;
+        for (int slot = slotOf(msb, lsb, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (msbs[slot] == msb && lsbs[slot] == lsb) return slot;
+        }
+        return -1;
+    }
+
+    /** Creates the account or overwrites its balance. */
+    void put(long msb, long lsb, double balance) {
+        if ((size + 1) * 4L > used.length * 3L) grow();
+        int mask = used.length - 1;
+        int slot = slotOf(msb, lsb, mask);
+        while (used[slot]) {
+            if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                balances[slot] = balance;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        msbs[slot] = msb;
+        lsbs[slot] = lsb;
+        balances[slot] = balance;
+        size++;
+    }
+
+    AccountTable copy() {
+        AccountTable copy = new AccountTable(0);
+        copy.msbs = Arrays.copyOf(msbs, msbs.length);
+        copy.lsbs = Arrays.copyOf(lsbs, lsbs.length);
+        copy.balances = Arrays.copyOf(balances, balances.length);
+        copy.used = Arrays.copyOf(used, used.length);
+        copy.size = size;
+        return copy;
+    }
+
+    private void grow() {
+        long[] oldMsbs = msbs;
+        long[] oldLsbs = lsbs;
+        double[] oldBalances = balances;
+        boolean[] oldUsed = used;
+        allocate(oldUsed.length << 1);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) put(oldMsbs[i], oldLsbs[i], oldBalances[i]);
+        }
+    }
+
+    private static int slotOf(long msb, long lsb, int mask) {
+        long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,48 @@
+package org.fourz.tokeneconomy.Data;
+
+/**
+ * Outcome of a balance mutation together with the balance it left behind, so callers
+ * can report the new balance without reading it back.
+ */
+public final class BalanceChange {
+
+    private static final BalanceChange FAILED = new BalanceChange(false, 0.0, true);
+
+    private final boolean success;
+    private final double balance;
+    private final boolean error;
+
+    private BalanceChange(boolean success, double balance, boolean error) {
+        this.success = success;
+        this.balance = balance;
+        this.error = error;
+    }
+
+    /** The change was applied; {@code balance} is the account's new balance. */
+    public static BalanceChange applied(double balance) {
+        return new BalanceChange(true, balance, false);
+    }
+
+    /** The change was refused; {@code balance} is the unchanged current balance. */
+    public static BalanceChange rejected(double balance) {
+        return new BalanceChange(false, balance, false);
+    }
+
+    /** The change could not be attempted (storage error); the balance is unknown. */
+    public static BalanceChange failed() {
+        return FAILED;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /** True when the change failed because of a storage error rather than the balance rules. */
+    public boolean isError() {
+        return error;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+}
@@ -0,0 +1,111 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * How balances are stored in the BALANCE column.
+ *
+ * <p>{@code decimal} keeps the original REAL/DOUBLE column. {@code fixed} stores integer
+ * minor units (balance × 10^scale) in an INTEGER/BIGINT column, so the database does
+ * exact arithmetic and the {@code BALANCE + ? >= 0} checks cannot drift. Amounts are
+ * rounded to the scale when bound; DataConnector rounds them once up front with
+ * {@link #normalize(double)}, so what it reports and records is what was stored, and it
+ * refuses changes that round to nothing. Balances travel through the plugin as doubles, but
+ * code that does arithmetic on them in memory (write-behind cache, credit coalescer) goes
+ * through {@link #add(double, double)} so it computes exactly what the database would.
+ */
+public final class BalanceFormat {
+
+    private static final BalanceFormat DECIMAL = new BalanceFormat(false, 0);
+
+    private final boolean fixed;
+    private final int scale;
+    private final long factor;
+
+    private BalanceFormat(boolean fixed, int scale) {
+        this.fixed = fixed;
+        this.scale = scale;
+        long f = 1;
+        for (int i = 0; i < scale; i++) f *= 10;
+        this.factor = f;
+    }
+
+    public static BalanceFormat decimal() {
+        return DECIMAL;
+    }
+
+    /** Fixed-point with {@code scale} fractional digits (0–6). */
+    public static BalanceFormat fixed(int scale) {
+        return new BalanceFormat(true, Math.max(0, Math.min(6, scale)));
+    }
+
+    /** Builds the format from the storage.balanceFormat / storage.balanceScale settings. */
+    public static BalanceFormat fromConfig(String mode, int scale) {
+        return "fixed".equalsIgnoreCase(mode) ? fixed(scale) : decimal();
+    }
+
+    public boolean isFixed() {
+        return fixed;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /** Multiplier between display units and stored minor units (1 in decimal mode). */
+    public long getFactor() {
+        return factor;
+    }
+
+    public long toMinor(double amount) {
+        return Math.round(amount * factor);
+    }
+
+    public double fromMinor(long minor) {
+        return factor == 1 ? minor : (double) minor / factor;
+    }
+
+    /** {@code amount} as the store keeps it: rounded to the scale in fixed mode, unchanged in decimal mode. */
+    public double normalize(double amount) {
+        return fixed ? fromMinor(toMinor(amount)) : amount;
+    }
+
+    /**
+     * {@code balance + amount} as the store computes it: exact integer minor units in fixed
+     * mode, plain double addition in decimal mode.
+     */
+    public double add(double balance, double amount) {
+        return fixed ? fromMinor(toMinor(balance) + toMinor(amount)) : balance + amount;
+    }
+
+    public void bind(PreparedStatement stmt, int index, double amount) throws SQLException {
+        if (fixed) {
+            stmt.setLong(index, toMinor(amount));
+        } else {
+            stmt.setDouble(index, amount);
+        }
+    }
+
+    public double read(ResultSet rs, int column) throws SQLException {
+        return fixed ? fromMinor(rs.getLong(column)) : rs.getDouble(column);
+    }
+
+    public double read(ResultSet rs, String column) throws SQLException {
+        return fixed ? fromMinor(rs.getLong(column)) : rs.getDouble(column);
+    }
+
+    public String sqliteColumnType() {
+        return fixed ? "INTEGER" : "REAL";
+    }
+
+    public String mysqlColumnType() {
+        return fixed ? "BIGINT" : "DOUBLE";
+    }
+
+    @Override
+    public String toString() {
+        return fixed ? "fixed (scale " + scale + ")" : "decimal";
+    }
+}
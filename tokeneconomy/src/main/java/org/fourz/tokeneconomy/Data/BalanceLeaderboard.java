@@ -0,0 +1,257 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-process leaderboard ordered by (balance desc, uuid asc).
+ *
+ * <p>Backed by a treap whose nodes carry subtree sizes, so updates are O(log n) and a
+ * top-N read is O(log n + N) no matter how many accounts exist. The same sizes give
+ * O(log n) rank lookups and page starts without scanning skipped rows. Loaded from the
+ * store at startup and kept current by {@link DataConnector} on every mutation; a reload
+ * streams the store into a fresh tree while the current one keeps serving reads.
+ */
+public class BalanceLeaderboard {
+
+    private static final class Node {
+        final UUID uuid;
+        final double balance;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(UUID uuid, double balance) {
+            this.uuid = uuid;
+            this.balance = balance;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private Map<UUID, Double> balances = new HashMap<>();
+    private Node root;
+    private volatile boolean ready;
+    // Mutations made while a reload scans the store (null value = removed), replayed onto
+    // the fresh tree so a row read before its update commits does not win
+    private Map<UUID, Double> duringReload;
+    private final Object reloadLock = new Object();
+
+    /**
+     * Replaces the whole index with the rows the scan emits. The scan runs without holding
+     * the index, so reads and updates continue against the old tree until the swap.
+     */
+    public void reload(Consumer<BiConsumer<UUID, Double>> scan) {
+        synchronized (reloadLock) {
+            BalanceLeaderboard fresh = new BalanceLeaderboard();
+            synchronized (this) {
+                duringReload = new HashMap<>();
+            }
+            try {
+                scan.accept(fresh::put);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    duringReload = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                for (Map.Entry<UUID, Double> entry : duringReload.entrySet()) {
+                    if (entry.getValue() != null) {
+                        fresh.put(entry.getKey(), entry.getValue());
+                    } else {
+                        fresh.remove(entry.getKey());
+                    }
+                }
+                duringReload = null;
+                balances = fresh.balances;
+                root = fresh.root;
+                ready = true;
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int size() {
+        return balances.size();
+    }
+
+    /** Records the absolute balance of an account. */
+    public synchronized void update(UUID uuid, double balance) {
+        put(uuid, balance);
+        if (duringReload != null) {
+            duringReload.put(uuid, balance);
+        }
+    }
+
+    /** The indexed balance of an account, or null when it is not ranked. */
+    public synchronized Double balanceOf(UUID uuid) {
+        return balances.get(uuid);
+    }
+
+    public synchronized void remove(UUID uuid) {
+        if (duringReload != null) {
+            duringReload.put(uuid, null);
+        }
+        Double current = balances.remove(uuid);
+        if (current != null) {
+            root = erase(root, current, uuid);
+        }
+    }
+
+    /** Returns the highest balances, best first. */
+    public List<Map.Entry<UUID, Double>> top(int limit) {
+        return range(0, limit);
+    }
+
+    /** Returns up to {@code limit} entries starting at zero-based position {@code offset}. */
+    public synchronized List<Map.Entry<UUID, Double>> range(int offset, int limit) {
+        List<Map.Entry<UUID, Double>> result = new ArrayList<>(Math.max(0, Math.min(limit, balances.size() - offset)));
+        if (offset < 0 || offset >= balances.size() || limit <= 0) return result;
+
+        // Descend to the offset-th node, keeping the ancestors still to be visited in order
+        Deque<Node> stack = new ArrayDeque<>();
+        Node t = root;
+        int k = offset;
+        while (t != null) {
+            int leftSize = size(t.left);
+            if (k < leftSize) {
+                stack.push(t);
+                t = t.left;
+            } else if (k == leftSize) {
+                stack.push(t);
+                break;
+            } else {
+                k -= leftSize + 1;
+                t = t.right;
+            }
+        }
+
+        Node node = null;
+        while ((node != null || !stack.isEmpty()) && result.size() < limit) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            result.add(new AbstractMap.SimpleImmutableEntry<>(node.uuid, node.balance));
+            node = node.right;
+        }
+        return result;
+    }
+
+    /** Returns the one-based position of an account, or 0 when it is not ranked. */
+    public synchronized int rank(UUID uuid) {
+        Double balance = balances.get(uuid);
+        if (balance == null) return 0;
+        int rank = 0;
+        Node t = root;
+        while (t != null) {
+            int c = compare(balance, uuid, t);
+            if (c < 0) {
+                t = t.left;
+            } else if (c > 0) {
+                rank += size(t.left) + 1;
+                t = t.right;
+            } else {
+                return rank + size(t.left) + 1;
+            }
+        }
+        return 0;
+    }
+
+    // ─── Treap internals ─────────────────────────────────────────────────────
+
+    private void put(UUID uuid, double balance) {
+        Double previous = balances.put(uuid, balance);
+        if (previous != null) {
+            root = erase(root, previous, uuid);
+        }
+        root = insert(root, new Node(uuid, balance));
+    }
+
+    /** Negative when (balance, uuid) sorts before the node: higher balances first. */
+    private static int compare(double balance, UUID uuid, Node node) {
+        int c = Double.compare(node.balance, balance);
+        return c != 0 ? c : uuid.compareTo(node.uuid);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void recalc(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static Node insert(Node t, Node n) {
+        if (t == null) return n;
+        if (n.priority > t.priority) {
+            Node[] parts = split(t, n.balance, n.uuid);
+            n.left = parts[0];
+            n.right = parts[1];
+            recalc(n);
+            return n;
+        }
+        if (compare(n.balance, n.uuid, t) < 0) {
+            t.left = insert(t.left, n);
+        } else {
+            t.right = insert(t.right, n);
+        }
+        recalc(t);
+        return t;
+    }
+
+    private static Node erase(Node t, double balance, UUID uuid) {
+        if (t == null) return null;
+        int c = compare(balance, uuid, t);
+        if (c == 0) return merge(t.left, t.right);
+        if (c < 0) {
+            t.left = erase(t.left, balance, uuid);
+        } else {
+            t.right = erase(t.right, balance, uuid);
+        }
+        recalc(t);
+        return t;
+    }
+
+    /** Splits into nodes sorting before the key and nodes sorting at or after it. */
+    private static Node[] split(Node t, double balance, UUID uuid) {
+        if (t == null) return new Node[] { null, null };
+        if (compare(balance, uuid, t) > 0) {
+            Node[] parts = split(t.right, balance, uuid);
+            t.right = parts[0];
+            recalc(t);
+            return new Node[] { t, parts[1] };
+        }
+        Node[] parts = split(t.left, balance, uuid);
+        t.left = parts[1];
+        recalc(t);
+        return new Node[] { parts[0], t };
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            recalc(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        recalc(b);
+        return b;
+    }
+}
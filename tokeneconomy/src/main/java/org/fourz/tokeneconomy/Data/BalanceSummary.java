@@ -0,0 +1,35 @@
+package org.fourz.tokeneconomy.Data;
+
+/** Row count and balance total of a set of accounts, used to verify copies. */
+public final class BalanceSummary {
+
+    private final long count;
+    private final double sum;
+
+    public BalanceSummary(long count, double sum) {
+        this.count = count;
+        this.sum = sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Same count, and sums equal up to floating-point noise: stores may add the same
+     * balances in a different order.
+     */
+    public boolean matches(BalanceSummary other) {
+        double tolerance = 1e-9 * Math.max(1.0, Math.abs(sum)) + 1e-6 * count;
+        return count == other.count && Math.abs(sum - other.sum) <= tolerance;
+    }
+
+    @Override
+    public String toString() {
+        return count + " rows, sum " + sum;
+    }
+}
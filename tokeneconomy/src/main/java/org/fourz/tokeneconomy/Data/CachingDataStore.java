@@ -0,0 +1,673 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Balance cache in front of a JDBC-backed DataStore.
+ *
+ * <p>In write-behind mode reads are served from memory after the first load of an
+ * account. Balance changes are applied in memory with the same rules as the SQL path
+ * (existing accounts never go below zero, missing accounts are only created by
+ * non-negative deltas) and the touched accounts are flushed to the delegate in batched
+ * transactions on a background thread. Only safe when this server is the sole writer to
+ * the economy table: flushed rows carry absolute balances and overwrite the database.
+ *
+ * <p>Independently of write-behind, accounts can be made resident with
+ * {@link #preload(UUID)} (online players). Resident accounts are always answered from
+ * memory and are never evicted until {@link #release(UUID)}. With write-behind off, only
+ * resident accounts are cached and their changes are written through immediately.
+ */
+public class CachingDataStore implements DataStore {
+
+    private static final class CachedAccount {
+        boolean exists;
+        double balance;
+        long dirtySince;
+        boolean evicted;
+
+        CachedAccount(boolean exists, double balance) {
+            this.exists = exists;
+            this.balance = balance;
+        }
+    }
+
+    private final DataStore delegate;
+    private final Logger logger;
+    private final boolean writeBehind;
+    private final long flushIntervalMillis;
+    private final int batchSize;
+    private final int maxEntries;
+    private final Map<UUID, CachedAccount> accounts = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Integer> pins = new ConcurrentHashMap<>();
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    private final LongAdder onlineLookups = new LongAdder();
+    private final LongAdder onlineHits = new LongAdder();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    private volatile long lastFlushAt;
+    private volatile long lastFlushDurationMillis;
+    private volatile int lastFlushCount;
+    private volatile long failedFlushes;
+
+    public CachingDataStore(DataStore delegate, Logger logger, boolean writeBehind,
+                            long flushIntervalMillis, int batchSize, int maxEntries) {
+        this.delegate = delegate;
+        this.logger = logger;
+        this.writeBehind = writeBehind;
+        this.flushIntervalMillis = Math.max(50L, flushIntervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    @Override
+    public void setupDatabase() {
+        delegate.setupDatabase();
+        if (!writeBehind) {
+            logger.info("Online account cache enabled (write-through).");
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TokenEconomy-CacheFlush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Write-behind balance cache enabled (flush every " + flushIntervalMillis + "ms, batch " + batchSize + ").");
+    }
+
+    @Override
+    public void saveDatabase() {
+        flush();
+        delegate.saveDatabase();
+    }
+
+    @Override
+    public void closeDatabase() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (!dirty.isEmpty()) {
+            logger.severe("Write-behind cache closed with " + dirty.size() + " unflushed accounts.");
+        }
+        delegate.closeDatabase();
+    }
+
+    @Override
+    public double getPlayerBalanceByUUID(UUID playerUUID) {
+        CachedAccount resident = lookup(playerUUID);
+        if (resident == null && !writeBehind) {
+            return delegate.getPlayerBalanceByUUID(playerUUID);
+        }
+        try {
+            CachedAccount account = resident != null ? resident : load(playerUUID);
+            synchronized (account) {
+                if (account.evicted) return delegate.getPlayerBalanceByUUID(playerUUID);
+                return account.exists ? account.balance : 0.0;
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Failed to load player balance into cache: " + e.getMessage());
+            return 0.0;
+        }
+    }
+
+    @Override
+    public Optional<Double> findPlayerBalanceByUUID(UUID playerUUID) {
+        CachedAccount resident = lookup(playerUUID);
+        if (resident == null && !writeBehind) {
+            return delegate.findPlayerBalanceByUUID(playerUUID);
+        }
+        CachedAccount account = resident != null ? resident : load(playerUUID);
+        synchronized (account) {
+            if (account.evicted) return delegate.findPlayerBalanceByUUID(playerUUID);
+            return account.exists ? Optional.of(account.balance) : Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean changePlayerBalance(UUID playerUUID, double amount) {
+        return changePlayerBalanceAndGet(playerUUID, amount).isSuccess();
+    }
+
+    @Override
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount) {
+        if (!writeBehind) {
+            CachedAccount resident = accounts.get(playerUUID);
+            if (resident == null) {
+                return delegate.changePlayerBalanceAndGet(playerUUID, amount);
+            }
+            synchronized (resident) {
+                BalanceChange change = delegate.changePlayerBalanceAndGet(playerUUID, amount);
+                if (change.isSuccess() && !resident.evicted) {
+                    resident.balance = change.getBalance();
+                    resident.exists = true;
+                }
+                return change;
+            }
+        }
+        while (true) {
+            CachedAccount account;
+            try {
+                account = load(playerUUID);
+            } catch (RuntimeException e) {
+                logger.warning("Failed to load player balance into cache: " + e.getMessage());
+                return BalanceChange.failed();
+            }
+            synchronized (account) {
+                if (account.evicted) continue;
+                if (account.exists) {
+                    double updated = format().add(account.balance, amount);
+                    if (updated < 0) return BalanceChange.rejected(account.balance);
+                    account.balance = updated;
+                } else {
+                    if (amount < 0) return BalanceChange.rejected(0.0);
+                    account.exists = true;
+                    account.balance = amount;
+                }
+                markDirty(playerUUID, account);
+                return BalanceChange.applied(account.balance);
+            }
+        }
+    }
+
+    @Override
+    public Map<UUID, BalanceChange> changeBalances(Map<UUID, Double> changes) {
+        if (writeBehind) {
+            // Memory-only until the next flush, which batches the dirty accounts anyway
+            Map<UUID, BalanceChange> results = new LinkedHashMap<>();
+            changes.forEach((uuid, amount) -> results.put(uuid, changePlayerBalanceAndGet(uuid, amount)));
+            return results;
+        }
+        Map<UUID, BalanceChange> results = delegate.changeBalances(changes);
+        results.forEach((uuid, change) -> {
+            CachedAccount resident = accounts.get(uuid);
+            if (!change.isSuccess() || resident == null) return;
+            // DataConnector holds every account's lock across the batch, so no other change of
+            // these accounts can land between the batch and this update
+            synchronized (resident) {
+                if (!resident.evicted) {
+                    resident.exists = true;
+                    resident.balance = change.getBalance();
+                }
+            }
+        });
+        return results;
+    }
+
+    @Override
+    public TransferResult transfer(UUID from, UUID to, double amount) {
+        if (amount <= 0 || from.equals(to)) return TransferResult.rejected();
+        // Lock both accounts in UUID order so opposite transfers cannot deadlock
+        boolean fromFirst = from.compareTo(to) < 0;
+        if (!writeBehind) {
+            CachedAccount residentFrom = accounts.get(from);
+            CachedAccount residentTo = accounts.get(to);
+            if (residentFrom == null && residentTo == null) {
+                return delegate.transfer(from, to, amount);
+            }
+            Object first = lockFor(fromFirst ? residentFrom : residentTo);
+            Object second = lockFor(fromFirst ? residentTo : residentFrom);
+            synchronized (first) {
+                synchronized (second) {
+                    TransferResult result = delegate.transfer(from, to, amount);
+                    if (!result.isSuccess()) return result;
+                    if (residentFrom != null && !residentFrom.evicted) {
+                        residentFrom.balance = result.getFromBalance();
+                    }
+                    if (residentTo != null && !residentTo.evicted) {
+                        residentTo.balance = result.getToBalance();
+                        residentTo.exists = true;
+                    }
+                    return result;
+                }
+            }
+        }
+        while (true) {
+            CachedAccount source;
+            CachedAccount target;
+            try {
+                source = load(from);
+                target = load(to);
+            } catch (RuntimeException e) {
+                logger.warning("Failed to load accounts for transfer into cache: " + e.getMessage());
+                return TransferResult.failed();
+            }
+            synchronized (fromFirst ? source : target) {
+                synchronized (fromFirst ? target : source) {
+                    if (source.evicted || target.evicted) continue;
+                    if (!source.exists) return TransferResult.rejected();
+                    double remaining = format().add(source.balance, -amount);
+                    if (remaining < 0) return TransferResult.rejected();
+                    source.balance = remaining;
+                    target.balance = target.exists ? format().add(target.balance, amount) : amount;
+                    target.exists = true;
+                    markDirty(from, source);
+                    markDirty(to, target);
+                    return TransferResult.applied(source.balance, target.balance);
+                }
+            }
+        }
+    }
+
+    /** In-memory arithmetic follows the delegate's layout, which is final once it is set up. */
+    private BalanceFormat format() {
+        return delegate.getBalanceFormat();
+    }
+
+    /** Monitor for an optional resident account; absent accounts share a private no-op lock. */
+    private Object lockFor(CachedAccount account) {
+        return account != null ? account : new Object();
+    }
+
+    @Override
+    public void setPlayerBalance(UUID playerUUID, double balance) {
+        if (!writeBehind) {
+            CachedAccount resident = accounts.get(playerUUID);
+            if (resident == null) {
+                delegate.setPlayerBalance(playerUUID, balance);
+                return;
+            }
+            synchronized (resident) {
+                delegate.setPlayerBalance(playerUUID, balance);
+                resident.exists = true;
+                resident.balance = balance;
+                return;
+            }
+        }
+        while (true) {
+            CachedAccount account = accounts.computeIfAbsent(playerUUID, k -> new CachedAccount(false, 0.0));
+            synchronized (account) {
+                if (account.evicted) continue;
+                account.exists = true;
+                account.balance = balance;
+                markDirty(playerUUID, account);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void setPlayerBalances(Map<UUID, Double> balances) {
+        if (writeBehind) {
+            balances.forEach(this::setPlayerBalance);
+            return;
+        }
+        delegate.setPlayerBalances(balances);
+        balances.forEach((uuid, balance) -> {
+            CachedAccount resident = accounts.get(uuid);
+            if (resident == null) return;
+            synchronized (resident) {
+                resident.exists = true;
+                resident.balance = balance;
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Double> getTopBalances(int limit) {
+        flush();
+        return delegate.getTopBalances(limit);
+    }
+
+    @Override
+    public Map<String, Double> getAllPlayerBalances() {
+        flush();
+        return delegate.getAllPlayerBalances();
+    }
+
+    @Override
+    public long forEachBalance(int fetchSize, BiConsumer<UUID, Double> action) {
+        flush();
+        return delegate.forEachBalance(fetchSize, action);
+    }
+
+    @Override
+    public long forEachBalanceInRange(UUID from, UUID to, int fetchSize, BiConsumer<UUID, Double> action) {
+        flush();
+        return delegate.forEachBalanceInRange(from, to, fetchSize, action);
+    }
+
+    @Override
+    public BalanceSummary summarizeBalances(UUID from, UUID to) {
+        flush();
+        return delegate.summarizeBalances(from, to);
+    }
+
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uuids) {
+        return delegate.getPlayerNames(uuids);
+    }
+
+    @Override
+    public Map<UUID, String> loadPlayerNames(int limit) {
+        return delegate.loadPlayerNames(limit);
+    }
+
+    @Override
+    public void savePlayerNames(Map<UUID, String> names) {
+        delegate.savePlayerNames(names);
+    }
+
+    @Override
+    public boolean isConnected() throws SQLException {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public boolean playerExistsByUUID(UUID uuid) {
+        CachedAccount resident = lookup(uuid);
+        if (resident == null && !writeBehind) {
+            return delegate.playerExistsByUUID(uuid);
+        }
+        try {
+            CachedAccount account = resident != null ? resident : load(uuid);
+            synchronized (account) {
+                if (account.evicted) return delegate.playerExistsByUUID(uuid);
+                return account.exists;
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Failed to check player existence through cache: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Raw connections bypass the cache; callers writing through them should flush first. */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return delegate.getConnection();
+    }
+
+    @Override
+    public String getTablePrefix() {
+        return delegate.getTablePrefix();
+    }
+
+    @Override
+    public BalanceFormat getBalanceFormat() {
+        return delegate.getBalanceFormat();
+    }
+
+    @Override
+    public UuidFormat getUuidFormat() {
+        return delegate.getUuidFormat();
+    }
+
+    public DataStore getDelegate() {
+        return delegate;
+    }
+
+    // ─── Resident working set ────────────────────────────────────────────────
+
+    /**
+     * Loads an account into memory and pins it until a matching {@link #release(UUID)}.
+     * Performs JDBC I/O — call from an async thread.
+     */
+    public void preload(UUID playerUUID) {
+        pins.merge(playerUUID, 1, Integer::sum);
+        try {
+            load(playerUUID);
+        } catch (RuntimeException e) {
+            logger.warning("Failed to preload account " + playerUUID + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops one pin on an account. When the last pin goes, pending changes are written
+     * and the account leaves the cache. Performs JDBC I/O — call from an async thread.
+     *
+     * <p>Holds {@code flushLock} across the write: a flush that already took this
+     * account's balance writes it after clearing the dirty mark, and would otherwise
+     * land after (and over) the newer balance written here.
+     */
+    public void release(UUID playerUUID) {
+        Integer remaining = pins.computeIfPresent(playerUUID, (uuid, count) -> count > 1 ? count - 1 : null);
+        if (remaining != null) return;
+        CachedAccount account = accounts.get(playerUUID);
+        if (account == null) return;
+        synchronized (flushLock) {
+            releaseEntry(playerUUID, account);
+        }
+    }
+
+    private void releaseEntry(UUID playerUUID, CachedAccount account) {
+        synchronized (account) {
+            if (account.dirtySince != 0) {
+                dirty.remove(playerUUID);
+                long since = account.dirtySince;
+                account.dirtySince = 0;
+                try {
+                    delegate.setPlayerBalance(playerUUID, account.balance);
+                } catch (RuntimeException e) {
+                    account.dirtySince = since;
+                    dirty.add(playerUUID);
+                    logger.warning("Failed to persist account " + playerUUID + " on release, left for the flusher: " + e.getMessage());
+                    return;
+                }
+            }
+            if (pins.containsKey(playerUUID)) return;
+            account.evicted = true;
+            accounts.remove(playerUUID, account);
+        }
+    }
+
+    /** Tracks which accounts belong to online players for the hit-ratio counters. */
+    public void setOnline(UUID playerUUID, boolean isOnline) {
+        if (isOnline) {
+            online.add(playerUUID);
+        } else {
+            online.remove(playerUUID);
+        }
+    }
+
+    public boolean isResident(UUID playerUUID) {
+        return pins.containsKey(playerUUID) && accounts.containsKey(playerUUID);
+    }
+
+    /** Returns the cached entry if present, counting online-player hits and misses. */
+    private CachedAccount lookup(UUID playerUUID) {
+        CachedAccount account = accounts.get(playerUUID);
+        if (online.contains(playerUUID)) {
+            onlineLookups.increment();
+            if (account != null) onlineHits.increment();
+        }
+        return account;
+    }
+
+    /** Writes every dirty account to the delegate. Safe to call from any thread. */
+    public void flush() {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) return;
+            long start = System.currentTimeMillis();
+            Map<UUID, Double> batch = new LinkedHashMap<>();
+            List<Long> dirtySince = new ArrayList<>();
+            int flushed = 0;
+            Iterator<UUID> it = dirty.iterator();
+            while (it.hasNext()) {
+                UUID uuid = it.next();
+                CachedAccount account = accounts.get(uuid);
+                if (account == null) {
+                    it.remove();
+                    continue;
+                }
+                synchronized (account) {
+                    it.remove();
+                    batch.put(uuid, account.balance);
+                    dirtySince.add(account.dirtySince);
+                    account.dirtySince = 0;
+                }
+                if (batch.size() >= batchSize) {
+                    flushed += writeBatch(batch, dirtySince);
+                    batch = new LinkedHashMap<>();
+                    dirtySince = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                flushed += writeBatch(batch, dirtySince);
+            }
+            lastFlushAt = System.currentTimeMillis();
+            lastFlushDurationMillis = lastFlushAt - start;
+            lastFlushCount = flushed;
+            evictOverflow();
+        }
+    }
+
+    private int writeBatch(Map<UUID, Double> batch, List<Long> dirtySince) {
+        try {
+            delegate.setPlayerBalances(batch);
+            return batch.size();
+        } catch (RuntimeException e) {
+            failedFlushes++;
+            logger.warning("Write-behind flush of " + batch.size() + " accounts failed, will retry: " + e.getMessage());
+            int i = 0;
+            for (UUID uuid : batch.keySet()) {
+                CachedAccount account = accounts.get(uuid);
+                long since = dirtySince.get(i++);
+                if (account == null) continue;
+                synchronized (account) {
+                    if (account.dirtySince == 0 || since < account.dirtySince) {
+                        account.dirtySince = since;
+                    }
+                    dirty.add(uuid);
+                }
+            }
+            return 0;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warning("Write-behind flush failed: " + e.getMessage());
+        }
+    }
+
+    private void evictOverflow() {
+        if (accounts.size() <= maxEntries) return;
+        Iterator<Map.Entry<UUID, CachedAccount>> it = accounts.entrySet().iterator();
+        while (accounts.size() > maxEntries && it.hasNext()) {
+            Map.Entry<UUID, CachedAccount> entry = it.next();
+            CachedAccount account = entry.getValue();
+            if (pins.containsKey(entry.getKey())) continue;
+            synchronized (account) {
+                if (account.dirtySince != 0) continue;
+                account.evicted = true;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the account's entry, reading it from the delegate if absent. The query runs
+     * outside the map, so it never holds a map bin (and the unrelated keys hashed to it)
+     * for a database round trip. The entry is published first and filled under its own
+     * monitor, so concurrent users wait on it; a failed load leaves it evicted.
+     */
+    private CachedAccount load(UUID playerUUID) {
+        CachedAccount existing = accounts.get(playerUUID);
+        if (existing != null) return existing;
+        CachedAccount loading = new CachedAccount(false, 0.0);
+        synchronized (loading) {
+            existing = accounts.putIfAbsent(playerUUID, loading);
+            if (existing != null) return existing;
+            try {
+                Optional<Double> stored = delegate.findPlayerBalanceByUUID(playerUUID);
+                loading.exists = stored.isPresent();
+                loading.balance = stored.orElse(0.0);
+            } catch (RuntimeException e) {
+                loading.evicted = true;
+                accounts.remove(playerUUID, loading);
+                throw e;
+            }
+        }
+        return loading;
+    }
+
+    private void markDirty(UUID playerUUID, CachedAccount account) {
+        if (account.dirtySince == 0) {
+            account.dirtySince = System.currentTimeMillis();
+        }
+        dirty.add(playerUUID);
+    }
+
+    // ─── Diagnostics ─────────────────────────────────────────────────────────
+
+    public int getQueueDepth() {
+        return dirty.size();
+    }
+
+    public int getCachedAccountCount() {
+        return accounts.size();
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public int getResidentCount() {
+        return pins.size();
+    }
+
+    public long getOnlineLookups() {
+        return onlineLookups.sum();
+    }
+
+    /** Fraction of online-player lookups answered from memory, or -1 before any lookup. */
+    public double getOnlineHitRatio() {
+        long lookups = onlineLookups.sum();
+        return lookups == 0 ? -1 : (double) onlineHits.sum() / lookups;
+    }
+
+    /** Age of the oldest change that has not reached the database yet, or 0 when clean. */
+    public long getFlushLagMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (UUID uuid : dirty) {
+            CachedAccount account = accounts.get(uuid);
+            if (account == null) continue;
+            synchronized (account) {
+                if (account.dirtySince != 0 && account.dirtySince < oldest) oldest = account.dirtySince;
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    public long getLastFlushAt() {
+        return lastFlushAt;
+    }
+
+    public long getLastFlushDurationMillis() {
+        return lastFlushDurationMillis;
+    }
+
+    public int getLastFlushCount() {
+        return lastFlushCount;
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes;
+    }
+}
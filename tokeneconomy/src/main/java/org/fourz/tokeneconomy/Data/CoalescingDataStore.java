@@ -0,0 +1,459 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces positive balance deltas per account before they reach the database.
+ *
+ * <p>Credits can never be refused by the balance rules, so they are accepted in memory and
+ * summed per UUID; every window the flusher writes each account's sum as one statement.
+ * Anything that can fail or depends on ordering (debits, sets, transfers, bulk changes)
+ * first drains that account's pending credits under the same per-account lock, so debits
+ * are checked against the full balance in the order they were issued. Reads add the
+ * pending sum to the stored balance.
+ *
+ * <p>The balance reported for a coalesced credit is the last balance the database
+ * returned for this account plus the credits queued since. The first credit to an account
+ * is written through to learn that balance.
+ */
+public class CoalescingDataStore implements DataStore {
+
+    private static final long IDLE_EVICT_MILLIS = 60_000L;
+
+    private static final class PendingCredit {
+        double amount;
+        int count;
+        Double knownBalance;
+        long touchedAt;
+        boolean evicted;
+    }
+
+    private final DataStore delegate;
+    private final Logger logger;
+    private final long windowMillis;
+    private final Map<UUID, PendingCredit> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder creditsAccepted = new LongAdder();
+    private final LongAdder creditStatements = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile int lastWindowCredits;
+    private volatile int lastWindowStatements;
+
+    public CoalescingDataStore(DataStore delegate, Logger logger, long windowMillis) {
+        this.delegate = delegate;
+        this.logger = logger;
+        this.windowMillis = Math.max(1L, windowMillis);
+    }
+
+    @Override
+    public void setupDatabase() {
+        delegate.setupDatabase();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TokenEconomy-CreditCoalescer");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        logger.info("Credit coalescing enabled (window " + windowMillis + "ms).");
+    }
+
+    @Override
+    public void saveDatabase() {
+        flush();
+        delegate.saveDatabase();
+    }
+
+    @Override
+    public void closeDatabase() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (getPendingAccountCount() > 0) {
+            logger.severe("Credit coalescer closed with " + getPendingAccountCount() + " accounts still pending.");
+        }
+        delegate.closeDatabase();
+    }
+
+    // ─── Balance reads ───────────────────────────────────────────────────────
+
+    @Override
+    public double getPlayerBalanceByUUID(UUID playerUUID) {
+        PendingCredit p = pending.get(playerUUID);
+        if (p == null) return delegate.getPlayerBalanceByUUID(playerUUID);
+        synchronized (p) {
+            return getBalanceFormat().add(delegate.getPlayerBalanceByUUID(playerUUID), p.amount);
+        }
+    }
+
+    @Override
+    public Optional<Double> findPlayerBalanceByUUID(UUID playerUUID) {
+        PendingCredit p = pending.get(playerUUID);
+        if (p == null) return delegate.findPlayerBalanceByUUID(playerUUID);
+        synchronized (p) {
+            Optional<Double> stored = delegate.findPlayerBalanceByUUID(playerUUID);
+            if (p.amount <= 0) return stored;
+            return Optional.of(getBalanceFormat().add(stored.orElse(0.0), p.amount));
+        }
+    }
+
+    @Override
+    public boolean playerExistsByUUID(UUID uuid) {
+        PendingCredit p = pending.get(uuid);
+        if (p == null) return delegate.playerExistsByUUID(uuid);
+        synchronized (p) {
+            return p.amount > 0 || delegate.playerExistsByUUID(uuid);
+        }
+    }
+
+    // ─── Balance writes ──────────────────────────────────────────────────────
+
+    @Override
+    public boolean changePlayerBalance(UUID playerUUID, double amount) {
+        if (amount <= 0) {
+            return changePlayerBalanceAndGet(playerUUID, amount).isSuccess();
+        }
+        // No balance to report, so the credit is always queued
+        while (true) {
+            PendingCredit p = pending.computeIfAbsent(playerUUID, k -> new PendingCredit());
+            synchronized (p) {
+                if (p.evicted) continue;
+                queue(p, amount);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount) {
+        while (true) {
+            PendingCredit p = amount > 0
+                ? pending.computeIfAbsent(playerUUID, k -> new PendingCredit())
+                : pending.get(playerUUID);
+            if (p == null) return delegate.changePlayerBalanceAndGet(playerUUID, amount);
+            synchronized (p) {
+                if (p.evicted) continue;
+                if (amount > 0 && p.knownBalance != null) {
+                    queue(p, amount);
+                    return BalanceChange.applied(getBalanceFormat().add(p.knownBalance, p.amount));
+                }
+                if (amount > 0) {
+                    // First credit since this account was seen: write it together with anything
+                    // queued, which also tells us the balance to report for later credits
+                    BalanceChange change = delegate.changePlayerBalanceAndGet(playerUUID, getBalanceFormat().add(p.amount, amount));
+                    creditStatements.increment();
+                    if (change.isSuccess()) {
+                        creditsAccepted.increment();
+                        p.amount = 0;
+                        p.count = 0;
+                        p.knownBalance = change.getBalance();
+                        p.touchedAt = System.currentTimeMillis();
+                    } else {
+                        failedWrites.increment();
+                    }
+                    return change;
+                }
+                BalanceChange drained = drainLocked(playerUUID, p);
+                if (drained.isError()) return drained;
+                BalanceChange change = delegate.changePlayerBalanceAndGet(playerUUID, amount);
+                if (!change.isError()) p.knownBalance = change.getBalance();
+                return change;
+            }
+        }
+    }
+
+    @Override
+    public void setPlayerBalance(UUID playerUUID, double balance) {
+        PendingCredit p = pending.get(playerUUID);
+        if (p == null) {
+            delegate.setPlayerBalance(playerUUID, balance);
+            return;
+        }
+        synchronized (p) {
+            // Credits queued before an absolute set are overwritten by it anyway
+            delegate.setPlayerBalance(playerUUID, balance);
+            p.amount = 0;
+            p.count = 0;
+            p.knownBalance = balance;
+        }
+    }
+
+    @Override
+    public void setPlayerBalances(Map<UUID, Double> balances) {
+        drain(balances.keySet());
+        delegate.setPlayerBalances(balances);
+        invalidate(balances.keySet());
+    }
+
+    @Override
+    public Map<UUID, BalanceChange> changeBalances(Map<UUID, Double> changes) {
+        drain(changes.keySet());
+        Map<UUID, BalanceChange> results = delegate.changeBalances(changes);
+        invalidate(changes.keySet());
+        return results;
+    }
+
+    @Override
+    public TransferResult transfer(UUID from, UUID to, double amount) {
+        if (amount <= 0 || from.equals(to)) return TransferResult.rejected();
+        // Same ordering rule as every other pair lock: lower UUID first
+        boolean fromFirst = from.compareTo(to) < 0;
+        PendingCredit source = pending.get(from);
+        PendingCredit target = pending.get(to);
+        synchronized (lockFor(fromFirst ? source : target)) {
+            synchronized (lockFor(fromFirst ? target : source)) {
+                if (drainLocked(from, source).isError()) return TransferResult.failed();
+                if (drainLocked(to, target).isError()) return TransferResult.failed();
+                TransferResult result = delegate.transfer(from, to, amount);
+                if (result.isSuccess()) {
+                    forget(source);
+                    forget(target);
+                }
+                return result;
+            }
+        }
+    }
+
+    // ─── Bulk reads ──────────────────────────────────────────────────────────
+
+    @Override
+    public Map<String, Double> getTopBalances(int limit) {
+        flush();
+        return delegate.getTopBalances(limit);
+    }
+
+    @Override
+    public Map<String, Double> getAllPlayerBalances() {
+        flush();
+        return delegate.getAllPlayerBalances();
+    }
+
+    @Override
+    public long forEachBalance(int fetchSize, BiConsumer<UUID, Double> action) {
+        flush();
+        return delegate.forEachBalance(fetchSize, action);
+    }
+
+    @Override
+    public long forEachBalanceInRange(UUID from, UUID to, int fetchSize, BiConsumer<UUID, Double> action) {
+        flush();
+        return delegate.forEachBalanceInRange(from, to, fetchSize, action);
+    }
+
+    @Override
+    public BalanceSummary summarizeBalances(UUID from, UUID to) {
+        flush();
+        return delegate.summarizeBalances(from, to);
+    }
+
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uuids) {
+        return delegate.getPlayerNames(uuids);
+    }
+
+    @Override
+    public Map<UUID, String> loadPlayerNames(int limit) {
+        return delegate.loadPlayerNames(limit);
+    }
+
+    @Override
+    public void savePlayerNames(Map<UUID, String> names) {
+        delegate.savePlayerNames(names);
+    }
+
+    @Override
+    public boolean isConnected() throws SQLException {
+        return delegate.isConnected();
+    }
+
+    /** Raw connections bypass the coalescer; callers writing through them should flush first. */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return delegate.getConnection();
+    }
+
+    @Override
+    public String getTablePrefix() {
+        return delegate.getTablePrefix();
+    }
+
+    @Override
+    public BalanceFormat getBalanceFormat() {
+        return delegate.getBalanceFormat();
+    }
+
+    @Override
+    public UuidFormat getUuidFormat() {
+        return delegate.getUuidFormat();
+    }
+
+    public DataStore getDelegate() {
+        return delegate;
+    }
+
+    // ─── Flushing ────────────────────────────────────────────────────────────
+
+    /** Writes every account's queued credits, one statement per account. */
+    public void flush() {
+        synchronized (flushLock) {
+            int credits = 0;
+            int statements = 0;
+            long now = System.currentTimeMillis();
+            for (Map.Entry<UUID, PendingCredit> entry : pending.entrySet()) {
+                PendingCredit p = entry.getValue();
+                synchronized (p) {
+                    if (p.evicted) continue;
+                    if (p.amount > 0) {
+                        int count = p.count;
+                        if (!drainLocked(entry.getKey(), p).isError()) {
+                            credits += count;
+                            statements++;
+                        }
+                    } else if (now - p.touchedAt > IDLE_EVICT_MILLIS) {
+                        p.evicted = true;
+                        pending.remove(entry.getKey(), p);
+                    }
+                }
+            }
+            if (statements > 0) {
+                lastWindowCredits = credits;
+                lastWindowStatements = statements;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warning("Credit coalescer flush failed: " + e.getMessage());
+        }
+    }
+
+    private void queue(PendingCredit p, double amount) {
+        p.amount = getBalanceFormat().add(p.amount, amount);
+        p.count++;
+        p.touchedAt = System.currentTimeMillis();
+        creditsAccepted.increment();
+    }
+
+    /**
+     * Writes an account's queued credits as one statement. Caller holds the account lock.
+     * Returns the applied change, a successful no-op when nothing was queued, or the error.
+     */
+    private BalanceChange drainLocked(UUID playerUUID, PendingCredit p) {
+        if (p == null || p.amount <= 0) {
+            return BalanceChange.applied(p != null && p.knownBalance != null ? p.knownBalance : 0.0);
+        }
+        BalanceChange change = delegate.changePlayerBalanceAndGet(playerUUID, p.amount);
+        creditStatements.increment();
+        if (!change.isSuccess()) {
+            failedWrites.increment();
+            logger.warning("Failed to write " + p.count + " coalesced credits for " + playerUUID + "; keeping them queued.");
+            return BalanceChange.failed();
+        }
+        p.amount = 0;
+        p.count = 0;
+        p.knownBalance = change.getBalance();
+        return change;
+    }
+
+    /** Monitor for an optional entry; accounts with nothing queued share a private no-op lock. */
+    private Object lockFor(PendingCredit p) {
+        return p != null ? p : new Object();
+    }
+
+    private void forget(PendingCredit p) {
+        if (p != null) p.knownBalance = null;
+    }
+
+    /**
+     * Writes the queued credits of just these accounts. Bulk writes run under their own
+     * account locks, so they must not reach into other accounts the way flush() does.
+     */
+    private void drain(Collection<UUID> uuids) {
+        for (UUID uuid : uuids) {
+            PendingCredit p = pending.get(uuid);
+            if (p == null) continue;
+            synchronized (p) {
+                drainLocked(uuid, p);
+            }
+        }
+    }
+
+    private void invalidate(Collection<UUID> uuids) {
+        for (UUID uuid : uuids) {
+            PendingCredit p = pending.get(uuid);
+            if (p == null) continue;
+            synchronized (p) {
+                p.knownBalance = null;
+            }
+        }
+    }
+
+    // ─── Diagnostics ─────────────────────────────────────────────────────────
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public int getPendingAccountCount() {
+        int count = 0;
+        for (PendingCredit p : pending.values()) {
+            if (p.amount > 0) count++;
+        }
+        return count;
+    }
+
+    public long getCreditsAccepted() {
+        return creditsAccepted.sum();
+    }
+
+    public long getCreditStatements() {
+        return creditStatements.sum();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    /** Credits accepted per statement written; -1 before the first write. */
+    public double getCoalescingRatio() {
+        long statements = creditStatements.sum();
+        return statements == 0 ? -1 : (double) creditsAccepted.sum() / statements;
+    }
+
+    /** Average credits accepted per second since startup. */
+    public double getCreditsPerSecond() {
+        long elapsed = Math.max(1L, System.currentTimeMillis() - startedAt);
+        return creditsAccepted.sum() * 1000.0 / elapsed;
+    }
+
+    public int getLastWindowCredits() {
+        return lastWindowCredits;
+    }
+
+    public int getLastWindowStatements() {
+        return lastWindowStatements;
+    }
+}
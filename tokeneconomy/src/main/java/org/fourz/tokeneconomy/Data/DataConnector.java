@@ -1,31 +1,200 @@
 package org.fourz.tokeneconomy.Data;
 
+import org.bukkit.OfflinePlayer;
 import org.bukkit.plugin.Plugin;
 import org.fourz.tokeneconomy.ConfigLoader;
 import org.fourz.tokeneconomy.TokenEconomy;
 
+import java.io.File;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 public class DataConnector {
 
+    // Async threads when the pool size is not ours to read (shared pool) or there is none (journal)
+    private static final int DEFAULT_ASYNC_THREADS = 4;
+
+    private final Plugin plugin;
     private final Logger logger;
     private DataStore dataStore;
+    private final DataStoreMigrationService migrationService;
+    private final DataStoreFactory storeFactory;
+    private final BalanceLeaderboard leaderboard;
+    private final int leaderboardFetchSize;
+    // Periodic reloads pick up writes from other servers; the refresher is null when off
+    private final long leaderboardRefreshMillis;
+    private ScheduledExecutorService leaderboardRefresher;
+    private final PlayerNameCache nameCache;
+    private final int nameCacheSize;
+    private final Set<UUID> pendingNameLookups = ConcurrentHashMap.newKeySet();
+    private final ExecutorService nameLookupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TokenEconomy-NameLookup");
+        t.setDaemon(true);
+        return t;
+    });
+    // Platform threads, one per database connection by default: JDBC and the stores'
+    // synchronized sections would pin virtual threads, and a burst of calls then queues
+    // here instead of piling up as threads waiting on the pool
+    private final ExecutorService asyncExecutor;
+    private final Executor mainThreadExecutor;
+    // Balance operations issued to the store, one per API call; not SQL statements or round
+    // trips (a MySQL change is two: the write, then the read of the balance it left)
+    private final LongAdder balanceReads = new LongAdder();
+    private final LongAdder balanceWrites = new LongAdder();
+    // Serializes mutations per account within this server; the backends only guard single rows
+    private final AccountLocks accountLocks;
+    // Null when storage.ledger.enabled is off or the backend has no ledger table
+    private final TransactionLedger ledger;
+    // Null without a ledger or when storage.ledger.retentionDays is 0
+    private final LedgerCompactor ledgerCompactor;
+    // Set when economy.migrate_old_economy found a legacy database to merge after setup
+    private final LegacyDatabaseMigrator legacyMerge;
 
     public DataConnector(Plugin plugin) {
+        this.plugin = plugin;
         this.logger = plugin.getLogger();
+        this.mainThreadExecutor = task -> plugin.getServer().getScheduler().runTask(plugin, task);
         ConfigLoader configLoader = ((TokenEconomy) plugin).getConfigLoader();
         DataStoreFactory factory = new DataStoreFactory(plugin, configLoader);
-        DataStoreMigrationService migrationService = new DataStoreMigrationService(plugin, configLoader, factory);
+        this.storeFactory = factory;
+        this.migrationService = new DataStoreMigrationService(plugin, configLoader, factory);
 
         String storageType = migrationService.applyMigrations(configLoader.getStorageType());
-        this.dataStore = factory.create(storageType);
+        this.legacyMerge = "sqlite".equals(storageType) && configLoader.shouldMigrateOldEconomy()
+            ? prepareLegacyMigration(configLoader) : null;
+        this.dataStore = factory.createPrimary(storageType, migrationService.getLiveMigrationTarget());
+        AtomicInteger threadIds = new AtomicInteger();
+        this.asyncExecutor = Executors.newFixedThreadPool(asyncThreads(configLoader, storageType), r -> {
+            Thread t = new Thread(r, "TokenEconomy-Data-" + threadIds.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.leaderboard = configLoader.isLeaderboardEnabled() ? new BalanceLeaderboard() : null;
+        this.leaderboardFetchSize = Math.max(1, configLoader.getMigrationFetchSize());
+        this.leaderboardRefreshMillis = Math.max(0L, configLoader.getLeaderboardRefreshInterval()) * 1000L;
+        this.nameCacheSize = configLoader.getNameCacheMaxEntries();
+        this.nameCache = new PlayerNameCache(configLoader.getNameCacheTtl() * 1000L, nameCacheSize);
+        this.accountLocks = new AccountLocks(configLoader.getLockStripes());
+        LedgerStore ledgerStore = findLedgerStore();
+        if (configLoader.isLedgerEnabled() && ledgerStore == null) {
+            logger.info("Transaction ledger needs a SQL backend; disabled for journal storage.");
+            this.ledger = null;
+        } else if (configLoader.isLedgerEnabled()) {
+            this.ledger = new TransactionLedger(ledgerStore, logger,
+                configLoader.getLedgerQueueSize(),
+                configLoader.getLedgerBatchSize(),
+                configLoader.getLedgerFlushInterval());
+        } else {
+            this.ledger = null;
+        }
+        this.ledgerCompactor = ledger != null && configLoader.getLedgerRetentionDays() > 0
+            ? new LedgerCompactor(ledgerStore, logger,
+                configLoader.getLedgerRetentionDays(),
+                configLoader.getLedgerCompactionInterval(),
+                configLoader.getLedgerCompactionChunkSize(),
+                configLoader.getLedgerCompactionPause())
+            : null;
     }
 
     public void setupDatabase() {
         dataStore.setupDatabase();
+        if (ledger != null) {
+            ledger.start();
+        }
+        if (ledgerCompactor != null) {
+            ledgerCompactor.start();
+        }
+        if (legacyMerge != null) {
+            mergeLegacyDatabase();
+        }
+        nameCache.putAll(dataStore.loadPlayerNames(nameCacheSize));
+        rebuildLeaderboard();
+        if (leaderboard != null && leaderboardRefreshMillis > 0) {
+            leaderboardRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "TokenEconomy-LeaderboardRefresh");
+                t.setDaemon(true);
+                return t;
+            });
+            leaderboardRefresher.scheduleWithFixedDelay(() -> reloadLeaderboard(false), leaderboardRefreshMillis,
+                leaderboardRefreshMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** storage.async.threads, or the number of connections the store can use at once. */
+    private static int asyncThreads(ConfigLoader configLoader, String storageType) {
+        if (configLoader.getAsyncThreads() > 0) return configLoader.getAsyncThreads();
+        if ("shared".equalsIgnoreCase(configLoader.getDatabaseMode()) || "journal".equals(storageType)) {
+            return DEFAULT_ASYNC_THREADS;
+        }
+        if ("mysql".equals(storageType)) {
+            int size = configLoader.isMySQLPoolAdaptive() ? configLoader.getMySQLPoolMaxSize() : configLoader.getMySQLPoolSize();
+            if (configLoader.isMySQLReplicaEnabled()) size += configLoader.getMySQLReplicaPoolSize();
+            return Math.max(1, size);
+        }
+        return configLoader.isSQLiteWal() ? 1 + Math.max(1, configLoader.getSQLiteReaders()) : 1;
+    }
+
+    /** Moves the legacy file before the pool opens the database; returns the migrator if rows still need merging. */
+    private LegacyDatabaseMigrator prepareLegacyMigration(ConfigLoader configLoader) {
+        LegacyDatabaseMigrator migrator = new LegacyDatabaseMigrator(new File(plugin.getDataFolder(), "database.db"),
+            logger, LegacyDatabaseMigrator.MergePolicy.fromConfig(configLoader.getLegacyMergePolicy()));
+        return migrator.migrate() ? migrator : null;
+    }
+
+    private void mergeLegacyDatabase() {
+        SQLiteDataStore sqlite = findStoreLayer(SQLiteDataStore.class);
+        try {
+            legacyMerge.merge(sqlite);
+            // A second sum merge would double the legacy balances
+            plugin.getConfig().set("economy.migrate_old_economy", false);
+            plugin.saveConfig();
+        } catch (RuntimeException e) {
+            logger.warning("Legacy balances were not merged; the current database is unchanged.");
+        }
+    }
+
+    /**
+     * Reloads the in-process leaderboard from the store, streaming rows from the primary
+     * database. Called at startup, every storage.leaderboard.refreshInterval seconds, and
+     * after bulk writes that bypass this connector (seeding). Blocks for the whole scan, so
+     * callers other than startup run it off the main thread.
+     */
+    public void rebuildLeaderboard() {
+        reloadLeaderboard(true);
+    }
+
+    private void reloadLeaderboard(boolean announce) {
+        if (leaderboard == null) return;
+        long start = System.currentTimeMillis();
+        try {
+            leaderboard.reload(action -> dataStore.forEachBalance(leaderboardFetchSize, action));
+            if (announce) {
+                logger.info("Leaderboard seeded with " + leaderboard.size() + " accounts in "
+                    + (System.currentTimeMillis() - start) + "ms.");
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Failed to seed leaderboard, /top will query the database: " + e.getMessage());
+        }
     }
 
     public void saveDatabase() {
@@ -33,19 +202,213 @@ public class DataConnector {
     }
 
     public void closeDatabase() {
+        nameLookupExecutor.shutdownNow();
+        if (leaderboardRefresher != null) {
+            leaderboardRefresher.shutdownNow();
+        }
+        asyncExecutor.shutdown();
+        try {
+            if (!asyncExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Pending async storage calls did not finish before shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ledgerCompactor != null) {
+            ledgerCompactor.close();
+        }
+        if (ledger != null) {
+            ledger.close();
+        }
         dataStore.closeDatabase();
     }
 
     public double getPlayerBalanceByUUID(UUID playerUUID) {
+        balanceReads.increment();
         return dataStore.getPlayerBalanceByUUID(playerUUID);
     }
 
+    // Mutations take a ledger cause ("vault", "command.pay", a plugin's own label, ...);
+    // the overloads without one record TransactionLedger.CAUSE_PLUGIN.
+
     public boolean changePlayerBalance(UUID playerUUID, double amount) {
-        return dataStore.changePlayerBalance(playerUUID, amount);
+        return changePlayerBalance(playerUUID, amount, TransactionLedger.CAUSE_PLUGIN);
+    }
+
+    public boolean changePlayerBalance(UUID playerUUID, double amount, String cause) {
+        return changePlayerBalanceAndGet(playerUUID, amount, cause).isSuccess();
+    }
+
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount) {
+        return changePlayerBalanceAndGet(playerUUID, amount, TransactionLedger.CAUSE_PLUGIN);
+    }
+
+    /**
+     * Applies a balance change and returns the resulting balance from the same storage call.
+     * A non-zero amount that rounds to nothing in fixed mode is rejected.
+     */
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount, String cause) {
+        double applied = normalizeAmount(amount);
+        balanceWrites.increment();
+        return accountLocks.withLock(playerUUID, () -> {
+            if (belowMinorUnit(amount, applied)) {
+                return BalanceChange.rejected(dataStore.getPlayerBalanceByUUID(playerUUID));
+            }
+            BalanceChange change = dataStore.changePlayerBalanceAndGet(playerUUID, applied);
+            if (change.isSuccess()) {
+                if (leaderboard != null) {
+                    leaderboard.update(playerUUID, change.getBalance());
+                }
+                if (ledger != null) {
+                    ledger.record(ledger.newTxId(), playerUUID, applied, change.getBalance(), cause);
+                }
+            }
+            return change;
+        });
+    }
+
+    public Map<UUID, Boolean> changeBalances(Map<UUID, Double> changes) {
+        return changeBalances(changes, TransactionLedger.CAUSE_PLUGIN);
+    }
+
+    /**
+     * Applies many balance changes in one storage transaction; returns per-account success.
+     * Amounts that round to nothing in fixed mode fail without reaching the store.
+     */
+    public Map<UUID, Boolean> changeBalances(Map<UUID, Double> changes, String cause) {
+        Map<UUID, Double> applied = new LinkedHashMap<>();
+        changes.forEach((uuid, amount) -> {
+            double normalized = normalizeAmount(amount);
+            if (!belowMinorUnit(amount, normalized)) applied.put(uuid, normalized);
+        });
+        balanceWrites.increment();
+        return accountLocks.withLocks(changes.keySet(), () -> {
+            Map<UUID, BalanceChange> outcome = applied.isEmpty() ? Map.of() : dataStore.changeBalances(applied);
+            UUID txId = ledger != null ? ledger.newTxId() : null;
+            Map<UUID, Boolean> results = new LinkedHashMap<>();
+            for (UUID uuid : changes.keySet()) {
+                BalanceChange change = outcome.get(uuid);
+                results.put(uuid, change != null && change.isSuccess());
+                if (change == null || !change.isSuccess()) continue;
+                if (leaderboard != null) leaderboard.update(uuid, change.getBalance());
+                if (ledger != null) ledger.record(txId, uuid, applied.get(uuid), change.getBalance(), cause);
+            }
+            return results;
+        });
+    }
+
+    public boolean transfer(UUID from, UUID to, double amount) {
+        return transfer(from, to, amount, TransactionLedger.CAUSE_PLUGIN);
+    }
+
+    /** Moves money between two accounts atomically; false means nothing changed. */
+    public boolean transfer(UUID from, UUID to, double amount, String cause) {
+        return transferAndGet(from, to, amount, cause).isSuccess();
+    }
+
+    /**
+     * Moves money between two accounts atomically and returns both resulting balances.
+     * A failed result tells a storage error ({@link TransferResult#isError()}) apart from
+     * a sender who cannot cover the amount.
+     */
+    public TransferResult transferAndGet(UUID from, UUID to, double amount, String cause) {
+        // Rounded to the minor unit first; an amount that rounds to nothing is refused by the store
+        double applied = normalizeAmount(amount);
+        balanceWrites.increment();
+        return accountLocks.withLocks(List.of(from, to), () -> {
+            TransferResult result = dataStore.transfer(from, to, applied);
+            if (!result.isSuccess()) return result;
+            if (leaderboard != null) {
+                leaderboard.update(from, result.getFromBalance());
+                leaderboard.update(to, result.getToBalance());
+            }
+            if (ledger != null) {
+                UUID txId = ledger.newTxId();
+                ledger.record(txId, from, -applied, result.getFromBalance(), cause);
+                ledger.record(txId, to, applied, result.getToBalance(), cause);
+            }
+            return result;
+        });
     }
 
     public void setPlayerBalance(UUID uuid, double balance) {
-        dataStore.setPlayerBalance(uuid, balance);
+        setPlayerBalance(uuid, balance, TransactionLedger.CAUSE_PLUGIN);
+    }
+
+    public void setPlayerBalance(UUID uuid, double requested, String cause) {
+        double balance = normalizeAmount(requested);
+        balanceWrites.increment();
+        accountLocks.withLock(uuid, () -> {
+            // The ledger's DELTA needs the stored balance being replaced; read it only for the ledger
+            Double previous = ledger != null ? dataStore.findPlayerBalanceByUUID(uuid).orElse(0.0) : null;
+            dataStore.setPlayerBalance(uuid, balance);
+            if (leaderboard != null) {
+                leaderboard.update(uuid, balance);
+            }
+            if (ledger != null) {
+                ledger.record(ledger.newTxId(), uuid, balance - previous, balance, cause);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Overwrites many balances in one storage transaction under their account locks.
+     * Ledger rows carry the new balance with no delta: the replaced balances are not read.
+     */
+    public void setPlayerBalances(Map<UUID, Double> requested, String cause) {
+        if (requested.isEmpty()) return;
+        Map<UUID, Double> balances = new LinkedHashMap<>();
+        requested.forEach((uuid, balance) -> balances.put(uuid, normalizeAmount(balance)));
+        balanceWrites.increment();
+        accountLocks.withLocks(balances.keySet(), () -> {
+            dataStore.setPlayerBalances(balances);
+            UUID txId = ledger != null ? ledger.newTxId() : null;
+            balances.forEach((uuid, balance) -> {
+                if (leaderboard != null) leaderboard.update(uuid, balance);
+                if (ledger != null) ledger.record(txId, uuid, null, balance, cause);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * An amount or balance as the store will keep it: rounded to the minor unit in fixed
+     * mode, unchanged in decimal mode. Mutations apply and record this value.
+     */
+    public double normalizeAmount(double amount) {
+        return dataStore.getBalanceFormat().normalize(amount);
+    }
+
+    private static boolean belowMinorUnit(double amount, double applied) {
+        return applied == 0 && amount != 0;
+    }
+
+    public TransactionLedger getLedger() {
+        return ledger;
+    }
+
+    public LedgerCompactor getLedgerCompactor() {
+        return ledgerCompactor;
+    }
+
+    /**
+     * Runs a check-then-act sequence (e.g. has → withdraw) with the account's lock held, so
+     * other mutations of that account in this server cannot interleave. Mutations made
+     * inside re-enter the same lock; touching another account inside throws
+     * IllegalStateException, so use withAccountLocks for those.
+     */
+    public <T> T withAccountLock(UUID uuid, Supplier<T> action) {
+        return accountLocks.withLock(uuid, action);
+    }
+
+    /** Like withAccountLock, holding every given account's lock, taken together up front. */
+    public <T> T withAccountLocks(Collection<UUID> uuids, Supplier<T> action) {
+        return accountLocks.withLocks(uuids, action);
+    }
+
+    public AccountLocks getAccountLocks() {
+        return accountLocks;
     }
 
     public boolean playerExistsByUUID(UUID uuid) {
@@ -53,13 +416,311 @@ public class DataConnector {
     }
 
     public Map<String, Double> getTopBalances(int limit) {
-        return dataStore.getTopBalances(limit);
+        return getTopBalances(0, limit);
+    }
+
+    /** Returns one page of the leaderboard (display name → balance), best first. */
+    public Map<String, Double> getTopBalances(int offset, int limit) {
+        if (leaderboard == null || !leaderboard.isReady()) {
+            return skip(dataStore.getTopBalances(offset + limit), offset);
+        }
+        List<Map.Entry<UUID, Double>> rows = leaderboard.range(offset, limit);
+        List<UUID> uuids = new ArrayList<>(rows.size());
+        for (Map.Entry<UUID, Double> row : rows) {
+            uuids.add(row.getKey());
+        }
+        Map<UUID, String> names = getPlayerNames(uuids);
+        Map<String, Double> topBalances = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Double> row : rows) {
+            topBalances.put(names.get(row.getKey()), row.getValue());
+        }
+        return topBalances;
+    }
+
+    /**
+     * Resolves display names from the name cache, then the persisted name table.
+     * Never consults Bukkit's offline-player data on the calling thread: names nobody
+     * has recorded yet fall back to the UUID string and are looked up in the background.
+     */
+    public Map<UUID, String> getPlayerNames(List<UUID> uuids) {
+        Map<UUID, String> names = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            String name = nameCache.get(uuid);
+            if (name != null) {
+                names.put(uuid, name);
+            } else {
+                missing.add(uuid);
+            }
+        }
+        if (missing.isEmpty()) return names;
+
+        Map<UUID, String> stored = dataStore.getPlayerNames(missing);
+        nameCache.putAll(stored);
+        names.putAll(stored);
+        List<UUID> unknown = new ArrayList<>();
+        for (UUID uuid : missing) {
+            if (names.containsKey(uuid)) continue;
+            String stale = nameCache.getStale(uuid);
+            if (stale == null) unknown.add(uuid);
+            names.put(uuid, stale != null ? stale : uuid.toString());
+        }
+        if (!unknown.isEmpty()) {
+            scheduleNameLookup(unknown);
+        }
+        return names;
+    }
+
+    /** Records a player's current name, persisting it when it changed. Performs I/O when it does. */
+    public void recordPlayerName(UUID uuid, String name) {
+        if (nameCache.put(uuid, name)) {
+            dataStore.savePlayerNames(Collections.singletonMap(uuid, name));
+        }
+    }
+
+    public int getCachedNameCount() {
+        return nameCache.size();
+    }
+
+    private void scheduleNameLookup(List<UUID> uuids) {
+        List<UUID> queued = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (pendingNameLookups.add(uuid)) queued.add(uuid);
+        }
+        if (queued.isEmpty()) return;
+        nameLookupExecutor.execute(() -> {
+            Map<UUID, String> resolved = new HashMap<>();
+            for (UUID uuid : queued) {
+                try {
+                    OfflinePlayer player = plugin.getServer().getOfflinePlayer(uuid);
+                    String name = player.getName();
+                    if (name != null && nameCache.put(uuid, name)) resolved.put(uuid, name);
+                } catch (Exception e) {
+                    logger.fine("Background name lookup failed for " + uuid + ": " + e.getMessage());
+                } finally {
+                    pendingNameLookups.remove(uuid);
+                }
+            }
+            dataStore.savePlayerNames(resolved);
+        });
+    }
+
+    /** One-based position of the account among all accounts, 0 if unranked, -1 if unavailable. */
+    public int getRank(UUID uuid) {
+        if (leaderboard == null || !leaderboard.isReady()) return -1;
+        return leaderboard.rank(uuid);
+    }
+
+    private static Map<String, Double> skip(Map<String, Double> rows, int offset) {
+        if (offset <= 0) return rows;
+        Map<String, Double> page = new LinkedHashMap<>();
+        int i = 0;
+        for (Map.Entry<String, Double> row : rows.entrySet()) {
+            if (i++ >= offset) page.put(row.getKey(), row.getValue());
+        }
+        return page;
+    }
+
+    /**
+     * Number of accounts, answered from the leaderboard when it is seeded and otherwise
+     * counted by the store, without loading any balances.
+     */
+    public int getAccountCount() {
+        if (leaderboard != null && leaderboard.isReady()) {
+            return leaderboard.size();
+        }
+        return (int) dataStore.summarizeBalances(null, null).getCount();
     }
 
     public Map<String, Double> getAllPlayerBalances() {
         return dataStore.getAllPlayerBalances();
     }
 
+    /** Pins an account in the online working set. Performs I/O — call off the main thread. */
+    public void preloadAccount(UUID uuid) {
+        if (dataStore instanceof CachingDataStore) {
+            // Under the account lock, so a write-through change cannot commit between the
+            // load's read and the account becoming resident
+            accountLocks.withLock(uuid, () -> {
+                ((CachingDataStore) dataStore).preload(uuid);
+                return null;
+            });
+        }
+    }
+
+    /** Persists and unpins an account. Performs I/O — call off the main thread. */
+    public void releaseAccount(UUID uuid) {
+        if (dataStore instanceof CachingDataStore) {
+            ((CachingDataStore) dataStore).release(uuid);
+        }
+    }
+
+    public void setPlayerOnline(UUID uuid, boolean online) {
+        if (dataStore instanceof CachingDataStore) {
+            ((CachingDataStore) dataStore).setOnline(uuid, online);
+        }
+    }
+
+    // ─── Async variants ──────────────────────────────────────────────────────
+    // Each runs the synchronous operation on the plugin's storage executor. Continue
+    // on the server thread with e.g. thenAcceptAsync(..., getMainThreadExecutor()).
+
+    /** Runs arbitrary storage work on the storage executor. */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, asyncExecutor);
+    }
+
+    /** Executes tasks on the server thread through the Bukkit scheduler. */
+    public Executor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    public CompletableFuture<Double> getPlayerBalanceByUUIDAsync(UUID playerUUID) {
+        return supplyAsync(() -> getPlayerBalanceByUUID(playerUUID));
+    }
+
+    public CompletableFuture<Optional<Double>> findPlayerBalanceByUUIDAsync(UUID playerUUID) {
+        return supplyAsync(() -> {
+            balanceReads.increment();
+            return dataStore.findPlayerBalanceByUUID(playerUUID);
+        });
+    }
+
+    public CompletableFuture<Boolean> changePlayerBalanceAsync(UUID playerUUID, double amount) {
+        return supplyAsync(() -> changePlayerBalance(playerUUID, amount));
+    }
+
+    public CompletableFuture<Boolean> changePlayerBalanceAsync(UUID playerUUID, double amount, String cause) {
+        return supplyAsync(() -> changePlayerBalance(playerUUID, amount, cause));
+    }
+
+    public CompletableFuture<BalanceChange> changePlayerBalanceAndGetAsync(UUID playerUUID, double amount) {
+        return supplyAsync(() -> changePlayerBalanceAndGet(playerUUID, amount));
+    }
+
+    public CompletableFuture<BalanceChange> changePlayerBalanceAndGetAsync(UUID playerUUID, double amount, String cause) {
+        return supplyAsync(() -> changePlayerBalanceAndGet(playerUUID, amount, cause));
+    }
+
+    public CompletableFuture<Map<UUID, Boolean>> changeBalancesAsync(Map<UUID, Double> changes) {
+        return supplyAsync(() -> changeBalances(changes));
+    }
+
+    public CompletableFuture<Map<UUID, Boolean>> changeBalancesAsync(Map<UUID, Double> changes, String cause) {
+        return supplyAsync(() -> changeBalances(changes, cause));
+    }
+
+    public CompletableFuture<Boolean> transferAsync(UUID from, UUID to, double amount) {
+        return supplyAsync(() -> transfer(from, to, amount));
+    }
+
+    public CompletableFuture<Boolean> transferAsync(UUID from, UUID to, double amount, String cause) {
+        return supplyAsync(() -> transfer(from, to, amount, cause));
+    }
+
+    public CompletableFuture<Void> setPlayerBalanceAsync(UUID uuid, double balance) {
+        return CompletableFuture.runAsync(() -> setPlayerBalance(uuid, balance), asyncExecutor);
+    }
+
+    public CompletableFuture<Void> setPlayerBalanceAsync(UUID uuid, double balance, String cause) {
+        return CompletableFuture.runAsync(() -> setPlayerBalance(uuid, balance, cause), asyncExecutor);
+    }
+
+    public CompletableFuture<Void> setPlayerBalancesAsync(Map<UUID, Double> balances, String cause) {
+        return CompletableFuture.runAsync(() -> setPlayerBalances(balances, cause), asyncExecutor);
+    }
+
+    public CompletableFuture<Boolean> playerExistsByUUIDAsync(UUID uuid) {
+        return supplyAsync(() -> playerExistsByUUID(uuid));
+    }
+
+    public CompletableFuture<Map<String, Double>> getTopBalancesAsync(int limit) {
+        return supplyAsync(() -> getTopBalances(limit));
+    }
+
+    public CompletableFuture<Map<String, Double>> getTopBalancesAsync(int offset, int limit) {
+        return supplyAsync(() -> getTopBalances(offset, limit));
+    }
+
+    public CompletableFuture<Map<String, Double>> getAllPlayerBalancesAsync() {
+        return supplyAsync(this::getAllPlayerBalances);
+    }
+
+    public CompletableFuture<Map<UUID, String>> getPlayerNamesAsync(List<UUID> uuids) {
+        return supplyAsync(() -> getPlayerNames(uuids));
+    }
+
+    public CompletableFuture<Integer> getRankAsync(UUID uuid) {
+        return supplyAsync(() -> getRank(uuid));
+    }
+
+    public CompletableFuture<Integer> getAccountCountAsync() {
+        return supplyAsync(this::getAccountCount);
+    }
+
+    public CompletableFuture<Void> saveDatabaseAsync() {
+        return CompletableFuture.runAsync(this::saveDatabase, asyncExecutor);
+    }
+
+    public long getBalanceReadCount() {
+        return balanceReads.sum();
+    }
+
+    public long getBalanceWriteCount() {
+        return balanceWrites.sum();
+    }
+
+    /** The topmost layer that keeps a ledger table (the live migration layer, if any), or null. */
+    private LedgerStore findLedgerStore() {
+        DualWriteDataStore dualWrite = findStoreLayer(DualWriteDataStore.class);
+        return dualWrite != null ? dualWrite : findStoreLayer(AbstractDataStore.class);
+    }
+
+    /** Returns the decorator of the given type in the live store chain, or null if not configured. */
+    public <T extends DataStore> T findStoreLayer(Class<T> type) {
+        DataStore store = dataStore;
+        while (store != null) {
+            if (type.isInstance(store)) return type.cast(store);
+            if (store instanceof CachingDataStore) {
+                store = ((CachingDataStore) store).getDelegate();
+            } else if (store instanceof CoalescingDataStore) {
+                store = ((CoalescingDataStore) store).getDelegate();
+            } else if (store instanceof DualWriteDataStore) {
+                store = ((DualWriteDataStore) store).getPrimary();
+            } else {
+                store = null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Switches a running live migration to its target and records it in the config.
+     * Write-behind layers are flushed first so nothing pending is left on the source side.
+     * Throws IllegalStateException with the reason when no migration is running or the
+     * target has not caught up.
+     */
+    public String cutoverLiveMigration() {
+        DualWriteDataStore dualWrite = findStoreLayer(DualWriteDataStore.class);
+        if (dualWrite == null) {
+            throw new IllegalStateException("No live migration is running.");
+        }
+        dataStore.saveDatabase();
+        dualWrite.cutover();
+        migrationService.completeLiveMigration(dualWrite.getTargetType());
+        return dualWrite.getTargetType();
+    }
+
+    /**
+     * Opens and sets up a separate, undecorated store of the given type, e.g. to compare
+     * against the live one. The caller must close it.
+     */
+    public DataStore openStore(String storageType) {
+        DataStore store = storeFactory.create(storageType);
+        store.setupDatabase();
+        return store;
+    }
+
     public DataStore getDataStore() {
         return dataStore;
     }
@@ -2,20 +2,63 @@ package org.fourz.tokeneconomy.Data;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
 public interface DataStore {
     void setupDatabase();
     void saveDatabase();
     void closeDatabase();
     double getPlayerBalanceByUUID(UUID playerUUID);
+    /** Like getPlayerBalanceByUUID, but distinguishes a missing account from a zero balance. */
+    Optional<Double> findPlayerBalanceByUUID(UUID playerUUID);
     boolean changePlayerBalance(UUID playerUUID, double amount);
+    /** Same rules as changePlayerBalance, but also reports the resulting balance. */
+    BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount);
+    /**
+     * Applies many balance changes in one batched transaction, each with the rules of
+     * changePlayerBalance. Returns each account's outcome and resulting balance in input order.
+     */
+    Map<UUID, BalanceChange> changeBalances(Map<UUID, Double> changes);
+    /**
+     * Moves a positive amount from one account to another in a single transaction and
+     * reports both resulting balances. Rejected without changing anything when the sender
+     * cannot cover it.
+     */
+    TransferResult transfer(UUID from, UUID to, double amount);
     void setPlayerBalance(UUID playerUUID, double balance);
+    /** Upserts all given balances in a single batched transaction. */
+    void setPlayerBalances(Map<UUID, Double> balances);
     Map<String, Double> getTopBalances(int limit);
     Map<String, Double> getAllPlayerBalances();
+    /**
+     * Streams every account to {@code action} without materializing the table, reading
+     * {@code fetchSize} rows per round trip. Rows with unreadable keys are skipped.
+     * Returns the number of rows visited.
+     */
+    long forEachBalance(int fetchSize, BiConsumer<UUID, Double> action);
+    /**
+     * Like forEachBalance, restricted to keys in [from, to) and visited in key order
+     * (unsigned UUID order; a null bound is open).
+     */
+    long forEachBalanceInRange(UUID from, UUID to, int fetchSize, BiConsumer<UUID, Double> action);
+    /** Count and total of the balances with keys in [from, to); a null bound is open. */
+    BalanceSummary summarizeBalances(UUID from, UUID to);
+    /** Looks up persisted display names; accounts without a known name are absent from the result. */
+    Map<UUID, String> getPlayerNames(Collection<UUID> uuids);
+    /** Returns up to {@code limit} most recently seen names from the name table. */
+    Map<UUID, String> loadPlayerNames(int limit);
+    /** Upserts names into the name table in one batch. */
+    void savePlayerNames(Map<UUID, String> names);
     boolean isConnected() throws SQLException;
     boolean playerExistsByUUID(UUID uuid);
     Connection getConnection() throws SQLException;
     String getTablePrefix();
+    /** How the BALANCE column is encoded; raw-connection writers must bind through it. */
+    BalanceFormat getBalanceFormat();
+    /** How economy-table keys are encoded; raw-connection writers must bind through it. */
+    UuidFormat getUuidFormat();
 }
\ No newline at end of file
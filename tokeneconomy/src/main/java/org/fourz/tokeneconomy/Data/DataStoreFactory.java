@@ -20,6 +20,13 @@ public class DataStoreFactory {
     }
 
     public DataStore create(String storageType) {
+        if ("journal".equals(storageType)) {
+            return new JournalDataStore(new File(plugin.getDataFolder(), "journal"), plugin.getLogger(),
+                configLoader.getJournalFsync(),
+                configLoader.getJournalFsyncInterval(),
+                configLoader.getJournalSegmentSizeMb(),
+                configLoader.getJournalCheckpointInterval());
+        }
         PoolDelegate pool = createPool(storageType);
         try {
             pool.initialize();
@@ -27,13 +34,53 @@ public class DataStoreFactory {
             throw new RuntimeException("Failed to initialize connection pool (" + storageType + "): " + e.getMessage(), e);
         }
 
+        BalanceFormat balanceFormat = BalanceFormat.fromConfig(configLoader.getBalanceFormat(), configLoader.getBalanceScale());
+        UuidFormat uuidFormat = UuidFormat.fromConfig(configLoader.getUuidFormat());
         switch (storageType) {
             case "mysql":
-                return new MySQLDataStore(pool, configLoader, plugin);
+                return new MySQLDataStore(pool, configLoader, plugin, balanceFormat, uuidFormat);
             case "sqlite":
             default:
-                return new SQLiteDataStore(pool, new File(plugin.getDataFolder(), "database.db"), plugin);
+                return new SQLiteDataStore(pool, new File(plugin.getDataFolder(), "database.db"), plugin, balanceFormat, uuidFormat);
+        }
+    }
+
+    /**
+     * Creates the store that serves live traffic. Wraps the JDBC store in the credit
+     * coalescer (storage.coalesce.enabled, not combined with write-behind) and then in the
+     * balance cache when write-behind (storage.cache.enabled) or online-player preloading
+     * (storage.cache.preloadOnline) is configured. The journal store already serves
+     * everything from memory and is never wrapped.
+     */
+    public DataStore createPrimary(String storageType) {
+        return createPrimary(storageType, null);
+    }
+
+    /**
+     * Like createPrimary(storageType), with writes mirrored to a second backend during a
+     * live migration. The dual-write layer sits below the cache and coalescer, so their
+     * flushes reach both stores.
+     */
+    public DataStore createPrimary(String storageType, String liveMigrationTarget) {
+        DataStore store = create(storageType);
+        if (store instanceof JournalDataStore) {
+            return store;
+        }
+        if (liveMigrationTarget != null) {
+            store = new DualWriteDataStore(store, create(liveMigrationTarget), storageType, liveMigrationTarget,
+                plugin.getLogger(), configLoader.getBackfillBatchSize(), configLoader.getBackfillPause());
+        }
+        if (configLoader.isCoalesceEnabled() && !configLoader.isCacheEnabled()) {
+            store = new CoalescingDataStore(store, plugin.getLogger(), configLoader.getCoalesceWindow());
+        }
+        if (!configLoader.isCacheEnabled() && !configLoader.isPreloadOnlineEnabled()) {
+            return store;
         }
+        return new CachingDataStore(store, plugin.getLogger(),
+            configLoader.isCacheEnabled(),
+            configLoader.getCacheFlushInterval(),
+            configLoader.getCacheBatchSize(),
+            configLoader.getCacheMaxEntries());
     }
 
     private PoolDelegate createPool(String storageType) {
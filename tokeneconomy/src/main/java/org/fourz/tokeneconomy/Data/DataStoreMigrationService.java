@@ -3,13 +3,26 @@ package org.fourz.tokeneconomy.Data;
 import org.bukkit.plugin.Plugin;
 import org.fourz.tokeneconomy.ConfigLoader;
 
+import java.io.File;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 public class DataStoreMigrationService {
 
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000L;
+    private static final int MAX_RANGES = 256;
+    private static final String CHECKPOINT_FILE = "migration-checkpoint.yml";
+
     private final Plugin plugin;
     private final ConfigLoader configLoader;
     private final DataStoreFactory factory;
@@ -37,10 +50,11 @@ public class DataStoreMigrationService {
                 plugin.saveConfig();
                 return "sqlite";
             }
+            if (configLoader.isLiveMigration()) return startLiveMigration("mysql", "sqlite");
             String result = performMigration("mysql", "sqlite", "storage.migrate_from_mysql");
             if (result != null) return result;
             migrationFailed = true;
-            storageType = "sqlite";
+            storageType = "mysql";
         } else if (configLoader.shouldMigrateFromSQLite()) {
             if (migrationStatus.equals("completed")) {
                 logger.info("Migration from SQLite to MySQL already completed.");
@@ -49,6 +63,7 @@ public class DataStoreMigrationService {
                 plugin.saveConfig();
                 return "mysql";
             }
+            if (configLoader.isLiveMigration()) return startLiveMigration("sqlite", "mysql");
             String result = performMigration("sqlite", "mysql", "storage.migrate_from_sqlite");
             if (result != null) return result;
             migrationFailed = true;
@@ -62,13 +77,48 @@ public class DataStoreMigrationService {
         return storageType;
     }
 
-    /** Returns the resulting storage type on success, null on failure. */
+    // ─── Live migration ──────────────────────────────────────────────────────
+
+    /**
+     * Target of a pending live migration (storage.migration.live with a migrate flag set),
+     * or null when there is none. The connector then wraps the source in a DualWriteDataStore.
+     */
+    public String getLiveMigrationTarget() {
+        if (!configLoader.isLiveMigration()) return null;
+        if (configLoader.shouldMigrateFromMySQL()) return "sqlite";
+        if (configLoader.shouldMigrateFromSQLite()) return "mysql";
+        return null;
+    }
+
+    /** Startup stays on the source; the copy runs in the background while the server is up. */
+    private String startLiveMigration(String fromType, String toType) {
+        logger.info("Live migration from " + fromType + " to " + toType + " pending: serving from " + fromType +
+            " while the target is backfilled.");
+        configLoader.setMigrationStatus("in_progress");
+        return fromType;
+    }
+
+    /** Records a live cutover so the next start runs on the target alone. */
+    public void completeLiveMigration(String toType) {
+        configLoader.setMigrationStatus("completed");
+        plugin.getConfig().set(toType.equals("mysql") ? "storage.migrate_from_sqlite" : "storage.migrate_from_mysql", false);
+        plugin.getConfig().set("storage.type", toType);
+        plugin.saveConfig();
+    }
+
+    /**
+     * Returns the resulting storage type on success, null on failure. A failed migration
+     * leaves its flag set and its checkpoint on disk, so the next start resumes it while
+     * the server keeps running on the source storage.
+     */
     private String performMigration(String fromType, String toType, String clearFlag) {
         logger.info("Starting migration from " + fromType + " to " + toType + ".");
         configLoader.setMigrationStatus("in_progress");
+        DataStore source = null;
+        DataStore target = null;
         try {
-            DataStore source = factory.create(fromType);
-            DataStore target = factory.create(toType);
+            source = factory.create(fromType);
+            target = factory.create(toType);
             String testStore = fromType.equals("mysql") ? fromType : toType;
             DataStore storeToTest = fromType.equals("mysql") ? source : target;
             if (!testConnection(storeToTest)) {
@@ -76,9 +126,7 @@ public class DataStoreMigrationService {
             }
             source.setupDatabase();
             target.setupDatabase();
-            migrateData(source, target);
-            source.closeDatabase();
-            target.closeDatabase();
+            migrateData(source, target, fromType, toType);
             configLoader.setMigrationStatus("completed");
             plugin.getConfig().set(clearFlag, false);
             plugin.getConfig().set("storage.type", toType);
@@ -89,14 +137,33 @@ public class DataStoreMigrationService {
             logger.severe("Migration failed: " + e.getMessage());
             e.printStackTrace();
             configLoader.setMigrationStatus("failed");
-            logger.info("Falling back to SQLite storage.");
-            plugin.getConfig().set("storage.type", "sqlite");
+            logger.info("Falling back to " + fromType + " storage; the migration resumes on the next start.");
+            plugin.getConfig().set("storage.type", fromType);
             plugin.saveConfig();
             return null;
+        } finally {
+            closeQuietly(source);
+            closeQuietly(target);
+        }
+    }
+
+    private void closeQuietly(DataStore store) {
+        if (store == null) return;
+        try {
+            store.closeDatabase();
+        } catch (RuntimeException e) {
+            logger.warning("Failed to close migration store: " + e.getMessage());
         }
     }
 
-    private void migrateData(DataStore source, DataStore target) throws SQLException {
+    // ─── Range copy ──────────────────────────────────────────────────────────
+
+    /**
+     * Copies the economy table as independent UUID key ranges, several at a time. Each
+     * range is streamed in key order, written in batches, checkpointed after every batch,
+     * and verified by row count and balance sum once copied.
+     */
+    private void migrateData(DataStore source, DataStore target, String fromType, String toType) throws SQLException {
         logger.info("Attempting to initialize source database...");
         if (!initializeStore(source)) {
             throw new SQLException("Failed to initialize source database - check connection parameters and permissions");
@@ -106,26 +173,197 @@ public class DataStoreMigrationService {
             throw new SQLException("Failed to initialize target database - check connection parameters and permissions");
         }
 
-        Map<String, Double> balances = source.getAllPlayerBalances();
-        int totalPlayers = balances.size();
-        int migratedPlayers = 0;
-        logger.info("Starting data migration for " + totalPlayers + " players.");
+        int batchSize = Math.max(1, configLoader.getMigrationBatchSize());
+        int fetchSize = Math.max(1, configLoader.getMigrationFetchSize());
+        int rangeCount = Integer.highestOneBit(Math.clamp(configLoader.getMigrationRanges(), 1, MAX_RANGES));
+        int parallelism = Math.clamp(configLoader.getMigrationParallelism(), 1, rangeCount);
+        if (fromType.equals("sqlite") && !configLoader.isSQLiteWal()) {
+            // Without WAL the SQLite pool is one connection; parallel cursors would just queue
+            parallelism = 1;
+        }
+
+        MigrationCheckpoint checkpoint = MigrationCheckpoint.open(new File(plugin.getDataFolder(), CHECKPOINT_FILE),
+            logger, fromType, toType, rangeCount);
+        if (checkpoint.isResumed()) {
+            logger.info("Resuming interrupted migration from " + CHECKPOINT_FILE + ".");
+        }
+        logger.info("Starting data migration (" + rangeCount + " ranges, " + parallelism + " at a time, batches of " +
+            batchSize + ", fetch size " + fetchSize + ").");
+
+        MigrationProgress progress = new MigrationProgress();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "TokenEconomy-Migration");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<?>> ranges = new ArrayList<>();
+        try {
+            for (int range = 0; range < rangeCount; range++) {
+                int current = range;
+                ranges.add(executor.submit(() ->
+                    migrateRange(source, target, current, rangeCount, batchSize, fetchSize, checkpoint, progress)));
+            }
+            Throwable failure = null;
+            for (Future<?> future : ranges) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while migrating", e);
+                }
+            }
+            if (failure != null) {
+                throw new SQLException("Migration stopped with unfinished ranges: " + failure.getMessage(), failure);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        checkpoint.delete();
+
+        long migrated = progress.migrated.sum();
+        long elapsed = Math.max(1, System.currentTimeMillis() - progress.startedAt);
+        logger.info("Data migration completed. Migrated and verified " + migrated + " player balances in " +
+            elapsed / 1000 + "s (" + migrated * 1000 / elapsed + " rows/s).");
+    }
+
+    /**
+     * Copies one key range and verifies it, retrying once from the range start when the
+     * totals disagree. A resumed range starts just after its last checkpointed key.
+     */
+    private void migrateRange(DataStore source, DataStore target, int range, int rangeCount, int batchSize,
+                              int fetchSize, MigrationCheckpoint checkpoint, MigrationProgress progress) {
+        UUID from = rangeStart(range, rangeCount);
+        UUID to = rangeStart(range + 1, rangeCount);
+        if (checkpoint.preexisting(range) < 0) {
+            checkpoint.recordPreexisting(range, target.summarizeBalances(from, to).getCount());
+        } else if (!needsCopy(source, target, range, from, to, checkpoint, progress)) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            UUID resumeAfter = checkpoint.lastKey(range);
+            long[] migrated = {checkpoint.migrated(range)};
+            Map<UUID, Double> batch = new LinkedHashMap<>();
+            source.forEachBalanceInRange(resumeAfter != null ? resumeAfter : from, to, fetchSize, (uuid, balance) -> {
+                if (uuid.equals(resumeAfter)) return;
+                batch.put(uuid, balance);
+                if (batch.size() >= batchSize) {
+                    migrated[0] += writeBatch(target, batch, progress);
+                    checkpoint.recordBatch(range, uuid, migrated[0]);
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                migrated[0] += writeBatch(target, batch, progress);
+            }
+
+            BalanceSummary expected = source.summarizeBalances(from, to);
+            BalanceSummary actual = target.summarizeBalances(from, to);
+            if (verified(expected, actual, checkpoint.preexisting(range))) {
+                checkpoint.markDone(range, migrated[0]);
+                return;
+            }
+            if (attempt >= 2) {
+                throw new RuntimeException("Range " + range + " failed verification: source " + expected +
+                    ", target " + actual);
+            }
+            logger.warning("Range " + range + " failed verification (source " + expected + ", target " + actual +
+                "), copying it again.");
+            progress.migrated.add(-migrated[0]);
+            checkpoint.reset(range);
+        }
+    }
+
+    /**
+     * Checks a range carried over from an earlier run before trusting it: the server ran on
+     * the source after that run failed, so copied rows may since have changed. Returns false
+     * when the range is done and still matches; otherwise the range continues to be copied.
+     * Totals only prove a match when the target range started empty, so ranges that merged
+     * into existing accounts are copied again from the start.
+     */
+    private boolean needsCopy(DataStore source, DataStore target, int range, UUID from, UUID to,
+                               MigrationCheckpoint checkpoint, MigrationProgress progress) {
+        boolean exact = checkpoint.preexisting(range) == 0;
+        if (checkpoint.isDone(range)) {
+            if (exact && source.summarizeBalances(from, to).matches(target.summarizeBalances(from, to))) {
+                progress.migrated.add(checkpoint.migrated(range));
+                return false;
+            }
+            logger.info("Range " + range + " may have changed since it was checkpointed, copying it again.");
+            checkpoint.reset(range);
+        } else if (!exact && checkpoint.lastKey(range) != null) {
+            // Rows before the checkpointed key cannot be re-checked against a pre-populated target
+            checkpoint.reset(range);
+        }
+        return true;
+    }
+
+    /**
+     * Exact count and sum when the target range started empty. Accounts that already
+     * existed in the target make the totals incomparable, so then only check nothing is missing.
+     */
+    private static boolean verified(BalanceSummary expected, BalanceSummary actual, long preexisting) {
+        return preexisting == 0 ? expected.matches(actual) : actual.getCount() >= expected.getCount();
+    }
+
+    /**
+     * Lower bound of a key range, or null for the open ends. Ranges split the top bits of
+     * the most significant long, compared unsigned like the stores' key order.
+     */
+    static UUID rangeStart(int range, int rangeCount) {
+        if (range <= 0 || range >= rangeCount) return null;
+        int shift = 64 - Integer.numberOfTrailingZeros(rangeCount);
+        return new UUID((long) range << shift, 0L);
+    }
+
+    /** Running totals shared by the range workers, reported as a rate at most every few seconds. */
+    private static final class MigrationProgress {
+        final long startedAt = System.currentTimeMillis();
+        final LongAdder migrated = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        long lastReportAt = startedAt;
+        long lastReportRows;
+    }
 
-        for (Map.Entry<String, Double> entry : balances.entrySet()) {
-            try {
-                target.setPlayerBalance(UUID.fromString(entry.getKey()), entry.getValue());
-                migratedPlayers++;
-                if (migratedPlayers % 100 == 0) {
-                    logger.info("Migrated " + migratedPlayers + "/" + totalPlayers + " player balances.");
+    /**
+     * Writes one batch in a single transaction and returns the rows written. If the batch
+     * fails, its rows are retried one at a time so a single bad row does not take the rest
+     * of the batch with it; the range verification then catches the row that was lost.
+     */
+    private long writeBatch(DataStore target, Map<UUID, Double> batch, MigrationProgress progress) {
+        long written = 0;
+        try {
+            target.setPlayerBalances(batch);
+            written = batch.size();
+        } catch (RuntimeException batchFailure) {
+            logger.warning("Batch of " + batch.size() + " balances failed, retrying row by row: " + batchFailure.getMessage());
+            for (Map.Entry<UUID, Double> entry : batch.entrySet()) {
+                try {
+                    target.setPlayerBalance(entry.getKey(), entry.getValue());
+                    written++;
+                } catch (RuntimeException e) {
+                    progress.failed.increment();
+                    logger.warning("Failed to migrate player " + entry.getKey() + ": " + e.getMessage());
                 }
-            } catch (Exception e) {
-                logger.warning("Failed to migrate player " + entry.getKey() + ": " + e.getMessage());
             }
         }
-        logger.info("Data migration completed. Successfully migrated: " + migratedPlayers + "/" + totalPlayers);
+        progress.migrated.add(written);
+        reportProgress(progress);
+        return written;
+    }
 
-        if (migratedPlayers < totalPlayers) {
-            logger.warning("Some player data failed to migrate. Check logs for details.");
+    private void reportProgress(MigrationProgress progress) {
+        synchronized (progress) {
+            long now = System.currentTimeMillis();
+            if (now - progress.lastReportAt < PROGRESS_INTERVAL_MILLIS) return;
+            long migrated = progress.migrated.sum();
+            long failed = progress.failed.sum();
+            long rate = (migrated - progress.lastReportRows) * 1000 / (now - progress.lastReportAt);
+            logger.info("Migrated " + migrated + " player balances (" + rate + " rows/s" +
+                (failed > 0 ? ", " + failed + " failed" : "") + ").");
+            progress.lastReportAt = now;
+            progress.lastReportRows = migrated;
         }
     }
 
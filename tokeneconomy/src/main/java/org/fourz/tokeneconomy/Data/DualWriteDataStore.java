@@ -0,0 +1,506 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Live migration between two backends while the server keeps running.
+ *
+ * <p>Reads and writes are served by the source store. Every successful balance mutation
+ * is mirrored to the target as the account's resulting absolute balance, so a mirror is
+ * idempotent and never depends on the target's current value. A background backfill
+ * copies the rest of the source in key ranges; accounts already mirrored since start-up
+ * are skipped, because the mirror wrote a value at least as new as the one the backfill
+ * read. Both run under per-account locks, so a backfill batch cannot overwrite a newer
+ * mirror with the value it read earlier.
+ *
+ * <p>Once the backfill has finished and every failed mirror has been re-copied,
+ * {@link #cutover()} swaps the roles: the target serves reads and takes writes first,
+ * and the source keeps receiving mirrors until the next restart, which runs on the target
+ * alone. Ledger rows and compaction always go to the store currently serving; the ledger
+ * history written before the cutover stays in the source database.
+ */
+public class DualWriteDataStore implements DataStore, LedgerStore {
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 30_000L;
+    // Accounts copied per locked write during backfill; small enough that live writes barely wait
+    private static final int LOCK_SLICE = 32;
+
+    private final DataStore source;
+    private final DataStore target;
+    private final String sourceType;
+    private final String targetType;
+    private final Logger logger;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final AccountLocks accountLocks = new AccountLocks(1024);
+    // Mutations hold the read side; the cutover takes the write side so no mutation is
+    // half-applied across the role swap
+    private final ReentrantReadWriteLock roles = new ReentrantReadWriteLock();
+    private volatile DataStore primary;
+    private volatile DataStore secondary;
+    private volatile boolean cutOver;
+
+    // Accounts mirrored while the backfill runs; the backfill leaves them alone
+    private final Set<UUID> mirrored = ConcurrentHashMap.newKeySet();
+    // Accounts whose mirror write failed; re-copied from the source before the cutover
+    private final Set<UUID> unsynced = ConcurrentHashMap.newKeySet();
+    private final LongAdder mirrorWrites = new LongAdder();
+    private final LongAdder mirrorFailures = new LongAdder();
+    private final LongAdder backfilled = new LongAdder();
+    private final LongAdder backfillSkipped = new LongAdder();
+    private volatile long backfillTotal;
+    private volatile boolean backfillDone;
+    private volatile String backfillError;
+    private volatile boolean stopped;
+    private Thread backfillThread;
+
+    public DualWriteDataStore(DataStore source, DataStore target, String sourceType, String targetType,
+                              Logger logger, int batchSize, long pauseMillis) {
+        this.source = source;
+        this.target = target;
+        this.sourceType = sourceType;
+        this.targetType = targetType;
+        this.logger = logger;
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = Math.max(0L, pauseMillis);
+        this.primary = source;
+        this.secondary = target;
+    }
+
+    @Override
+    public void setupDatabase() {
+        source.setupDatabase();
+        target.setupDatabase();
+        backfillThread = new Thread(this::backfill, "TokenEconomy-Backfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
+        logger.info("Live migration from " + sourceType + " to " + targetType +
+            " active: writes are mirrored and the backfill is running.");
+    }
+
+    @Override
+    public void saveDatabase() {
+        primary.saveDatabase();
+        secondary.saveDatabase();
+    }
+
+    @Override
+    public void closeDatabase() {
+        stopped = true;
+        if (backfillThread != null) {
+            backfillThread.interrupt();
+            try {
+                backfillThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        primary.closeDatabase();
+        secondary.closeDatabase();
+    }
+
+    // ─── Cutover ─────────────────────────────────────────────────────────────
+
+    /**
+     * Makes the target the serving store. Fails with the reason when the target has not
+     * caught up yet: the backfill is still running or some accounts could not be mirrored.
+     * The final re-copy and check run under the roles write lock, so no mutation can fail
+     * its mirror between the check and the swap.
+     */
+    public void cutover() {
+        if (cutOver) {
+            throw new IllegalStateException("Reads already go to " + targetType + ".");
+        }
+        if (!backfillDone) {
+            throw new IllegalStateException(backfillError != null
+                ? "Backfill failed: " + backfillError
+                : "Backfill is still running (" + backfilled.sum() + "/" + backfillTotal + " accounts).");
+        }
+        roles.writeLock().lock();
+        try {
+            resyncUnsynced();
+            if (!unsynced.isEmpty()) {
+                throw new IllegalStateException(unsynced.size() + " accounts could not be written to " + targetType +
+                    "; try again once it is reachable.");
+            }
+            primary = target;
+            secondary = source;
+            cutOver = true;
+        } finally {
+            roles.writeLock().unlock();
+        }
+        logger.info("Live migration cut over: " + targetType + " now serves reads, " + sourceType +
+            " keeps receiving mirrored writes until restart.");
+    }
+
+    // ─── Backfill ────────────────────────────────────────────────────────────
+
+    /**
+     * Copies the source in key ranges sized to about one batch each. Every range is read
+     * into memory before anything is written, so the source connection is never held
+     * while waiting for account locks (on single-connection SQLite that would deadlock
+     * against a live mutation holding the lock and waiting for the connection).
+     */
+    private void backfill() {
+        try {
+            backfillTotal = source.summarizeBalances(null, null).getCount();
+            long wanted = Math.max(1, backfillTotal / batchSize);
+            int rangeCount = Integer.highestOneBit((int) Math.min(wanted, 1 << 16)) << 1;
+            long lastReportAt = System.currentTimeMillis();
+            for (int range = 0; range < rangeCount && !stopped; range++) {
+                Map<UUID, Double> rows = new LinkedHashMap<>();
+                source.forEachBalanceInRange(DataStoreMigrationService.rangeStart(range, rangeCount),
+                    DataStoreMigrationService.rangeStart(range + 1, rangeCount), batchSize, rows::put);
+                copyBatch(rows);
+                if (System.currentTimeMillis() - lastReportAt >= PROGRESS_INTERVAL_MILLIS) {
+                    lastReportAt = System.currentTimeMillis();
+                    logger.info("Live migration backfill: " + backfilled.sum() + "/" + backfillTotal + " accounts.");
+                }
+                Thread.sleep(pauseMillis);
+            }
+            if (stopped) return;
+            resyncUnsynced();
+            mirrored.clear();
+            backfillDone = true;
+            logger.info("Live migration backfill finished: " + backfilled.sum() + " accounts copied, " +
+                backfillSkipped.sum() + " already mirrored. Run /eco migrate cutover to switch to " + targetType + ".");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            backfillError = e.getMessage();
+            logger.severe("Live migration backfill failed, writes are still mirrored: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies rows in slices of LOCK_SLICE accounts, each under its own account locks, so a
+     * live mutation waits for at most one small write rather than the whole range.
+     */
+    private void copyBatch(Map<UUID, Double> rows) {
+        Map<UUID, Double> slice = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Double> row : rows.entrySet()) {
+            slice.put(row.getKey(), row.getValue());
+            if (slice.size() >= LOCK_SLICE) {
+                copySlice(slice);
+                slice.clear();
+            }
+        }
+        copySlice(slice);
+    }
+
+    private void copySlice(Map<UUID, Double> rows) {
+        if (rows.isEmpty()) return;
+        accountLocks.withLocks(rows.keySet(), () -> {
+            Map<UUID, Double> copy = new LinkedHashMap<>();
+            for (Map.Entry<UUID, Double> row : rows.entrySet()) {
+                if (mirrored.contains(row.getKey())) {
+                    backfillSkipped.increment();
+                } else {
+                    copy.put(row.getKey(), row.getValue());
+                }
+            }
+            if (!copy.isEmpty()) {
+                target.setPlayerBalances(copy);
+                backfilled.add(copy.size());
+            }
+            return null;
+        });
+    }
+
+    /** Re-copies accounts whose mirror failed, reading the serving store under the account lock. */
+    private void resyncUnsynced() {
+        for (UUID uuid : new ArrayList<>(unsynced)) {
+            accountLocks.withLock(uuid, () -> {
+                try {
+                    Optional<Double> balance = primary.findPlayerBalanceByUUID(uuid);
+                    if (balance.isPresent()) {
+                        secondary.setPlayerBalance(uuid, balance.get());
+                    }
+                    unsynced.remove(uuid);
+                } catch (RuntimeException e) {
+                    logger.warning("Failed to re-copy account " + uuid + " to the mirror: " + e.getMessage());
+                }
+                return null;
+            });
+        }
+    }
+
+    // ─── Mirrored mutations ──────────────────────────────────────────────────
+
+    private <T> T mutate(Collection<UUID> uuids, Supplier<T> action) {
+        roles.readLock().lock();
+        try {
+            return accountLocks.withLocks(uuids, action);
+        } finally {
+            roles.readLock().unlock();
+        }
+    }
+
+    /** Writes resulting balances to the secondary; failures are remembered, never thrown. */
+    private void mirror(Map<UUID, Double> balances) {
+        if (balances.isEmpty()) return;
+        if (!backfillDone) {
+            mirrored.addAll(balances.keySet());
+        }
+        try {
+            secondary.setPlayerBalances(balances);
+            mirrorWrites.increment();
+            unsynced.removeAll(balances.keySet());
+        } catch (RuntimeException e) {
+            mirrorFailures.increment();
+            unsynced.addAll(balances.keySet());
+            logger.warning("Failed to mirror " + balances.size() + " balances to " +
+                (cutOver ? sourceType : targetType) + ": " + e.getMessage());
+        }
+    }
+
+    /** Mirrors the current primary balance of each account. */
+    private void mirrorCurrent(Collection<UUID> uuids) {
+        Map<UUID, Double> balances = new LinkedHashMap<>();
+        for (UUID uuid : uuids) {
+            primary.findPlayerBalanceByUUID(uuid).ifPresent(balance -> balances.put(uuid, balance));
+        }
+        mirror(balances);
+    }
+
+    @Override
+    public boolean changePlayerBalance(UUID playerUUID, double amount) {
+        return changePlayerBalanceAndGet(playerUUID, amount).isSuccess();
+    }
+
+    @Override
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount) {
+        return mutate(List.of(playerUUID), () -> {
+            BalanceChange change = primary.changePlayerBalanceAndGet(playerUUID, amount);
+            if (change.isSuccess()) {
+                mirror(Map.of(playerUUID, change.getBalance()));
+            }
+            return change;
+        });
+    }
+
+    @Override
+    public Map<UUID, BalanceChange> changeBalances(Map<UUID, Double> changes) {
+        return mutate(changes.keySet(), () -> {
+            Map<UUID, BalanceChange> results = primary.changeBalances(changes);
+            Map<UUID, Double> changed = new LinkedHashMap<>();
+            results.forEach((uuid, change) -> {
+                if (change.isSuccess()) changed.put(uuid, change.getBalance());
+            });
+            mirror(changed);
+            return results;
+        });
+    }
+
+    @Override
+    public TransferResult transfer(UUID from, UUID to, double amount) {
+        return mutate(List.of(from, to), () -> {
+            TransferResult result = primary.transfer(from, to, amount);
+            if (result.isSuccess()) {
+                Map<UUID, Double> balances = new LinkedHashMap<>();
+                balances.put(from, result.getFromBalance());
+                balances.put(to, result.getToBalance());
+                mirror(balances);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void setPlayerBalance(UUID playerUUID, double balance) {
+        mutate(List.of(playerUUID), () -> {
+            primary.setPlayerBalance(playerUUID, balance);
+            mirror(Map.of(playerUUID, balance));
+            return null;
+        });
+    }
+
+    @Override
+    public void setPlayerBalances(Map<UUID, Double> balances) {
+        mutate(balances.keySet(), () -> {
+            primary.setPlayerBalances(balances);
+            mirror(balances);
+            return null;
+        });
+    }
+
+    @Override
+    public void savePlayerNames(Map<UUID, String> names) {
+        primary.savePlayerNames(names);
+        try {
+            secondary.savePlayerNames(names);
+        } catch (RuntimeException e) {
+            logger.fine("Failed to mirror player names: " + e.getMessage());
+        }
+    }
+
+    // ─── Served by the primary only ──────────────────────────────────────────
+
+    @Override
+    public double getPlayerBalanceByUUID(UUID playerUUID) {
+        return primary.getPlayerBalanceByUUID(playerUUID);
+    }
+
+    @Override
+    public Optional<Double> findPlayerBalanceByUUID(UUID playerUUID) {
+        return primary.findPlayerBalanceByUUID(playerUUID);
+    }
+
+    @Override
+    public Map<String, Double> getTopBalances(int limit) {
+        return primary.getTopBalances(limit);
+    }
+
+    @Override
+    public Map<String, Double> getAllPlayerBalances() {
+        return primary.getAllPlayerBalances();
+    }
+
+    @Override
+    public long forEachBalance(int fetchSize, BiConsumer<UUID, Double> action) {
+        return primary.forEachBalance(fetchSize, action);
+    }
+
+    @Override
+    public long forEachBalanceInRange(UUID from, UUID to, int fetchSize, BiConsumer<UUID, Double> action) {
+        return primary.forEachBalanceInRange(from, to, fetchSize, action);
+    }
+
+    @Override
+    public BalanceSummary summarizeBalances(UUID from, UUID to) {
+        return primary.summarizeBalances(from, to);
+    }
+
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uuids) {
+        return primary.getPlayerNames(uuids);
+    }
+
+    @Override
+    public Map<UUID, String> loadPlayerNames(int limit) {
+        return primary.loadPlayerNames(limit);
+    }
+
+    // The ledger follows the serving store across cutover; a store without a ledger table
+    // (journal) drops the entries
+
+    @Override
+    public void writeLedger(List<LedgerEntry> entries) {
+        DataStore serving = primary;
+        if (serving instanceof LedgerStore) {
+            ((LedgerStore) serving).writeLedger(entries);
+        }
+    }
+
+    @Override
+    public int compactLedgerChunk(long cutoff, int limit) {
+        DataStore serving = primary;
+        return serving instanceof LedgerStore ? ((LedgerStore) serving).compactLedgerChunk(cutoff, limit) : 0;
+    }
+
+    @Override
+    public boolean isConnected() throws SQLException {
+        return primary.isConnected() && secondary.isConnected();
+    }
+
+    @Override
+    public boolean playerExistsByUUID(UUID uuid) {
+        return primary.playerExistsByUUID(uuid);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    @Override
+    public String getTablePrefix() {
+        return primary.getTablePrefix();
+    }
+
+    @Override
+    public BalanceFormat getBalanceFormat() {
+        return primary.getBalanceFormat();
+    }
+
+    @Override
+    public UuidFormat getUuidFormat() {
+        return primary.getUuidFormat();
+    }
+
+    /** The store being migrated from. */
+    public DataStore getSource() {
+        return source;
+    }
+
+    /** The store being migrated to. */
+    public DataStore getTarget() {
+        return target;
+    }
+
+    /** The store currently serving reads. */
+    public DataStore getPrimary() {
+        return primary;
+    }
+
+    // ─── Diagnostics ─────────────────────────────────────────────────────────
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    public String getTargetType() {
+        return targetType;
+    }
+
+    public boolean isCutOver() {
+        return cutOver;
+    }
+
+    public boolean isBackfillDone() {
+        return backfillDone;
+    }
+
+    public String getBackfillError() {
+        return backfillError;
+    }
+
+    public long getBackfilled() {
+        return backfilled.sum();
+    }
+
+    public long getBackfillSkipped() {
+        return backfillSkipped.sum();
+    }
+
+    public long getBackfillTotal() {
+        return backfillTotal;
+    }
+
+    public long getMirrorWrites() {
+        return mirrorWrites.sum();
+    }
+
+    public long getMirrorFailures() {
+        return mirrorFailures.sum();
+    }
+
+    public int getUnsyncedCount() {
+        return unsynced.size();
+    }
+}
@@ -0,0 +1,196 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of every account balance, for backups and for loading a copy of the
+ * economy into a test server.
+ *
+ * <p>Layout, big-endian: magic {@code TESN}, a version byte and the creation time (long);
+ * then one record per account — tag {@code 1}, the UUID as two longs and the balance as a
+ * double (25 bytes); then tag {@code 0}, the record count (long) and a CRC32 (int) of all
+ * bytes before it. Export streams the store through a cursor and writes to a temporary
+ * file that is moved into place when complete. Import checks the checksum in a first pass
+ * and only then streams the records into batched writes, so a damaged file writes
+ * nothing. Memory use is one batch either way.
+ */
+public class EconomySnapshot {
+
+    private static final int MAGIC = 0x5445534E; // "TESN"
+    private static final byte VERSION = 1;
+    private static final byte TAG_ACCOUNT = 1;
+    private static final byte TAG_END = 0;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Outcome of an export or import. */
+    public static final class Result {
+        private final long accounts;
+        private final long bytes;
+        private final long millis;
+
+        Result(long accounts, long bytes, long millis) {
+            this.accounts = accounts;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        public long getAccounts() {
+            return accounts;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    private final DataStore store;
+    private final Logger logger;
+
+    public EconomySnapshot(DataStore store, Logger logger) {
+        this.store = store;
+        this.logger = logger;
+    }
+
+    /** Writes every account to {@code file}, replacing it only once the snapshot is complete. */
+    public Result export(File file, int fetchSize) throws IOException {
+        long start = System.currentTimeMillis();
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        long[] count = {0};
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp.toPath()), BUFFER_SIZE), crc))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(start);
+            store.forEachBalance(fetchSize, (uuid, balance) -> {
+                try {
+                    out.writeByte(TAG_ACCOUNT);
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                    out.writeDouble(balance);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to write snapshot", e);
+                }
+                count[0]++;
+            });
+            out.writeByte(TAG_END);
+            out.writeLong(count[0]);
+            out.flush();
+            // The value is taken before the checksum bytes themselves pass through the checked stream
+            out.writeInt((int) crc.getValue());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long millis = System.currentTimeMillis() - start;
+        logger.info("Exported " + count[0] + " accounts to " + file.getName() + " in " + millis + "ms.");
+        return new Result(count[0], file.length(), millis);
+    }
+
+    /**
+     * Verifies {@code file} and hands its accounts to {@code writer} in batches of
+     * {@code batchSize} (normally {@link DataConnector#setPlayerBalances}, which takes the
+     * account locks and records each batch in the ledger and leaderboard). Accounts not in
+     * the snapshot are left as they are.
+     */
+    public Result importFrom(File file, int batchSize, Consumer<Map<UUID, Double>> writer) throws IOException {
+        long start = System.currentTimeMillis();
+        long expected = verify(file);
+        long count = 0;
+        Map<UUID, Double> batch = new LinkedHashMap<>();
+        try (DataInputStream in = open(file)) {
+            readHeader(in);
+            while (in.readByte() == TAG_ACCOUNT) {
+                batch.put(new UUID(in.readLong(), in.readLong()), in.readDouble());
+                if (batch.size() >= batchSize) {
+                    count += writeBatch(batch, writer);
+                }
+            }
+            count += writeBatch(batch, writer);
+        }
+        long millis = System.currentTimeMillis() - start;
+        logger.info("Imported " + count + "/" + expected + " accounts from " + file.getName() + " in " + millis + "ms.");
+        return new Result(count, file.length(), millis);
+    }
+
+    private int writeBatch(Map<UUID, Double> batch, Consumer<Map<UUID, Double>> writer) {
+        if (batch.isEmpty()) return 0;
+        int size = batch.size();
+        writer.accept(batch);
+        // Push write-behind layers to the database so they never hold more than one batch
+        store.saveDatabase();
+        batch.clear();
+        return size;
+    }
+
+    /** Reads the whole file once, returning its record count if structure and checksum are intact. */
+    private long verify(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE), crc))) {
+            readHeader(in);
+            long records = 0;
+            byte tag;
+            while ((tag = in.readByte()) == TAG_ACCOUNT) {
+                in.skipNBytes(24);
+                records++;
+            }
+            if (tag != TAG_END) {
+                throw new IOException("Corrupt snapshot: unexpected record tag " + tag + " after " + records + " records");
+            }
+            long declared = in.readLong();
+            int expectedCrc = (int) crc.getValue();
+            int storedCrc = in.readInt();
+            if (storedCrc != expectedCrc) {
+                throw new IOException("Corrupt snapshot: checksum mismatch");
+            }
+            if (declared != records) {
+                throw new IOException("Corrupt snapshot: footer declares " + declared + " records, found " + records);
+            }
+            if (in.read() != -1) {
+                throw new IOException("Corrupt snapshot: trailing bytes after footer");
+            }
+            return records;
+        } catch (EOFException e) {
+            throw new IOException("Corrupt snapshot: file is truncated", e);
+        }
+    }
+
+    private static DataInputStream open(File file) throws IOException {
+        InputStream in = Files.newInputStream(file.toPath());
+        return new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+    }
+
+    private static void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a TokenEconomy snapshot");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        in.readLong();
+    }
+}
@@ -13,7 +13,8 @@ import java.util.logging.Logger;
 
 /**
  * Seeds the economy table with deterministic test data.
- * The economy table schema: UUID (TEXT/VARCHAR PK), BALANCE (REAL/DOUBLE).
+ * The economy table schema: UUID (TEXT/VARCHAR PK), BALANCE (REAL/DOUBLE, or INTEGER/BIGINT
+ * minor units in fixed-point mode).
  */
 public class EconomyTestDataGenerator {
 
@@ -100,11 +101,13 @@ public class EconomyTestDataGenerator {
                 " (UUID, BALANCE) VALUES (?, ?)";
         }
 
+        BalanceFormat format = dataStore.getBalanceFormat();
+        UuidFormat keys = dataStore.getUuidFormat();
         int inserted = 0;
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             for (int i = 0; i < count; i++) {
-                stmt.setString(1, testUUID(i).toString());
-                stmt.setDouble(2, generateBalance(i));
+                keys.bind(stmt, 1, testUUID(i));
+                format.bind(stmt, 2, generateBalance(i));
                 stmt.addBatch();
                 inserted++;
                 if (inserted % 100 == 0) stmt.executeBatch();
@@ -134,7 +137,7 @@ public class EconomyTestDataGenerator {
                     String sql = "DELETE FROM " + table("economy") + " WHERE UUID = ?";
                     try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                         for (int i = 0; i < deleteCount; i++) {
-                            stmt.setString(1, testUUID(i).toString());
+                            dataStore.getUuidFormat().bind(stmt, 1, testUUID(i));
                             stmt.addBatch();
                             if (i > 0 && i % 100 == 0) stmt.executeBatch();
                         }
@@ -167,7 +170,7 @@ public class EconomyTestDataGenerator {
                     int deleted;
                     try (PreparedStatement stmt = conn.prepareStatement(
                             "DELETE FROM " + table("economy") + " WHERE UUID = ?")) {
-                        stmt.setString(1, playerUuid.toString());
+                        dataStore.getUuidFormat().bind(stmt, 1, playerUuid);
                         deleted = stmt.executeUpdate();
                     }
                     conn.commit();
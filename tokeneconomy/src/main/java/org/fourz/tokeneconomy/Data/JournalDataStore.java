@@ -0,0 +1,950 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Balance store without a database, for single-server deployments (storage.type journal).
+ *
+ * <p>Every account lives in an in-memory {@link AccountTable}. Each mutation appends a
+ * checksummed record carrying the resulting balance to a memory-mapped log segment in
+ * the plugin data folder, so replaying a record twice is harmless. A checkpoint rotates
+ * to a new segment, writes the table to a snapshot and deletes the segments it covers;
+ * recovery loads the snapshot and replays the newer segments.
+ *
+ * <p>An appended record is in the page cache immediately, so a crash of the server
+ * process loses nothing. The fsync policy bounds what an OS crash or power loss can
+ * take: nothing ({@code write}), one tick ({@code tick}) or the configured interval
+ * ({@code interval}). There is no SQL connection; tools that need one do not work here.
+ */
+public class JournalDataStore implements DataStore {
+
+    private static final int SEGMENT_MAGIC = 0x54454A4C;  // "TEJL"
+    private static final int SNAPSHOT_MAGIC = 0x54454A53; // "TEJS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+
+    // Record layout: type, payload, CRC32C of type + payload. Unwritten space reads as END.
+    private static final byte RECORD_END = 0;
+    private static final byte RECORD_BALANCE = 1;  // uuid, balance
+    private static final byte RECORD_TRANSFER = 2; // uuid, balance, uuid, balance (applied together)
+    private static final byte RECORD_NAME = 3;     // uuid, length, UTF-8 name
+    private static final int BALANCE_RECORD_BYTES = 1 + 24 + 4;
+    private static final int TRANSFER_RECORD_BYTES = 1 + 48 + 4;
+    private static final int MAX_NAME_BYTES = 255;
+
+    private static final long TICK_MILLIS = 50L;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final Logger logger;
+    private final String fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final int segmentBytes;
+    private final long checkpointIntervalMillis;
+
+    // Write lock for mutations (they append to the segment), read lock for lookups
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object checkpointLock = new Object();
+    private AccountTable accounts = new AccountTable(0);
+    // Insertion order is recency: a saved name moves to the end
+    private final LinkedHashMap<UUID, String> names = new LinkedHashMap<>();
+    private final CRC32C recordChecksum = new CRC32C();
+
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private long generation;
+    private boolean unforced;
+    private volatile long recordsSinceCheckpoint;
+    private volatile boolean open;
+    private ScheduledExecutorService maintenance;
+
+    private final LongAdder appendedRecords = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private volatile long recoveredRecords;
+    private volatile long lastCheckpointAt;
+    private volatile long lastCheckpointDurationMillis;
+    private volatile int lastCheckpointAccounts;
+    private volatile long failedCheckpoints;
+
+    public JournalDataStore(File directory, Logger logger, String fsyncPolicy, long fsyncIntervalMillis,
+                            int segmentSizeMb, long checkpointIntervalSeconds) {
+        this.directory = directory.toPath();
+        this.logger = logger;
+        String policy = fsyncPolicy != null ? fsyncPolicy.toLowerCase() : "tick";
+        if (!policy.matches("write|tick|interval")) {
+            logger.warning("Unknown storage.journal.fsync '" + fsyncPolicy + "', using tick.");
+            policy = "tick";
+        }
+        this.fsyncPolicy = policy;
+        this.fsyncIntervalMillis = "interval".equals(policy) ? Math.max(1L, fsyncIntervalMillis) : TICK_MILLIS;
+        this.segmentBytes = Math.max(1, Math.min(segmentSizeMb, 1024)) * 1024 * 1024;
+        this.checkpointIntervalMillis = Math.max(10L, checkpointIntervalSeconds) * 1000L;
+    }
+
+    // ─── Lifecycle ───────────────────────────────────────────────────────────
+
+    @Override
+    public void setupDatabase() {
+        long start = System.currentTimeMillis();
+        long replayed = 0;
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(directory);
+            long snapshotGeneration = loadSnapshot();
+            List<Long> segments = segmentGenerations();
+            long next = snapshotGeneration;
+            for (long gen : segments) {
+                next = Math.max(next, gen + 1);
+                if (gen >= snapshotGeneration) replayed += replaySegment(gen, gen == segments.get(segments.size() - 1));
+            }
+            recoveredRecords = replayed;
+            // Always append to a fresh segment, never behind a possibly torn tail
+            openSegment(next);
+            open = true;
+            logger.info("Balance journal recovered " + accounts.size() + " accounts (" + replayed +
+                " records replayed) in " + (System.currentTimeMillis() - start) + "ms.");
+        } catch (IOException e) {
+            logger.severe("Failed to open balance journal: " + e.getMessage());
+            throw new RuntimeException("Failed to open balance journal", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Fold whatever was replayed into a new snapshot so the next start is a plain load
+        if (replayed > 0) {
+            checkpoint();
+        } else {
+            deleteSegmentsBefore(generation);
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        maintenance = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "TokenEconomy-Journal-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        if (!"write".equals(fsyncPolicy)) {
+            maintenance.scheduleAtFixedRate(this::forceQuietly, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        maintenance.scheduleWithFixedDelay(() -> {
+            if (recordsSinceCheckpoint > 0) checkpoint();
+        }, checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Journal storage enabled (fsync " + describeFsync() + ", checkpoint every " +
+            checkpointIntervalMillis / 1000 + "s).");
+    }
+
+    @Override
+    public void saveDatabase() {
+        forceQuietly();
+    }
+
+    @Override
+    public void closeDatabase() {
+        if (maintenance != null) {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (recordsSinceCheckpoint > 0) checkpoint();
+        lock.writeLock().lock();
+        try {
+            if (!open) return;
+            open = false;
+            segment.force();
+            segmentChannel.close();
+        } catch (IOException e) {
+            logger.severe("Failed to close balance journal: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ─── Balances ────────────────────────────────────────────────────────────
+
+    @Override
+    public double getPlayerBalanceByUUID(UUID playerUUID) {
+        return findPlayerBalanceByUUID(playerUUID).orElse(0.0);
+    }
+
+    @Override
+    public Optional<Double> findPlayerBalanceByUUID(UUID playerUUID) {
+        lock.readLock().lock();
+        try {
+            int slot = accounts.find(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits());
+            return slot < 0 ? Optional.empty() : Optional.of(accounts.balanceAt(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean changePlayerBalance(UUID playerUUID, double amount) {
+        return changePlayerBalanceAndGet(playerUUID, amount).isSuccess();
+    }
+
+    @Override
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount) {
+        lock.writeLock().lock();
+        try {
+            return applyChange(playerUUID, amount);
+        } catch (IOException e) {
+            logger.warning("Failed to journal balance change: " + e.getMessage());
+            return BalanceChange.failed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Same rules as the SQL stores: never below zero, missing accounts only created by credits. */
+    private BalanceChange applyChange(UUID uuid, double amount) throws IOException {
+        int slot = accounts.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        double balance;
+        if (slot >= 0) {
+            double current = accounts.balanceAt(slot);
+            if (current + amount < 0) return BalanceChange.rejected(current);
+            balance = current + amount;
+        } else {
+            if (amount < 0) return BalanceChange.rejected(0.0);
+            balance = amount;
+        }
+        store(uuid, balance);
+        return BalanceChange.applied(balance);
+    }
+
+    /**
+     * Applies each change under one lock hold. Records already appended stay applied if a
+     * later one fails, so the result reports each account individually.
+     */
+    @Override
+    public Map<UUID, BalanceChange> changeBalances(Map<UUID, Double> changes) {
+        Map<UUID, BalanceChange> results = new LinkedHashMap<>();
+        int failed = 0;
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<UUID, Double> change : changes.entrySet()) {
+                try {
+                    results.put(change.getKey(), applyChange(change.getKey(), change.getValue()));
+                } catch (IOException e) {
+                    results.put(change.getKey(), BalanceChange.failed());
+                    failed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (failed > 0) {
+            logger.warning("Failed to journal " + failed + " of " + changes.size() + " batched balance changes.");
+        }
+        return results;
+    }
+
+    @Override
+    public TransferResult transfer(UUID from, UUID to, double amount) {
+        if (amount <= 0 || from.equals(to)) return TransferResult.rejected();
+        lock.writeLock().lock();
+        try {
+            int source = accounts.find(from.getMostSignificantBits(), from.getLeastSignificantBits());
+            if (source < 0 || accounts.balanceAt(source) < amount) return TransferResult.rejected();
+            int target = accounts.find(to.getMostSignificantBits(), to.getLeastSignificantBits());
+            double fromBalance = accounts.balanceAt(source) - amount;
+            double toBalance = target >= 0 ? accounts.balanceAt(target) + amount : amount;
+
+            // One record for both sides, so replay never sees half a transfer
+            ensureWritable(TRANSFER_RECORD_BYTES);
+            int start = segment.position();
+            segment.put(RECORD_TRANSFER);
+            putAccount(from, fromBalance);
+            putAccount(to, toBalance);
+            sealRecord(start);
+            accounts.put(from.getMostSignificantBits(), from.getLeastSignificantBits(), fromBalance);
+            accounts.put(to.getMostSignificantBits(), to.getLeastSignificantBits(), toBalance);
+            return TransferResult.applied(fromBalance, toBalance);
+        } catch (IOException e) {
+            logger.warning("Failed to journal transfer: " + e.getMessage());
+            return TransferResult.failed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setPlayerBalance(UUID playerUUID, double balance) {
+        lock.writeLock().lock();
+        try {
+            store(playerUUID, balance);
+        } catch (IOException e) {
+            logger.severe("Failed to journal player balance: " + e.getMessage());
+            throw new RuntimeException("Failed to set balance", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setPlayerBalances(Map<UUID, Double> balances) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
+                store(entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            logger.severe("Failed to journal player balances: " + e.getMessage());
+            throw new RuntimeException("Failed to set balances", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Double> getTopBalances(int limit) {
+        if (limit <= 0) return new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            // Min-heap of the best slots seen so far
+            PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+                (a, b) -> Double.compare(accounts.balanceAt(a), accounts.balanceAt(b)));
+            for (int slot = 0; slot < accounts.capacity(); slot++) {
+                if (!accounts.isUsed(slot)) continue;
+                if (best.size() < limit) {
+                    best.add(slot);
+                } else if (accounts.balanceAt(slot) > accounts.balanceAt(best.peek())) {
+                    best.poll();
+                    best.add(slot);
+                }
+            }
+            List<Integer> ranked = new ArrayList<>(best);
+            ranked.sort((a, b) -> Double.compare(accounts.balanceAt(b), accounts.balanceAt(a)));
+            Map<String, Double> top = new LinkedHashMap<>();
+            for (int slot : ranked) {
+                UUID uuid = new UUID(accounts.msbAt(slot), accounts.lsbAt(slot));
+                String name = names.get(uuid);
+                top.put(name != null ? name : uuid.toString(), accounts.balanceAt(slot));
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Double> getAllPlayerBalances() {
+        lock.readLock().lock();
+        try {
+            Map<String, Double> balances = new LinkedHashMap<>();
+            for (int slot = 0; slot < accounts.capacity(); slot++) {
+                if (!accounts.isUsed(slot)) continue;
+                balances.put(new UUID(accounts.msbAt(slot), accounts.lsbAt(slot)).toString(), accounts.balanceAt(slot));
+            }
+            return balances;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Iterates a copy of the table (growing it rehashes slots, so positions cannot be
+     * resumed), calling the action without holding the lock.
+     */
+    @Override
+    public long forEachBalance(int fetchSize, BiConsumer<UUID, Double> action) {
+        AccountTable copy;
+        lock.readLock().lock();
+        try {
+            copy = accounts.copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+        long rows = 0;
+        for (int slot = 0; slot < copy.capacity(); slot++) {
+            if (!copy.isUsed(slot)) continue;
+            action.accept(new UUID(copy.msbAt(slot), copy.lsbAt(slot)), copy.balanceAt(slot));
+            rows++;
+        }
+        return rows;
+    }
+
+    @Override
+    public long forEachBalanceInRange(UUID from, UUID to, int fetchSize, BiConsumer<UUID, Double> action) {
+        List<UUID> keys = new ArrayList<>();
+        Map<UUID, Double> balances = new HashMap<>();
+        // Only the matching accounts are copied out, so small ranges stay cheap
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < accounts.capacity(); slot++) {
+                if (!accounts.isUsed(slot)) continue;
+                if (!inKeyRange(accounts.msbAt(slot), accounts.lsbAt(slot), from, to)) continue;
+                UUID uuid = new UUID(accounts.msbAt(slot), accounts.lsbAt(slot));
+                keys.add(uuid);
+                balances.put(uuid, accounts.balanceAt(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        keys.sort(JournalDataStore::compareUnsigned);
+        for (UUID uuid : keys) {
+            action.accept(uuid, balances.get(uuid));
+        }
+        return keys.size();
+    }
+
+    @Override
+    public BalanceSummary summarizeBalances(UUID from, UUID to) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            double sum = 0;
+            for (int slot = 0; slot < accounts.capacity(); slot++) {
+                if (!accounts.isUsed(slot)) continue;
+                if (!inKeyRange(accounts.msbAt(slot), accounts.lsbAt(slot), from, to)) continue;
+                count++;
+                sum += accounts.balanceAt(slot);
+            }
+            return new BalanceSummary(count, sum);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Compares the raw longs so scanning a range allocates nothing for accounts outside it. */
+    private static boolean inKeyRange(long msb, long lsb, UUID from, UUID to) {
+        return (from == null || compareUnsigned(msb, lsb, from) >= 0) && (to == null || compareUnsigned(msb, lsb, to) < 0);
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        return compareUnsigned(a.getMostSignificantBits(), a.getLeastSignificantBits(), b);
+    }
+
+    /** UUID.compareTo compares signed longs; the SQL stores order keys as unsigned bytes. */
+    private static int compareUnsigned(long msb, long lsb, UUID b) {
+        int high = Long.compareUnsigned(msb, b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(lsb, b.getLeastSignificantBits());
+    }
+
+    @Override
+    public boolean playerExistsByUUID(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            return accounts.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ─── Names ───────────────────────────────────────────────────────────────
+
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uuids) {
+        Map<UUID, String> found = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (UUID uuid : uuids) {
+                String name = names.get(uuid);
+                if (name != null) found.put(uuid, name);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    @Override
+    public Map<UUID, String> loadPlayerNames(int limit) {
+        Map<UUID, String> recent = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<UUID, String> entry : names.reversed().entrySet()) {
+                if (recent.size() >= limit) break;
+                recent.put(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return recent;
+    }
+
+    @Override
+    public void savePlayerNames(Map<UUID, String> updates) {
+        if (updates.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<UUID, String> entry : updates.entrySet()) {
+                String previous = names.remove(entry.getKey());
+                names.put(entry.getKey(), entry.getValue());
+                if (!entry.getValue().equals(previous)) {
+                    appendName(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to save player names: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ─── DataStore plumbing ──────────────────────────────────────────────────
+
+    @Override
+    public boolean isConnected() throws SQLException {
+        return open;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        throw new SQLException("Journal storage has no SQL connection");
+    }
+
+    @Override
+    public String getTablePrefix() {
+        return "";
+    }
+
+    @Override
+    public BalanceFormat getBalanceFormat() {
+        return BalanceFormat.decimal();
+    }
+
+    @Override
+    public UuidFormat getUuidFormat() {
+        return UuidFormat.binary();
+    }
+
+    // ─── Segment appends ─────────────────────────────────────────────────────
+
+    /** Journals the new balance, then applies it. Caller holds the write lock. */
+    private void store(UUID uuid, double balance) throws IOException {
+        ensureWritable(BALANCE_RECORD_BYTES);
+        int start = segment.position();
+        segment.put(RECORD_BALANCE);
+        putAccount(uuid, balance);
+        sealRecord(start);
+        accounts.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), balance);
+    }
+
+    private void appendName(UUID uuid, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_NAME_BYTES);
+        ensureWritable(1 + 16 + 2 + length + 4);
+        int start = segment.position();
+        segment.put(RECORD_NAME)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .putShort((short) length)
+            .put(bytes, 0, length);
+        sealRecord(start);
+    }
+
+    private void putAccount(UUID uuid, double balance) {
+        segment.putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .putDouble(balance);
+    }
+
+    /** Appends the checksum of the record started at {@code start} and applies the fsync policy. */
+    private void sealRecord(int start) {
+        ByteBuffer body = segment.duplicate();
+        body.position(start).limit(segment.position());
+        recordChecksum.reset();
+        recordChecksum.update(body);
+        segment.putInt((int) recordChecksum.getValue());
+        appendedRecords.increment();
+        recordsSinceCheckpoint++;
+        if ("write".equals(fsyncPolicy)) {
+            segment.force(start, segment.position() - start);
+            fsyncs.increment();
+        } else {
+            unforced = true;
+        }
+    }
+
+    private void ensureWritable(int bytes) throws IOException {
+        if (!open) throw new IOException("Balance journal is closed");
+        if (segment.remaining() >= bytes) return;
+        rotateSegment();
+        // A full segment is the cue to compact
+        if (maintenance != null && !maintenance.isShutdown()) {
+            maintenance.execute(this::checkpoint);
+        }
+    }
+
+    private void rotateSegment() throws IOException {
+        segment.force();
+        segmentChannel.close();
+        openSegment(generation + 1);
+    }
+
+    private void openSegment(long gen) throws IOException {
+        segmentChannel = FileChannel.open(segmentPath(gen),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION).putLong(gen);
+        segment.force(0, SEGMENT_HEADER_BYTES);
+        generation = gen;
+        unforced = false;
+    }
+
+    private void forceQuietly() {
+        MappedByteBuffer pending;
+        lock.writeLock().lock();
+        try {
+            if (!open || !unforced) return;
+            pending = segment;
+            unforced = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // msync outside the lock; appends may continue into the same mapping meanwhile
+        try {
+            pending.force();
+            fsyncs.increment();
+        } catch (RuntimeException e) {
+            logger.warning("Failed to sync balance journal: " + e.getMessage());
+        }
+    }
+
+    // ─── Checkpoints and recovery ────────────────────────────────────────────
+
+    /**
+     * Starts a new segment, writes everything before it to the snapshot and deletes the
+     * segments the snapshot now covers. Appends continue while the snapshot is written.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            long start = System.currentTimeMillis();
+            AccountTable copy;
+            Map<UUID, String> namesCopy;
+            long snapshotGeneration;
+            long covered;
+            lock.writeLock().lock();
+            try {
+                if (!open) return;
+                rotateSegment();
+                snapshotGeneration = generation;
+                copy = accounts.copy();
+                namesCopy = new LinkedHashMap<>(names);
+                covered = recordsSinceCheckpoint;
+            } catch (IOException e) {
+                failedCheckpoints++;
+                logger.warning("Journal checkpoint failed to start a new segment: " + e.getMessage());
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                writeSnapshot(snapshotGeneration, copy, namesCopy);
+            } catch (IOException e) {
+                failedCheckpoints++;
+                logger.warning("Journal checkpoint failed, segments kept for replay: " + e.getMessage());
+                return;
+            }
+            deleteSegmentsBefore(snapshotGeneration);
+            lock.writeLock().lock();
+            try {
+                recordsSinceCheckpoint -= covered;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastCheckpointAt = System.currentTimeMillis();
+            lastCheckpointDurationMillis = lastCheckpointAt - start;
+            lastCheckpointAccounts = copy.size();
+        }
+    }
+
+    private void writeSnapshot(long snapshotGeneration, AccountTable table, Map<UUID, String> snapshotNames) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        CRC32C checksum = new CRC32C();
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new CheckedOutputStream(file, checksum), 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(table.size());
+            for (int slot = 0; slot < table.capacity(); slot++) {
+                if (!table.isUsed(slot)) continue;
+                out.writeLong(table.msbAt(slot));
+                out.writeLong(table.lsbAt(slot));
+                out.writeDouble(table.balanceAt(slot));
+            }
+            out.writeInt(snapshotNames.size());
+            for (Map.Entry<UUID, String> entry : snapshotNames.entrySet()) {
+                byte[] bytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                int length = Math.min(bytes.length, MAX_NAME_BYTES);
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeShort(length);
+                out.write(bytes, 0, length);
+            }
+            out.flush();
+            // Trailer goes straight to the file so it is not part of its own checksum
+            file.write(ByteBuffer.allocate(4).putInt((int) checksum.getValue()).array());
+            file.getChannel().force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Loads the snapshot into memory and returns the first segment it does not cover (0 without one). */
+    private long loadSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) return 0;
+        byte[] data = Files.readAllBytes(path);
+        if (data.length < 28) throw new IOException("Journal snapshot is truncated: " + path);
+        CRC32C checksum = new CRC32C();
+        checksum.update(data, 0, data.length - 4);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if ((int) checksum.getValue() != in.getInt(data.length - 4)) {
+            throw new IOException("Journal snapshot checksum mismatch: " + path);
+        }
+        if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported journal snapshot: " + path);
+        }
+        long snapshotGeneration = in.getLong();
+        int count = in.getInt();
+        accounts = new AccountTable(count);
+        for (int i = 0; i < count; i++) {
+            accounts.put(in.getLong(), in.getLong(), in.getDouble());
+        }
+        int nameCount = in.getInt();
+        for (int i = 0; i < nameCount; i++) {
+            UUID uuid = new UUID(in.getLong(), in.getLong());
+            byte[] bytes = new byte[in.getShort() & 0xFFFF];
+            in.get(bytes);
+            names.put(uuid, new String(bytes, StandardCharsets.UTF_8));
+        }
+        return snapshotGeneration;
+    }
+
+    /**
+     * Applies every intact record of a segment; stops at the end marker or a torn record.
+     * The newest segment may have been created but not yet given its header when the
+     * process died; a missing or all-zero header there means an empty segment.
+     */
+    private long replaySegment(long gen, boolean newest) throws IOException {
+        Path path = segmentPath(gen);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (newest && unwrittenHeader(in)) {
+                logger.warning("Journal segment " + path.getFileName() + " has no header (interrupted while " +
+                    "being created); treating it as empty.");
+                return 0;
+            }
+            if (in.remaining() < SEGMENT_HEADER_BYTES || in.getInt() != SEGMENT_MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported journal segment: " + path);
+            }
+            in.getLong();
+            CRC32C checksum = new CRC32C();
+            long records = 0;
+            while (in.hasRemaining()) {
+                int start = in.position();
+                byte type = in.get(start);
+                if (type == RECORD_END) break;
+                int length = recordLength(in, start);
+                if (length < 0 || start + length > in.limit() || !checksumMatches(in, start, length, checksum)) {
+                    logger.warning("Journal segment " + path.getFileName() + " ends in an incomplete record at offset " +
+                        start + "; the rest of the segment is ignored.");
+                    break;
+                }
+                in.position(start + 1);
+                switch (type) {
+                    case RECORD_BALANCE:
+                        accounts.put(in.getLong(), in.getLong(), in.getDouble());
+                        break;
+                    case RECORD_TRANSFER:
+                        accounts.put(in.getLong(), in.getLong(), in.getDouble());
+                        accounts.put(in.getLong(), in.getLong(), in.getDouble());
+                        break;
+                    default:
+                        UUID uuid = new UUID(in.getLong(), in.getLong());
+                        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+                        in.get(bytes);
+                        names.remove(uuid);
+                        names.put(uuid, new String(bytes, StandardCharsets.UTF_8));
+                }
+                in.position(start + length);
+                records++;
+            }
+            return records;
+        }
+    }
+
+    private static boolean unwrittenHeader(ByteBuffer in) {
+        if (in.limit() < SEGMENT_HEADER_BYTES) return true;
+        for (int i = 0; i < SEGMENT_HEADER_BYTES; i++) {
+            if (in.get(i) != 0) return false;
+        }
+        return true;
+    }
+
+    /** Total length of the record at {@code start}, or -1 when its type or length is invalid. */
+    private static int recordLength(ByteBuffer in, int start) {
+        switch (in.get(start)) {
+            case RECORD_BALANCE:
+                return BALANCE_RECORD_BYTES;
+            case RECORD_TRANSFER:
+                return TRANSFER_RECORD_BYTES;
+            case RECORD_NAME:
+                if (start + 19 > in.limit()) return -1;
+                int nameLength = in.getShort(start + 17) & 0xFFFF;
+                return nameLength > MAX_NAME_BYTES ? -1 : 1 + 16 + 2 + nameLength + 4;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean checksumMatches(ByteBuffer in, int start, int length, CRC32C checksum) {
+        ByteBuffer body = in.duplicate();
+        body.position(start).limit(start + length - 4);
+        checksum.reset();
+        checksum.update(body);
+        return (int) checksum.getValue() == in.getInt(start + length - 4);
+    }
+
+    private List<Long> segmentGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private void deleteSegmentsBefore(long snapshotGeneration) {
+        try {
+            for (long gen : segmentGenerations()) {
+                if (gen >= snapshotGeneration) continue;
+                try {
+                    Files.deleteIfExists(segmentPath(gen));
+                } catch (IOException e) {
+                    // Still mapped on some platforms; replay skips it and the next checkpoint retries
+                    logger.fine("Could not delete journal segment " + gen + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to list journal segments: " + e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long gen) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, gen, SEGMENT_SUFFIX));
+    }
+
+    private String describeFsync() {
+        return "write".equals(fsyncPolicy) ? "every write" : "every " + fsyncIntervalMillis + "ms";
+    }
+
+    // ─── Diagnostics ─────────────────────────────────────────────────────────
+
+    public String getFsyncPolicy() {
+        return describeFsync();
+    }
+
+    public int getAccountCount() {
+        lock.readLock().lock();
+        try {
+            return accounts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getGeneration() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Bytes used in the active segment, including its header. */
+    public int getSegmentUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return segment != null ? segment.position() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public long getRecordsSinceCheckpoint() {
+        return recordsSinceCheckpoint;
+    }
+
+    public long getAppendedRecords() {
+        return appendedRecords.sum();
+    }
+
+    public long getFsyncCount() {
+        return fsyncs.sum();
+    }
+
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public long getLastCheckpointAt() {
+        return lastCheckpointAt;
+    }
+
+    public long getLastCheckpointDurationMillis() {
+        return lastCheckpointDurationMillis;
+    }
+
+    public int getLastCheckpointAccounts() {
+        return lastCheckpointAccounts;
+    }
+
+    public long getFailedCheckpoints() {
+        return failedCheckpoints;
+    }
+}
@@ -0,0 +1,148 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Background retention job for the ledger table.
+ *
+ * <p>Raw rows from before the retention window (aligned to a UTC day, so each day is
+ * rolled up whole) are folded into per-player daily totals in the ledger_daily table
+ * and deleted. Work is done in chunks of bounded size, each its own short transaction,
+ * with a pause between chunks that returns the connection to the pool — on SQLite that
+ * is the single writer the balance path also needs.
+ */
+public class LedgerCompactor {
+
+    private final LedgerStore store;
+    private final Logger logger;
+    private final int retentionDays;
+    private final long intervalMillis;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopped;
+    private ScheduledExecutorService scheduler;
+
+    private volatile long lastRunAt;
+    private volatile long lastRunMillis;
+    private volatile long lastRunRows;
+    private volatile int lastRunChunks;
+    private volatile long totalRows;
+    private volatile long failedRuns;
+
+    public LedgerCompactor(LedgerStore store, Logger logger, int retentionDays, long intervalMinutes,
+                           int chunkSize, long pauseMillis) {
+        this.store = store;
+        this.logger = logger;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.intervalMillis = Math.max(1L, intervalMinutes) * 60_000L;
+        this.chunkSize = Math.max(10, chunkSize);
+        this.pauseMillis = Math.max(0L, pauseMillis);
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TokenEconomy-LedgerCompactor");
+            t.setDaemon(true);
+            return t;
+        });
+        // First run a few minutes after startup, away from the login rush
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, Math.min(intervalMillis, 300_000L),
+            intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Ledger compaction enabled (rows older than " + retentionDays + " days, chunks of " + chunkSize + ").");
+    }
+
+    public void close() {
+        stopped = true;
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Runs one compaction pass on the calling thread; returns rows folded, or -1 if a pass is already running. */
+    public long compact() {
+        if (!running.compareAndSet(false, true)) return -1;
+        long start = System.currentTimeMillis();
+        long cutoff = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays)
+            .atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        long rows = 0;
+        int chunks = 0;
+        try {
+            while (!stopped) {
+                int folded = store.compactLedgerChunk(cutoff, chunkSize);
+                if (folded == 0) break;
+                rows += folded;
+                chunks++;
+                if (folded < chunkSize) break;
+                // Let queued balance writes through before taking the next chunk
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lastRunAt = System.currentTimeMillis();
+            lastRunMillis = lastRunAt - start;
+            lastRunRows = rows;
+            lastRunChunks = chunks;
+            totalRows += rows;
+            running.set(false);
+        }
+        if (rows > 0) {
+            logger.info("Ledger compaction folded " + rows + " rows in " + chunks + " chunks (" + lastRunMillis + "ms).");
+        }
+        return rows;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            failedRuns++;
+            logger.warning("Ledger compaction failed, will retry next interval: " + e.getMessage());
+        }
+    }
+
+    // ─── Diagnostics ─────────────────────────────────────────────────────────
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    public long getLastRunAt() {
+        return lastRunAt;
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    public long getLastRunRows() {
+        return lastRunRows;
+    }
+
+    public int getLastRunChunks() {
+        return lastRunChunks;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getFailedRuns() {
+        return failedRuns;
+    }
+}
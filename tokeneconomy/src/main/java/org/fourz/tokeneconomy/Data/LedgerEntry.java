@@ -0,0 +1,51 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.UUID;
+
+/**
+ * One row of the transaction ledger. Entries written by the same operation (both legs of
+ * a transfer, every account of a batch) share a transaction id. Delta or balance are null
+ * when the operation did not know them, e.g. the previous balance of an overwritten account.
+ */
+public final class LedgerEntry {
+
+    private final UUID txId;
+    private final UUID uuid;
+    private final Double delta;
+    private final Double balance;
+    private final String cause;
+    private final long createdAt;
+
+    public LedgerEntry(UUID txId, UUID uuid, Double delta, Double balance, String cause, long createdAt) {
+        this.txId = txId;
+        this.uuid = uuid;
+        this.delta = delta;
+        this.balance = balance;
+        this.cause = cause;
+        this.createdAt = createdAt;
+    }
+
+    public UUID getTxId() {
+        return txId;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public Double getDelta() {
+        return delta;
+    }
+
+    public Double getBalance() {
+        return balance;
+    }
+
+    public String getCause() {
+        return cause;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,19 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.List;
+
+/**
+ * Storage for the transaction ledger. Kept apart from {@link DataStore} because only the
+ * SQL backends have ledger tables; the connector starts a ledger only when its store
+ * chain offers one.
+ */
+public interface LedgerStore {
+    /** Appends entries to the ledger table in one batched transaction; throws on failure. */
+    void writeLedger(List<LedgerEntry> entries);
+    /**
+     * Folds up to {@code limit} of the oldest ledger rows created before {@code cutoff}
+     * into per-player daily rollups and deletes them, in one transaction. Returns the
+     * number of rows folded; 0 when none are left.
+     */
+    int compactLedgerChunk(long cutoff, int limit);
+}
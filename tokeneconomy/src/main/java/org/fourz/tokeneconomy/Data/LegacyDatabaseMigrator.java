@@ -9,32 +9,78 @@ import java.util.logging.Logger;
  *
  * <p>Earlier versions stored economy/database.db one level above the plugin data folder.
  * This migrator moves it to the current location on first startup when the
- * {@code storage.migrate_old_economy} config flag is true.
+ * {@code economy.migrate_old_economy} config flag is true. When the current database
+ * already exists, the legacy rows can instead be merged into it under the
+ * {@code economy.legacyMergePolicy} conflict policy.
  */
 public class LegacyDatabaseMigrator {
 
+    /** What to do with a legacy balance when the account also exists in the current table. */
+    public enum MergePolicy {
+        /** Leave both files alone (the behaviour before merging existed). */
+        SKIP,
+        /**
+         * Keep the balance from whichever database file was written last. The economy table
+         * has no per-row timestamps, so recency is decided per file.
+         */
+        NEWER,
+        /** Add the legacy balance to the current one. */
+        SUM,
+        /** Keep the larger of the two balances. */
+        MAX;
+
+        public static MergePolicy fromConfig(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return SKIP;
+            }
+        }
+    }
+
+    private static final int BATCH_SIZE = 1000;
+
     private final File targetDbFile;
     private final Logger logger;
+    private final MergePolicy policy;
 
     public LegacyDatabaseMigrator(File targetDbFile, Logger logger) {
+        this(targetDbFile, logger, MergePolicy.SKIP);
+    }
+
+    public LegacyDatabaseMigrator(File targetDbFile, Logger logger, MergePolicy policy) {
         this.targetDbFile = targetDbFile;
         this.logger = logger;
+        this.policy = policy;
+    }
+
+    private File legacyDbFile() {
+        return new File(targetDbFile.getParentFile().getParentFile(), "economy/database.db");
     }
 
     /**
      * Attempts to move the legacy database file into the current plugin data folder.
      * Safe to call even when no legacy file exists — logs and returns cleanly.
+     * Call before the SQLite pool opens the target file.
+     *
+     * @return true when the target already exists and the legacy rows should be merged
+     *         into it with {@link #merge(DataStore)} once the store is set up
      */
-    public void migrate() {
-        File oldDbFile = new File(targetDbFile.getParentFile().getParentFile(), "economy/database.db");
+    public boolean migrate() {
+        File oldDbFile = legacyDbFile();
         if (!oldDbFile.exists()) {
             logger.info("No legacy economy database found — skipping migration.");
-            return;
+            return false;
         }
         logRecordCount(oldDbFile);
         if (targetDbFile.exists()) {
-            logger.info("Target database already exists — skipping legacy file move.");
-            return;
+            if (policy == MergePolicy.SKIP) {
+                logger.info("Target database already exists — skipping legacy file move.");
+                return false;
+            }
+            logger.info("Target database already exists — legacy rows will be merged (" +
+                policy.name().toLowerCase() + ").");
+            return true;
         }
         if (oldDbFile.renameTo(targetDbFile)) {
             tryDelete(oldDbFile);
@@ -42,6 +88,124 @@ public class LegacyDatabaseMigrator {
         } else {
             logger.warning("Failed to move legacy economy database.");
         }
+        return false;
+    }
+
+    /**
+     * Merges the legacy economy table into the store's current table in one transaction.
+     * The legacy file is attached to a pooled connection; with text keys the merge is a
+     * single {@code INSERT ... SELECT ... ON CONFLICT}, with binary keys the rows stream
+     * through batched upserts because blob conversion functions depend on the bundled
+     * SQLite version. Legacy rows are in the original layout (text keys, REAL balances).
+     * On success the legacy file is renamed so a restart cannot merge it twice.
+     *
+     * @return the number of legacy rows applied
+     */
+    public long merge(DataStore store) {
+        File oldDbFile = legacyDbFile();
+        String economy = table(store, "economy");
+        String conflict = conflictClause(oldDbFile);
+        long start = System.currentTimeMillis();
+        long rows;
+        try (Connection conn = store.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ATTACH DATABASE '" + oldDbFile.getPath().replace("'", "''") + "' AS legacy");
+            }
+            try {
+                conn.setAutoCommit(false);
+                rows = store.getUuidFormat().isBinary()
+                    ? mergeBatched(conn, store, economy, conflict)
+                    : mergeSetBased(conn, store, economy, conflict);
+                conn.commit();
+            } catch (SQLException | IllegalArgumentException e) {
+                conn.rollback();
+                throw e instanceof SQLException ? (SQLException) e : new SQLException("Unreadable legacy key", e);
+            } finally {
+                conn.setAutoCommit(true);
+                detach(conn);
+            }
+        } catch (SQLException e) {
+            logger.severe("Failed to merge legacy economy database: " + e.getMessage());
+            throw new RuntimeException("Failed to merge legacy economy database", e);
+        }
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        logger.info("Merged " + rows + " legacy balances (" + policy.name().toLowerCase() + ") in " + elapsed +
+            "ms (" + rows * 1000 / elapsed + " rows/s).");
+        File merged = new File(oldDbFile.getPath() + ".merged");
+        if (!oldDbFile.renameTo(merged)) {
+            logger.warning("Could not rename merged legacy database; disable economy.migrate_old_economy " +
+                "before restarting to avoid merging it again.");
+        }
+        return rows;
+    }
+
+    /**
+     * Detaches the legacy file. A failure only warns: once the merge has committed it must
+     * still count as done, or the flag stays set and a sum merge is applied twice.
+     */
+    private void detach(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DETACH DATABASE legacy");
+        } catch (SQLException e) {
+            logger.warning("Failed to detach the legacy economy database: " + e.getMessage());
+        }
+    }
+
+    private long mergeSetBased(Connection conn, DataStore store, String economy, String conflict) throws SQLException {
+        // WHERE true lets SQLite parse ON CONFLICT after a SELECT
+        String sql = "INSERT INTO " + economy + " (UUID, BALANCE) " +
+            "SELECT UUID, " + AbstractDataStore.balanceConversion(BalanceFormat.decimal(), store.getBalanceFormat()) +
+            " FROM legacy.economy WHERE true " + conflict;
+        try (Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate(sql);
+        }
+    }
+
+    private long mergeBatched(Connection conn, DataStore store, String economy, String conflict) throws SQLException {
+        UuidFormat legacyKey = UuidFormat.text();
+        BalanceFormat legacyBalance = BalanceFormat.decimal();
+        long rows = 0;
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT UUID, BALANCE FROM legacy.economy");
+             PreparedStatement upsert = conn.prepareStatement(
+                "INSERT INTO " + economy + " (UUID, BALANCE) VALUES (?, ?) " + conflict)) {
+            while (rs.next()) {
+                store.getUuidFormat().bind(upsert, 1, legacyKey.read(rs, "UUID"));
+                store.getBalanceFormat().bind(upsert, 2, legacyBalance.read(rs, "BALANCE"));
+                upsert.addBatch();
+                if (++rows % BATCH_SIZE == 0) upsert.executeBatch();
+            }
+            upsert.executeBatch();
+        }
+        return rows;
+    }
+
+    private String conflictClause(File oldDbFile) {
+        switch (policy) {
+            case SUM:
+                return "ON CONFLICT(UUID) DO UPDATE SET BALANCE = BALANCE + excluded.BALANCE";
+            case MAX:
+                return "ON CONFLICT(UUID) DO UPDATE SET BALANCE = MAX(BALANCE, excluded.BALANCE)";
+            case NEWER:
+            default:
+                boolean legacyNewer = oldDbFile.lastModified() > lastWritten(targetDbFile);
+                logger.info("Legacy database is " + (legacyNewer ? "newer" : "older") +
+                    " than the current one; its balances " + (legacyNewer ? "win" : "only fill in missing accounts") + ".");
+                return legacyNewer
+                    ? "ON CONFLICT(UUID) DO UPDATE SET BALANCE = excluded.BALANCE"
+                    : "ON CONFLICT(UUID) DO NOTHING";
+        }
+    }
+
+    /** Recent writes may still sit in the WAL file rather than the main database file. */
+    private static long lastWritten(File dbFile) {
+        return Math.max(dbFile.lastModified(), new File(dbFile.getPath() + "-wal").lastModified());
+    }
+
+    private static String table(DataStore store, String baseName) {
+        String prefix = store.getTablePrefix();
+        return (prefix == null || prefix.isEmpty()) ? baseName : prefix + baseName;
     }
 
     private void logRecordCount(File dbFile) {
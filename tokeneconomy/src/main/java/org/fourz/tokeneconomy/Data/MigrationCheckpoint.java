@@ -0,0 +1,123 @@
+package org.fourz.tokeneconomy.Data;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Per-range progress of a storage migration, kept in a small YAML file next to the
+ * config so a crashed or interrupted migration resumes instead of starting over.
+ *
+ * <p>Each range records whether it is done, the last key of its last committed batch,
+ * and how many accounts the target already held in the range before copying began
+ * (which decides how strictly the range can be verified). A resumed range restarts just
+ * after its last key. A checkpoint written for a different source, target or range
+ * count is ignored.
+ */
+final class MigrationCheckpoint {
+
+    static final String PENDING = "pending";
+    static final String DONE = "done";
+
+    private final File file;
+    private final Logger logger;
+    private final YamlConfiguration yaml;
+
+    private MigrationCheckpoint(File file, Logger logger, YamlConfiguration yaml) {
+        this.file = file;
+        this.logger = logger;
+        this.yaml = yaml;
+    }
+
+    /** Loads the checkpoint for this migration, or starts a fresh one. */
+    static MigrationCheckpoint open(File file, Logger logger, String fromType, String toType, int ranges) {
+        if (file.exists()) {
+            YamlConfiguration existing = YamlConfiguration.loadConfiguration(file);
+            if (fromType.equals(existing.getString("from")) && toType.equals(existing.getString("to"))
+                    && existing.getInt("ranges") == ranges) {
+                return new MigrationCheckpoint(file, logger, existing);
+            }
+            logger.info("Ignoring migration checkpoint written for a different migration.");
+        }
+        YamlConfiguration fresh = new YamlConfiguration();
+        fresh.set("from", fromType);
+        fresh.set("to", toType);
+        fresh.set("ranges", ranges);
+        fresh.set("startedAt", System.currentTimeMillis());
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint(file, logger, fresh);
+        checkpoint.save();
+        return checkpoint;
+    }
+
+    synchronized boolean isResumed() {
+        return yaml.contains("range");
+    }
+
+    synchronized boolean isDone(int range) {
+        return DONE.equals(yaml.getString(path(range, "status")));
+    }
+
+    /** Key to restart the range from, or null to start at its lower bound. */
+    synchronized UUID lastKey(int range) {
+        String key = yaml.getString(path(range, "lastKey"));
+        return key == null ? null : UUID.fromString(key);
+    }
+
+    synchronized long migrated(int range) {
+        return yaml.getLong(path(range, "migrated"));
+    }
+
+    /** Target rows in the range before the first copy, or -1 when not yet recorded. */
+    synchronized long preexisting(int range) {
+        return yaml.contains(path(range, "preexisting")) ? yaml.getLong(path(range, "preexisting")) : -1;
+    }
+
+    synchronized void recordPreexisting(int range, long count) {
+        yaml.set(path(range, "preexisting"), count);
+        save();
+    }
+
+    synchronized void recordBatch(int range, UUID lastKey, long migrated) {
+        yaml.set(path(range, "status"), PENDING);
+        yaml.set(path(range, "lastKey"), lastKey.toString());
+        yaml.set(path(range, "migrated"), migrated);
+        save();
+    }
+
+    synchronized void markDone(int range, long migrated) {
+        yaml.set(path(range, "status"), DONE);
+        yaml.set(path(range, "lastKey"), null);
+        yaml.set(path(range, "migrated"), migrated);
+        save();
+    }
+
+    /** Forgets a range's progress so it is copied again from its lower bound. */
+    synchronized void reset(int range) {
+        yaml.set(path(range, "status"), PENDING);
+        yaml.set(path(range, "lastKey"), null);
+        yaml.set(path(range, "migrated"), 0L);
+        save();
+    }
+
+    void delete() {
+        if (file.exists() && !file.delete()) {
+            logger.warning("Could not delete migration checkpoint " + file.getName());
+        }
+    }
+
+    private void save() {
+        try {
+            yaml.save(file);
+        } catch (IOException e) {
+            // Progress is only lost on a crash; the copy itself is still correct
+            logger.warning("Failed to save migration checkpoint: " + e.getMessage());
+        }
+    }
+
+    private static String path(int range, String field) {
+        return "range." + range + "." + field;
+    }
+}
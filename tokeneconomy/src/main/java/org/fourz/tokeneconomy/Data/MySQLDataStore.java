@@ -1,7 +1,11 @@
 package org.fourz.tokeneconomy.Data;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.bukkit.plugin.Plugin;
@@ -14,17 +18,26 @@ public class MySQLDataStore extends AbstractDataStore {
     private final PoolDelegate pool;
     private final Logger logger;
     private final Plugin plugin;
+    private final boolean sharedDatabase;
 
-    public MySQLDataStore(PoolDelegate pool, ConfigLoader configLoader, Plugin plugin) {
-        super(configLoader.getMySQLTablePrefix());
+    public MySQLDataStore(PoolDelegate pool, ConfigLoader configLoader, Plugin plugin,
+                          BalanceFormat balanceFormat, UuidFormat uuidFormat) {
+        super(configLoader.getMySQLTablePrefix(), balanceFormat, uuidFormat);
         this.pool = pool;
         this.plugin = plugin;
         this.logger = plugin.getLogger();
+        this.sharedDatabase = "shared".equals(configLoader.getDatabaseMode());
     }
 
     public void setupDatabase() {
         try {
             createEconomyTable();
+            createPlayerNamesTable();
+            createLedgerTable();
+            try (Connection conn = pool.getConnection()) {
+                createMetaTable(conn);
+                reconcileEconomySchema(conn);
+            }
             logger.info("MySQL database setup successful.");
         } catch (SQLException e) {
             logger.severe("MySQL database setup failed: " + e.getMessage());
@@ -42,35 +55,112 @@ public class MySQLDataStore extends AbstractDataStore {
     @Override
     protected Logger getLogger() { return logger; }
 
-    public boolean changePlayerBalance(UUID playerUUID, double amount) {
+    @Override
+    protected String ledgerRollupUpsertSql() {
+        // MySQL applies these assignments left to right, so CLOSING_BALANCE reads the old LAST_AT
+        return "INSERT INTO " + table("ledger_daily") +
+                " (UUID, DAY, TX_COUNT, CREDITS, DEBITS, CLOSING_BALANCE, LAST_AT) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE " +
+                "TX_COUNT = TX_COUNT + VALUES(TX_COUNT), " +
+                "CREDITS = CREDITS + VALUES(CREDITS), " +
+                "DEBITS = DEBITS + VALUES(DEBITS), " +
+                "CLOSING_BALANCE = IF(VALUES(LAST_AT) >= LAST_AT, " +
+                "COALESCE(VALUES(CLOSING_BALANCE), CLOSING_BALANCE), CLOSING_BALANCE), " +
+                "LAST_AT = GREATEST(LAST_AT, VALUES(LAST_AT))";
+    }
+
+    @Override
+    protected String creditUpsertSql() {
+        // No placeholder in the UPDATE clause, so the driver can rewrite batches into multi-row inserts
+        return "INSERT INTO " + table("economy") + " (UUID, BALANCE) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE BALANCE = BALANCE + VALUES(BALANCE)";
+    }
+
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount) {
+        // MySQL has no RETURNING: the new balance is captured in a session variable by the
+        // same statement and read back on the same connection, two round trips either way
+        noteWritten(playerUUID);
         try (Connection conn = pool.getConnection()) {
-            try (PreparedStatement update = conn.prepareStatement(
+            if (amount >= 0) {
+                try (PreparedStatement credit = conn.prepareStatement(
+                        "INSERT INTO " + table("economy") + " (UUID, BALANCE) VALUES (?, (@te_balance := ?)) " +
+                        "ON DUPLICATE KEY UPDATE BALANCE = (@te_balance := BALANCE + ?)")) {
+                    bindUuid(credit, 1, playerUUID);
+                    bindBalance(credit, 2, amount);
+                    bindBalance(credit, 3, amount);
+                    credit.executeUpdate();
+                }
+                return BalanceChange.applied(readBalanceVariable(conn));
+            }
+            try (PreparedStatement debit = conn.prepareStatement(
                     "UPDATE " + table("economy") + " " +
-                    "SET BALANCE = BALANCE + ? " +
+                    "SET BALANCE = (@te_balance := BALANCE + ?) " +
                     "WHERE UUID = ? AND BALANCE + ? >= 0")) {
-                update.setDouble(1, amount);
-                update.setString(2, playerUUID.toString());
-                update.setDouble(3, amount);
-                if (update.executeUpdate() > 0) return true;
+                bindBalance(debit, 1, amount);
+                bindUuid(debit, 2, playerUUID);
+                bindBalance(debit, 3, amount);
+                if (debit.executeUpdate() > 0) return BalanceChange.applied(readBalanceVariable(conn));
             }
             try (PreparedStatement check = conn.prepareStatement(
-                    "SELECT 1 FROM " + table("economy") + " WHERE UUID = ?")) {
-                check.setString(1, playerUUID.toString());
+                    "SELECT BALANCE FROM " + table("economy") + " WHERE UUID = ?")) {
+                bindUuid(check, 1, playerUUID);
                 try (ResultSet rs = check.executeQuery()) {
-                    if (rs.next()) return false;
+                    return BalanceChange.rejected(rs.next() ? readBalance(rs, 1) : 0.0);
                 }
             }
-            if (amount < 0) return false;
-            try (PreparedStatement insert = conn.prepareStatement(
-                    "INSERT IGNORE INTO " + table("economy") + " (UUID, BALANCE) VALUES (?, ?)")) {
-                insert.setString(1, playerUUID.toString());
-                insert.setDouble(2, amount);
-                insert.executeUpdate();
-                return true;
-            }
         } catch (SQLException e) {
             logger.severe("Failed to update player balance: " + e.getMessage());
-            return false;
+            return BalanceChange.failed();
+        }
+    }
+
+    private double readBalanceVariable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT @te_balance")) {
+            return rs.next() ? readBalance(rs, 1) : 0.0;
+        }
+    }
+
+    public TransferResult transfer(UUID from, UUID to, double amount) {
+        if (amount <= 0 || from.equals(to)) return TransferResult.rejected();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            // Both new balances are captured in session variables and read back before commit
+            try (PreparedStatement debit = conn.prepareStatement(
+                    "UPDATE " + table("economy") + " SET BALANCE = (@te_from := BALANCE - ?) WHERE UUID = ? AND BALANCE >= ?");
+                 PreparedStatement credit = conn.prepareStatement(
+                    "INSERT INTO " + table("economy") + " (UUID, BALANCE) VALUES (?, (@te_to := ?)) " +
+                        "ON DUPLICATE KEY UPDATE BALANCE = (@te_to := BALANCE + ?)");
+                 Statement balances = conn.createStatement()) {
+                bindBalance(debit, 1, amount);
+                bindUuid(debit, 2, from);
+                bindBalance(debit, 3, amount);
+                if (debit.executeUpdate() == 0) {
+                    conn.rollback();
+                    return TransferResult.rejected();
+                }
+                bindUuid(credit, 1, to);
+                bindBalance(credit, 2, amount);
+                bindBalance(credit, 3, amount);
+                credit.executeUpdate();
+                TransferResult result;
+                try (ResultSet rs = balances.executeQuery("SELECT @te_from, @te_to")) {
+                    rs.next();
+                    result = TransferResult.applied(readBalance(rs, 1), readBalance(rs, 2));
+                }
+                noteWritten(from);
+                noteWritten(to);
+                conn.commit();
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.severe("Failed to transfer balance: " + e.getMessage());
+            return TransferResult.failed();
         }
     }
 
@@ -78,10 +168,10 @@ public class MySQLDataStore extends AbstractDataStore {
         try (Connection conn = pool.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                 "INSERT INTO " + table("economy") + " (UUID, BALANCE) VALUES (?, ?) " +
-                        "ON DUPLICATE KEY UPDATE BALANCE = ?")) {
-            stmt.setString(1, playerUUID.toString());
-            stmt.setDouble(2, balance);
-            stmt.setDouble(3, balance);
+                        "ON DUPLICATE KEY UPDATE BALANCE = VALUES(BALANCE)")) {
+            bindUuid(stmt, 1, playerUUID);
+            bindBalance(stmt, 2, balance);
+            noteWritten(playerUUID);
             stmt.executeUpdate();
         } catch (SQLException e) {
             logger.severe("Failed to set player balance: " + e.getMessage());
@@ -89,14 +179,56 @@ public class MySQLDataStore extends AbstractDataStore {
         }
     }
 
+    public void setPlayerBalances(Map<UUID, Double> balances) {
+        if (balances.isEmpty()) return;
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            // No placeholder in the UPDATE clause, so the driver can rewrite the batch into multi-row inserts
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO " + table("economy") + " (UUID, BALANCE) VALUES (?, ?) " +
+                        "ON DUPLICATE KEY UPDATE BALANCE = VALUES(BALANCE)")) {
+                for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
+                    bindUuid(stmt, 1, entry.getKey());
+                    bindBalance(stmt, 2, entry.getValue());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                balances.keySet().forEach(this::noteWritten);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.severe("Failed to set player balances: " + e.getMessage());
+            throw new RuntimeException("Failed to set balances", e);
+        }
+    }
+
+    @Override
+    protected String lockingReadClause() {
+        return " FOR UPDATE";
+    }
+
+    /**
+     * Connector/J buffers whole result sets unless the fetch size is Integer.MIN_VALUE
+     * (row streaming) or cursor fetch is enabled on the URL; streaming works on any URL.
+     */
+    @Override
+    protected int streamingFetchSize(int requested) {
+        return Integer.MIN_VALUE;
+    }
+
     public Map<String, Double> getAllPlayerBalances() {
         Map<String, Double> balances = new LinkedHashMap<>();
-        try (Connection conn = pool.getConnection();
+        try (Connection conn = pool.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                 "SELECT UUID, BALANCE FROM " + table("economy"))) {
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    balances.put(rs.getString("UUID"), rs.getDouble("BALANCE"));
+                    balances.put(readUuidString(rs, "UUID"), readBalance(rs, "BALANCE"));
                 }
             }
         } catch (SQLException e) {
@@ -107,31 +239,78 @@ public class MySQLDataStore extends AbstractDataStore {
     }
 
     public Map<String, Double> getTopBalances(int limit) {
-        Map<String, Double> topBalances = new LinkedHashMap<>();
-        try (Connection conn = pool.getConnection();
+        Map<UUID, Double> topBalances = new LinkedHashMap<>();
+        try (Connection conn = pool.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                "SELECT e.UUID, e.BALANCE, p.name AS player_name" +
-                " FROM " + table("economy") + " e" +
-                " LEFT JOIN rvnk_players p ON e.UUID = p.uuid" +
-                " ORDER BY e.BALANCE DESC LIMIT ?")) {
+                "SELECT UUID, BALANCE FROM " + table("economy") + " ORDER BY BALANCE DESC LIMIT ?")) {
             stmt.setInt(1, limit);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String uuidStr = rs.getString("UUID");
-                    double balance = rs.getDouble("BALANCE");
-                    String playerName = rs.getString("player_name");
-                    if (playerName == null || playerName.isEmpty()) {
-                        try {
-                            playerName = plugin.getServer().getOfflinePlayer(UUID.fromString(uuidStr)).getName();
-                        } catch (IllegalArgumentException ignored) {}
+                    topBalances.put(readUuid(rs, "UUID"), readBalance(rs, "BALANCE"));
+                }
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            logger.warning("Failed to retrieve top balances: " + e.getMessage());
+        }
+        return withDisplayNames(topBalances);
+    }
+
+    /** Name table first, then RVNKCore's rvnk_players for anything it does not know. */
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uuids) {
+        Map<UUID, String> names = super.getPlayerNames(uuids);
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (!names.containsKey(uuid)) missing.add(uuid);
+        }
+        if (missing.isEmpty()) return names;
+        String placeholders = String.join(",", Collections.nCopies(missing.size(), "?"));
+        try (Connection conn = pool.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                "SELECT uuid, name FROM rvnk_players WHERE uuid IN (" + placeholders + ")")) {
+            for (int i = 0; i < missing.size(); i++) {
+                stmt.setString(i + 1, missing.get(i).toString());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString("name");
+                    if (name != null && !name.isEmpty()) {
+                        names.put(UUID.fromString(rs.getString("uuid")), name);
                     }
-                    topBalances.put(playerName != null ? playerName : uuidStr, balance);
                 }
             }
+        } catch (SQLException | IllegalArgumentException e) {
+            // rvnk_players is optional (RVNKCore may not share this database)
+            logger.fine("Player name lookup via rvnk_players failed: " + e.getMessage());
+        }
+        return names;
+    }
+
+    public void savePlayerNames(Map<UUID, String> names) {
+        if (names.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO " + table("player_names") + " (UUID, NAME, UPDATED_AT) VALUES (?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE NAME = VALUES(NAME), UPDATED_AT = VALUES(UPDATED_AT)")) {
+                for (Map.Entry<UUID, String> entry : names.entrySet()) {
+                    stmt.setString(1, entry.getKey().toString());
+                    stmt.setString(2, entry.getValue());
+                    stmt.setLong(3, now);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (SQLException e) {
-            logger.warning("Failed to retrieve top balances: " + e.getMessage());
+            logger.warning("Failed to save player names: " + e.getMessage());
         }
-        return topBalances;
     }
 
     public boolean isConnected() throws SQLException {
@@ -139,10 +318,10 @@ public class MySQLDataStore extends AbstractDataStore {
     }
 
     public boolean playerExistsByUUID(UUID uuid) {
-        try (Connection conn = pool.getConnection();
+        try (Connection conn = getReadConnection(uuid);
              PreparedStatement stmt = conn.prepareStatement(
                 "SELECT 1 FROM " + table("economy") + " WHERE UUID = ?")) {
-            stmt.setString(1, uuid.toString());
+            bindUuid(stmt, 1, uuid);
             try (ResultSet rs = stmt.executeQuery()) {
                 return rs.next();
             }
@@ -157,14 +336,117 @@ public class MySQLDataStore extends AbstractDataStore {
         return pool.getConnection();
     }
 
+    @Override
+    public PoolDelegate getPool() {
+        return pool;
+    }
+
+    @Override
+    protected Connection getReadConnection() throws SQLException {
+        return pool.getReadConnection();
+    }
+
+    private void createPlayerNamesTable() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("player_names") + " (" +
+                    "UUID VARCHAR(36) NOT NULL," +
+                    "NAME VARCHAR(16) NOT NULL," +
+                    "UPDATED_AT BIGINT NOT NULL," +
+                    "PRIMARY KEY (UUID)," +
+                    "INDEX idx_updated_at (UPDATED_AT)" +
+                    ")");
+        }
+    }
+
+    private void createLedgerTable() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("ledger") + " (" +
+                    "ID BIGINT NOT NULL AUTO_INCREMENT," +
+                    "TX_ID CHAR(36) NOT NULL," +
+                    "UUID VARCHAR(36) NOT NULL," +
+                    "DELTA DOUBLE NULL," +
+                    "BALANCE DOUBLE NULL," +
+                    "CAUSE VARCHAR(64) NOT NULL," +
+                    "CREATED_AT BIGINT NOT NULL," +
+                    "PRIMARY KEY (ID)," +
+                    "INDEX idx_ledger_uuid (UUID, CREATED_AT)," +
+                    "INDEX idx_ledger_tx (TX_ID)" +
+                    ")");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("ledger_daily") + " (" +
+                    "UUID VARCHAR(36) NOT NULL," +
+                    "DAY CHAR(10) NOT NULL," +
+                    "TX_COUNT INT NOT NULL," +
+                    "CREDITS DOUBLE NOT NULL," +
+                    "DEBITS DOUBLE NOT NULL," +
+                    "CLOSING_BALANCE DOUBLE NULL," +
+                    "LAST_AT BIGINT NOT NULL," +
+                    "PRIMARY KEY (UUID, DAY)," +
+                    "INDEX idx_ledger_daily_day (DAY)" +
+                    ")");
+        }
+    }
+
     private void createEconomyTable() throws SQLException {
         try (Connection conn = pool.getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("economy") + " (" +
-                    "UUID VARCHAR(36) NOT NULL," +
-                    "BALANCE DOUBLE NOT NULL," +
+                    "UUID " + getUuidFormat().mysqlColumnType() + " NOT NULL," +
+                    "BALANCE " + getBalanceFormat().mysqlColumnType() + " NOT NULL," +
                     "PRIMARY KEY (UUID)" +
                     ")");
         }
     }
+
+    /**
+     * Other servers may share this database without the plugin knowing (standalone pools on
+     * several servers), but RVNKCore's shared mode says so outright: converting there would
+     * break every server still configured for the old layout.
+     */
+    @Override
+    protected boolean allowsLayoutConversion() {
+        return !sharedDatabase;
+    }
+
+    /**
+     * Copies the table into a rebuilt one in the new layout and swaps the two with one
+     * atomic RENAME, all under a write lock on the economy table: writes from other
+     * connections wait for the swap instead of landing in a table that was already copied.
+     * An interrupted conversion leaves the original table in place and is redone on the
+     * next start. Renaming locked tables needs MySQL 8.0.13 or later.
+     */
+    @Override
+    protected void convertEconomyTable(Connection conn, BalanceFormat fromBalance, BalanceFormat toBalance,
+                                       UuidFormat fromKey, UuidFormat toKey) throws SQLException {
+        String economy = table("economy");
+        String rebuilt = table("economy_rebuild");
+        String retired = table("economy_retired");
+        String key = "UUID";
+        if (fromKey.isBinary() != toKey.isBinary()) {
+            key = toKey.isBinary()
+                    ? "UNHEX(REPLACE(UUID, '-', ''))"
+                    : "LOWER(CONCAT_WS('-', SUBSTR(HEX(UUID), 1, 8), SUBSTR(HEX(UUID), 9, 4), " +
+                      "SUBSTR(HEX(UUID), 13, 4), SUBSTR(HEX(UUID), 17, 4), SUBSTR(HEX(UUID), 21)))";
+        }
+        String balance = fromBalance.isFixed() != toBalance.isFixed() ? balanceConversion(fromBalance, toBalance) : "BALANCE";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE IF EXISTS " + rebuilt);
+            stmt.executeUpdate("DROP TABLE IF EXISTS " + retired);
+            stmt.executeUpdate("CREATE TABLE " + rebuilt + " (" +
+                    "UUID " + toKey.mysqlColumnType() + " NOT NULL," +
+                    "BALANCE " + toBalance.mysqlColumnType() + " NOT NULL," +
+                    "PRIMARY KEY (UUID)" +
+                    ")");
+            stmt.execute("LOCK TABLES " + economy + " WRITE, " + rebuilt + " WRITE");
+            try {
+                stmt.executeUpdate("INSERT INTO " + rebuilt + " (UUID, BALANCE) SELECT " + key + ", " + balance +
+                        " FROM " + economy);
+                stmt.executeUpdate("RENAME TABLE " + economy + " TO " + retired + ", " + rebuilt + " TO " + economy);
+            } finally {
+                stmt.execute("UNLOCK TABLES");
+            }
+            stmt.executeUpdate("DROP TABLE " + retired);
+        }
+    }
 }
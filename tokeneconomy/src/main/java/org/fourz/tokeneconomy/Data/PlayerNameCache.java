@@ -0,0 +1,68 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded, access-ordered UUID → name cache with a freshness TTL.
+ *
+ * <p>Entries older than the TTL are not returned by {@link #get(UUID)} so callers
+ * re-read them from the persisted name table, but they stay available through
+ * {@link #getStale(UUID)} as a display fallback until evicted by size.
+ */
+public class PlayerNameCache {
+
+    private static final class Entry {
+        final String name;
+        final long fetchedAt;
+
+        Entry(String name, long fetchedAt) {
+            this.name = name;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private final long ttlMillis;
+    private final Map<UUID, Entry> entries;
+
+    public PlayerNameCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        final int capacity = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<UUID, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Returns the cached name if it is still within the TTL, otherwise null. */
+    public synchronized String get(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        if (entry == null) return null;
+        if (ttlMillis > 0 && System.currentTimeMillis() - entry.fetchedAt > ttlMillis) return null;
+        return entry.name;
+    }
+
+    /** Returns the cached name regardless of age, or null. */
+    public synchronized String getStale(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        return entry != null ? entry.name : null;
+    }
+
+    /** Stores a name and returns true when it differs from what was cached. */
+    public synchronized boolean put(UUID uuid, String name) {
+        if (name == null || name.isEmpty()) return false;
+        Entry previous = entries.put(uuid, new Entry(name, System.currentTimeMillis()));
+        return previous == null || !previous.name.equals(name);
+    }
+
+    public synchronized void putAll(Map<UUID, String> names) {
+        names.forEach(this::put);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
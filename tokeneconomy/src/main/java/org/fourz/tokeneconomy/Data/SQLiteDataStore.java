@@ -5,8 +5,6 @@ import java.sql.*;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.plugin.Plugin;
 import org.fourz.tokeneconomy.Data.connection.PoolDelegate;
 
@@ -18,8 +16,8 @@ public class SQLiteDataStore extends AbstractDataStore {
     private final Plugin plugin;
     private final String ECONOMY_TABLE;
 
-    public SQLiteDataStore(PoolDelegate pool, File dbPath, Plugin plugin) {
-        super(plugin.getConfig().getString("storage.sqlite.tablePrefix", ""));
+    public SQLiteDataStore(PoolDelegate pool, File dbPath, Plugin plugin, BalanceFormat balanceFormat, UuidFormat uuidFormat) {
+        super(plugin.getConfig().getString("storage.sqlite.tablePrefix", ""), balanceFormat, uuidFormat);
         this.pool = pool;
         this.plugin = plugin;
         this.logger = plugin.getLogger();
@@ -30,6 +28,12 @@ public class SQLiteDataStore extends AbstractDataStore {
         try {
             ensureDataFolderExists();
             createEconomyTable();
+            createPlayerNamesTable();
+            createLedgerTable();
+            try (Connection conn = pool.getConnection()) {
+                createMetaTable(conn);
+                reconcileEconomySchema(conn);
+            }
             logger.info("SQLite database setup successful.");
         } catch (SQLException e) {
             logger.severe("SQLite database setup failed: " + e.getMessage());
@@ -46,33 +50,100 @@ public class SQLiteDataStore extends AbstractDataStore {
     @Override
     protected Logger getLogger() { return logger; }
 
-    public boolean changePlayerBalance(UUID playerUUID, double amount) {
+    @Override
+    protected String creditUpsertSql() {
+        return "INSERT INTO " + ECONOMY_TABLE + " (UUID, BALANCE) VALUES (?, ?) " +
+                "ON CONFLICT(UUID) DO UPDATE SET BALANCE = BALANCE + excluded.BALANCE";
+    }
+
+    @Override
+    protected String ledgerRollupUpsertSql() {
+        return "INSERT INTO " + table("ledger_daily") +
+                " (UUID, DAY, TX_COUNT, CREDITS, DEBITS, CLOSING_BALANCE, LAST_AT) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT(UUID, DAY) DO UPDATE SET " +
+                "TX_COUNT = TX_COUNT + excluded.TX_COUNT, " +
+                "CREDITS = CREDITS + excluded.CREDITS, " +
+                "DEBITS = DEBITS + excluded.DEBITS, " +
+                "CLOSING_BALANCE = CASE WHEN excluded.LAST_AT >= LAST_AT " +
+                "THEN COALESCE(excluded.CLOSING_BALANCE, CLOSING_BALANCE) ELSE CLOSING_BALANCE END, " +
+                "LAST_AT = MAX(LAST_AT, excluded.LAST_AT)";
+    }
+
+    public BalanceChange changePlayerBalanceAndGet(UUID playerUUID, double amount) {
         try (Connection conn = pool.getConnection()) {
             try (PreparedStatement update = conn.prepareStatement(
-                    "UPDATE " + ECONOMY_TABLE + " SET BALANCE = BALANCE + ? WHERE UUID = ? AND BALANCE + ? >= 0")) {
-                update.setDouble(1, amount);
-                update.setString(2, playerUUID.toString());
-                update.setDouble(3, amount);
-                if (update.executeUpdate() > 0) return true;
+                    "UPDATE " + ECONOMY_TABLE + " SET BALANCE = BALANCE + ? WHERE UUID = ? AND BALANCE + ? >= 0 " +
+                        "RETURNING BALANCE")) {
+                bindBalance(update, 1, amount);
+                bindUuid(update, 2, playerUUID);
+                bindBalance(update, 3, amount);
+                try (ResultSet rs = update.executeQuery()) {
+                    if (rs.next()) return BalanceChange.applied(readBalance(rs, 1));
+                }
             }
             try (PreparedStatement check = conn.prepareStatement(
-                    "SELECT 1 FROM " + ECONOMY_TABLE + " WHERE UUID = ?")) {
-                check.setString(1, playerUUID.toString());
+                    "SELECT BALANCE FROM " + ECONOMY_TABLE + " WHERE UUID = ?")) {
+                bindUuid(check, 1, playerUUID);
                 try (ResultSet rs = check.executeQuery()) {
-                    if (rs.next()) return false;
+                    if (rs.next()) return BalanceChange.rejected(readBalance(rs, 1));
                 }
             }
-            if (amount < 0) return false;
+            if (amount < 0) return BalanceChange.rejected(0.0);
             try (PreparedStatement insert = conn.prepareStatement(
-                    "INSERT OR IGNORE INTO " + ECONOMY_TABLE + " (UUID, BALANCE) VALUES (?, ?)")) {
-                insert.setString(1, playerUUID.toString());
-                insert.setDouble(2, amount);
-                insert.executeUpdate();
-                return true;
+                    "INSERT INTO " + ECONOMY_TABLE + " (UUID, BALANCE) VALUES (?, ?) " +
+                        "ON CONFLICT(UUID) DO UPDATE SET BALANCE = BALANCE + excluded.BALANCE RETURNING BALANCE")) {
+                bindUuid(insert, 1, playerUUID);
+                bindBalance(insert, 2, amount);
+                try (ResultSet rs = insert.executeQuery()) {
+                    return rs.next() ? BalanceChange.applied(readBalance(rs, 1)) : BalanceChange.failed();
+                }
             }
         } catch (SQLException e) {
             logger.warning("Failed to change player balance: " + e.getMessage());
-            return false;
+            return BalanceChange.failed();
+        }
+    }
+
+    public TransferResult transfer(UUID from, UUID to, double amount) {
+        if (amount <= 0 || from.equals(to)) return TransferResult.rejected();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement debit = conn.prepareStatement(
+                    "UPDATE " + ECONOMY_TABLE + " SET BALANCE = BALANCE - ? WHERE UUID = ? AND BALANCE >= ? " +
+                        "RETURNING BALANCE");
+                 PreparedStatement credit = conn.prepareStatement(
+                    "INSERT INTO " + ECONOMY_TABLE + " (UUID, BALANCE) VALUES (?, ?) " +
+                        "ON CONFLICT(UUID) DO UPDATE SET BALANCE = BALANCE + ? RETURNING BALANCE")) {
+                bindBalance(debit, 1, amount);
+                bindUuid(debit, 2, from);
+                bindBalance(debit, 3, amount);
+                double fromBalance;
+                try (ResultSet rs = debit.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return TransferResult.rejected();
+                    }
+                    fromBalance = readBalance(rs, 1);
+                }
+                bindUuid(credit, 1, to);
+                bindBalance(credit, 2, amount);
+                bindBalance(credit, 3, amount);
+                double toBalance;
+                try (ResultSet rs = credit.executeQuery()) {
+                    if (!rs.next()) throw new SQLException("Credit returned no balance");
+                    toBalance = readBalance(rs, 1);
+                }
+                conn.commit();
+                return TransferResult.applied(fromBalance, toBalance);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warning("Failed to transfer balance: " + e.getMessage());
+            return TransferResult.failed();
         }
     }
 
@@ -81,9 +152,9 @@ public class SQLiteDataStore extends AbstractDataStore {
              PreparedStatement stmt = conn.prepareStatement(
                 "INSERT INTO " + ECONOMY_TABLE + " (UUID, BALANCE) VALUES (?, ?) " +
                         "ON CONFLICT(UUID) DO UPDATE SET BALANCE = ?")) {
-            stmt.setString(1, playerUUID.toString());
-            stmt.setDouble(2, balance);
-            stmt.setDouble(3, balance);
+            bindUuid(stmt, 1, playerUUID);
+            bindBalance(stmt, 2, balance);
+            bindBalance(stmt, 3, balance);
             stmt.executeUpdate();
         } catch (SQLException e) {
             logger.severe("Failed to set player balance: " + e.getMessage());
@@ -91,44 +162,84 @@ public class SQLiteDataStore extends AbstractDataStore {
         }
     }
 
+    public void setPlayerBalances(Map<UUID, Double> balances) {
+        if (balances.isEmpty()) return;
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO " + ECONOMY_TABLE + " (UUID, BALANCE) VALUES (?, ?) " +
+                        "ON CONFLICT(UUID) DO UPDATE SET BALANCE = ?")) {
+                for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
+                    bindUuid(stmt, 1, entry.getKey());
+                    bindBalance(stmt, 2, entry.getValue());
+                    bindBalance(stmt, 3, entry.getValue());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.severe("Failed to set player balances: " + e.getMessage());
+            throw new RuntimeException("Failed to set balances", e);
+        }
+    }
+
     public Map<String, Double> getTopBalances(int limit) {
-        Map<String, Double> topBalances = new LinkedHashMap<>();
-        try (Connection conn = pool.getConnection();
+        Map<UUID, Double> topBalances = new LinkedHashMap<>();
+        try (Connection conn = pool.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                 "SELECT UUID, BALANCE FROM " + ECONOMY_TABLE + " ORDER BY BALANCE DESC LIMIT ?")) {
             stmt.setInt(1, limit);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String uuidStr = rs.getString("UUID");
-                    double balance = rs.getDouble("BALANCE");
-                    String displayName = resolvePlayerName(uuidStr);
-                    topBalances.put(displayName, balance);
+                    topBalances.put(readUuid(rs, "UUID"), readBalance(rs, "BALANCE"));
                 }
             }
-        } catch (SQLException e) {
+        } catch (SQLException | IllegalArgumentException e) {
             logger.warning("Failed to retrieve top balances: " + e.getMessage());
         }
-        return topBalances;
+        return withDisplayNames(topBalances);
     }
 
-    private String resolvePlayerName(String uuidStr) {
-        try {
-            UUID uuid = UUID.fromString(uuidStr);
-            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
-            String name = offlinePlayer.getName();
-            return name != null ? name : uuidStr;
-        } catch (Exception e) {
-            return uuidStr;
+    public void savePlayerNames(Map<UUID, String> names) {
+        if (names.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO " + table("player_names") + " (UUID, NAME, UPDATED_AT) VALUES (?, ?, ?) " +
+                            "ON CONFLICT(UUID) DO UPDATE SET NAME = excluded.NAME, UPDATED_AT = excluded.UPDATED_AT")) {
+                for (Map.Entry<UUID, String> entry : names.entrySet()) {
+                    stmt.setString(1, entry.getKey().toString());
+                    stmt.setString(2, entry.getValue());
+                    stmt.setLong(3, now);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warning("Failed to save player names: " + e.getMessage());
         }
     }
 
     public Map<String, Double> getAllPlayerBalances() {
         Map<String, Double> balances = new LinkedHashMap<>();
-        try (Connection conn = pool.getConnection();
+        try (Connection conn = pool.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT UUID, BALANCE FROM " + ECONOMY_TABLE)) {
             while (rs.next()) {
-                balances.put(rs.getString("UUID"), rs.getDouble("BALANCE"));
+                balances.put(readUuidString(rs, "UUID"), readBalance(rs, "BALANCE"));
             }
         } catch (SQLException e) {
             logger.warning("Failed to retrieve all player balances: " + e.getMessage());
@@ -141,10 +252,10 @@ public class SQLiteDataStore extends AbstractDataStore {
     }
 
     public boolean playerExistsByUUID(UUID uuid) {
-        try (Connection conn = pool.getConnection();
+        try (Connection conn = pool.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                 "SELECT 1 FROM " + ECONOMY_TABLE + " WHERE UUID = ?")) {
-            stmt.setString(1, uuid.toString());
+            bindUuid(stmt, 1, uuid);
             try (ResultSet rs = stmt.executeQuery()) {
                 return rs.next();
             }
@@ -159,18 +270,108 @@ public class SQLiteDataStore extends AbstractDataStore {
         return pool.getConnection();
     }
 
+    @Override
+    public PoolDelegate getPool() {
+        return pool;
+    }
+
+    @Override
+    protected Connection getReadConnection() throws SQLException {
+        return pool.getReadConnection();
+    }
+
     private void ensureDataFolderExists() {
         File dataFolder = plugin.getDataFolder();
         if (!dataFolder.exists()) dataFolder.mkdirs();
     }
 
-    private void createEconomyTable() throws SQLException {
+    private void createPlayerNamesTable() throws SQLException {
         try (Connection conn = pool.getConnection();
              Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + ECONOMY_TABLE + " (" +
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("player_names") + " (" +
                     "UUID TEXT PRIMARY KEY," +
-                    "BALANCE REAL NOT NULL" +
+                    "NAME TEXT NOT NULL," +
+                    "UPDATED_AT INTEGER NOT NULL" +
+                    ")");
+        }
+    }
+
+    private void createLedgerTable() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("ledger") + " (" +
+                    "ID INTEGER PRIMARY KEY," +
+                    "TX_ID TEXT NOT NULL," +
+                    "UUID TEXT NOT NULL," +
+                    "DELTA REAL," +
+                    "BALANCE REAL," +
+                    "CAUSE TEXT NOT NULL," +
+                    "CREATED_AT INTEGER NOT NULL" +
                     ")");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + table("idx_ledger_uuid") +
+                    " ON " + table("ledger") + " (UUID, CREATED_AT)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + table("idx_ledger_tx") +
+                    " ON " + table("ledger") + " (TX_ID)");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + table("ledger_daily") + " (" +
+                    "UUID TEXT NOT NULL," +
+                    "DAY TEXT NOT NULL," +
+                    "TX_COUNT INTEGER NOT NULL," +
+                    "CREDITS REAL NOT NULL," +
+                    "DEBITS REAL NOT NULL," +
+                    "CLOSING_BALANCE REAL," +
+                    "LAST_AT INTEGER NOT NULL," +
+                    "PRIMARY KEY (UUID, DAY)" +
+                    ")");
+        }
+    }
+
+    private void createEconomyTable() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(economyTableSql(ECONOMY_TABLE, getBalanceFormat(), getUuidFormat()));
+        }
+    }
+
+    private static String economyTableSql(String tableName, BalanceFormat balanceFormat, UuidFormat uuidFormat) {
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " (" +
+                "UUID " + uuidFormat.sqliteColumnType() + " PRIMARY KEY," +
+                "BALANCE " + balanceFormat.sqliteColumnType() + " NOT NULL" +
+                ")";
+    }
+
+    /**
+     * SQLite cannot change a column type, so the table is rebuilt in one transaction. Rows
+     * are copied through Java because hex/blob conversion functions depend on the SQLite
+     * version bundled with the server.
+     */
+    @Override
+    protected void convertEconomyTable(Connection conn, BalanceFormat fromBalance, BalanceFormat toBalance,
+                                       UuidFormat fromKey, UuidFormat toKey) throws SQLException {
+        String rebuilt = table("economy_rebuild");
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE IF EXISTS " + rebuilt);
+            stmt.executeUpdate(economyTableSql(rebuilt, toBalance, toKey));
+            try (ResultSet rs = stmt.executeQuery("SELECT UUID, BALANCE FROM " + ECONOMY_TABLE);
+                 PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO " + rebuilt + " (UUID, BALANCE) VALUES (?, ?)")) {
+                int pending = 0;
+                while (rs.next()) {
+                    toKey.bind(insert, 1, fromKey.read(rs, "UUID"));
+                    toBalance.bind(insert, 2, fromBalance.read(rs, "BALANCE"));
+                    insert.addBatch();
+                    if (++pending % 1000 == 0) insert.executeBatch();
+                }
+                insert.executeBatch();
+            }
+            stmt.executeUpdate("DROP TABLE " + ECONOMY_TABLE);
+            stmt.executeUpdate("ALTER TABLE " + rebuilt + " RENAME TO " + ECONOMY_TABLE);
+            conn.commit();
+        } catch (SQLException | IllegalArgumentException e) {
+            conn.rollback();
+            throw e instanceof SQLException ? (SQLException) e : new SQLException("Unreadable economy key", e);
+        } finally {
+            conn.setAutoCommit(true);
         }
     }
 }
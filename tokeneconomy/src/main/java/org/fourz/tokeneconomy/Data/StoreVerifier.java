@@ -0,0 +1,266 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Proves two stores hold the same balances without loading either table.
+ *
+ * <p>The UUID keyspace is split into partitions that are streamed on both stores in
+ * parallel. Each side reduces a partition to a row count and an order-independent hash
+ * (the wrapping sum of a mixed hash of every key and balance), so neither row order nor
+ * the stores' layouts matter. Only partitions whose digests differ are split further,
+ * sixteen ways per level, until they are small enough to diff row by row; matching data
+ * is read exactly once per store.
+ */
+public class StoreVerifier {
+
+    private static final int PARTITION_BITS = 6;
+    private static final int SPLIT_BITS = 4;
+    // Deepest split; 2^28 partitions is far finer than any real table needs
+    private static final int MAX_BITS = 28;
+    private static final int LEAF_ROWS = 2000;
+    private static final int MAX_REPORTED = 100;
+    private static final int FETCH_SIZE = 1000;
+    // Balances are compared to a millionth, so decimal and fixed-point layouts agree
+    private static final double BALANCE_PRECISION = 1_000_000d;
+
+    /** One account whose balance differs; a null side means the account is missing there. */
+    public static final class Difference {
+        private final UUID uuid;
+        private final Double left;
+        private final Double right;
+
+        Difference(UUID uuid, Double left, Double right) {
+            this.uuid = uuid;
+            this.left = left;
+            this.right = right;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public Double getLeft() {
+            return left;
+        }
+
+        public Double getRight() {
+            return right;
+        }
+    }
+
+    /** Outcome of a verification. */
+    public static final class Report {
+        private final long rows;
+        private final int partitions;
+        private final int mismatchedPartitions;
+        private final long differenceCount;
+        private final List<Difference> differences;
+        private final long millis;
+
+        Report(long rows, int partitions, int mismatchedPartitions, long differenceCount,
+               List<Difference> differences, long millis) {
+            this.rows = rows;
+            this.partitions = partitions;
+            this.mismatchedPartitions = mismatchedPartitions;
+            this.differenceCount = differenceCount;
+            this.differences = differences;
+            this.millis = millis;
+        }
+
+        public boolean isMatch() {
+            return differenceCount == 0;
+        }
+
+        /** Rows read from the left store in the first pass. */
+        public long getRows() {
+            return rows;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public int getMismatchedPartitions() {
+            return mismatchedPartitions;
+        }
+
+        public long getDifferenceCount() {
+            return differenceCount;
+        }
+
+        /** The first differences found, at most a hundred. */
+        public List<Difference> getDifferences() {
+            return differences;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    private static final class Digest {
+        long count;
+        long hash;
+
+        boolean matches(Digest other) {
+            return count == other.count && hash == other.hash;
+        }
+    }
+
+    private final Logger logger;
+    private final int parallelism;
+
+    public StoreVerifier(Logger logger, int parallelism) {
+        this.logger = logger;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public Report verify(DataStore left, DataStore right) {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "TokenEconomy-Verifier");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicLong rows = new AtomicLong();
+        AtomicLong differenceCount = new AtomicLong();
+        List<Difference> differences = Collections.synchronizedList(new ArrayList<>());
+        int partitions = 1 << PARTITION_BITS;
+        int mismatched = 0;
+        try {
+            List<List<Future<Digest>>> digests = new ArrayList<>(partitions);
+            for (int index = 0; index < partitions; index++) {
+                digests.add(digestBoth(executor, left, right, index, PARTITION_BITS));
+            }
+            for (int index = 0; index < partitions; index++) {
+                Digest leftDigest = await(digests.get(index).get(0));
+                Digest rightDigest = await(digests.get(index).get(1));
+                rows.addAndGet(leftDigest.count);
+                if (leftDigest.matches(rightDigest)) continue;
+                mismatched++;
+                drillDown(executor, left, right, index, PARTITION_BITS, Math.max(leftDigest.count, rightDigest.count),
+                    differenceCount, differences);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long millis = System.currentTimeMillis() - start;
+        logger.info("Verified " + rows.get() + " accounts in " + partitions + " partitions in " + millis + "ms: " +
+            (differenceCount.get() == 0 ? "stores match." : differenceCount.get() + " differences in " + mismatched +
+                " partitions."));
+        return new Report(rows.get(), partitions, mismatched, differenceCount.get(),
+            new ArrayList<>(differences), millis);
+    }
+
+    /** Splits a mismatching partition until its pieces are small, then diffs those row by row. */
+    private void drillDown(ExecutorService executor, DataStore left, DataStore right, long index, int bits,
+                           long rowsInPartition, AtomicLong differenceCount, List<Difference> differences) {
+        if (rowsInPartition <= LEAF_ROWS || bits + SPLIT_BITS > MAX_BITS) {
+            diffRows(left, right, index, bits, differenceCount, differences);
+            return;
+        }
+        int childBits = bits + SPLIT_BITS;
+        List<List<Future<Digest>>> children = new ArrayList<>();
+        for (int k = 0; k < 1 << SPLIT_BITS; k++) {
+            children.add(digestBoth(executor, left, right, (index << SPLIT_BITS) | k, childBits));
+        }
+        for (int k = 0; k < children.size(); k++) {
+            Digest leftDigest = await(children.get(k).get(0));
+            Digest rightDigest = await(children.get(k).get(1));
+            if (leftDigest.matches(rightDigest)) continue;
+            drillDown(executor, left, right, (index << SPLIT_BITS) | k, childBits,
+                Math.max(leftDigest.count, rightDigest.count), differenceCount, differences);
+        }
+    }
+
+    /** Queues both sides of a partition; the caller awaits them once everything is queued. */
+    private static List<Future<Digest>> digestBoth(ExecutorService executor, DataStore left, DataStore right,
+                                                   long index, int bits) {
+        return List.of(executor.submit(digest(left, index, bits)), executor.submit(digest(right, index, bits)));
+    }
+
+    private static Callable<Digest> digest(DataStore store, long index, int bits) {
+        return () -> {
+            Digest digest = new Digest();
+            store.forEachBalanceInRange(lowerBound(index, bits), lowerBound(index + 1, bits), FETCH_SIZE,
+                (uuid, balance) -> {
+                    digest.count++;
+                    digest.hash += rowHash(uuid, balance);
+                });
+            return digest;
+        };
+    }
+
+    /** A leaf holds at most a few thousand rows per side, so it is diffed in memory. */
+    private static void diffRows(DataStore left, DataStore right, long index, int bits,
+                                 AtomicLong differenceCount, List<Difference> differences) {
+        UUID from = lowerBound(index, bits);
+        UUID to = lowerBound(index + 1, bits);
+        Map<UUID, Double> leftRows = new HashMap<>();
+        left.forEachBalanceInRange(from, to, FETCH_SIZE, leftRows::put);
+        right.forEachBalanceInRange(from, to, FETCH_SIZE, (uuid, balance) -> {
+            Double mine = leftRows.remove(uuid);
+            if (mine == null || normalize(mine) != normalize(balance)) {
+                report(new Difference(uuid, mine, balance), differenceCount, differences);
+            }
+        });
+        for (Map.Entry<UUID, Double> onlyLeft : leftRows.entrySet()) {
+            report(new Difference(onlyLeft.getKey(), onlyLeft.getValue(), null), differenceCount, differences);
+        }
+    }
+
+    private static void report(Difference difference, AtomicLong differenceCount, List<Difference> differences) {
+        if (differenceCount.incrementAndGet() <= MAX_REPORTED) {
+            differences.add(difference);
+        }
+    }
+
+    /** Lower key bound of partition {@code index} at depth {@code bits}; null at either open end. */
+    private static UUID lowerBound(long index, int bits) {
+        if (index <= 0 || index >= 1L << bits) return null;
+        return new UUID(index << (64 - bits), 0L);
+    }
+
+    private static long normalize(double balance) {
+        return Math.round(balance * BALANCE_PRECISION);
+    }
+
+    private static long rowHash(UUID uuid, double balance) {
+        long h = mix(uuid.getMostSignificantBits());
+        h = mix(h ^ uuid.getLeastSignificantBits());
+        return mix(h ^ normalize(balance));
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while verifying", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                : new RuntimeException("Failed to verify stores", cause);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Records every balance mutation made through {@link DataConnector} in the ledger table.
+ *
+ * <p>Callers only enqueue: {@link #record} never blocks or touches the database, and when
+ * the bounded queue is full the entry is dropped and counted rather than slowing down a
+ * payment. A single writer thread drains the queue into batched inserts; a failed batch
+ * is retried until it is written or the ledger shuts down.
+ */
+public class TransactionLedger {
+
+    /** Cause recorded for mutations whose caller did not name one. */
+    public static final String CAUSE_PLUGIN = "plugin";
+    private static final int MAX_CAUSE_LENGTH = 64;
+    private static final long DROP_WARNING_INTERVAL_MILLIS = 60_000L;
+
+    private final LedgerStore store;
+    private final Logger logger;
+    private final BlockingQueue<LedgerEntry> queue;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long lastDropWarningAt;
+    private volatile long failedFlushes;
+    private volatile long lastFlushAt;
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    private volatile int lastFlushCount;
+    private volatile long lastFlushLagMillis;
+
+    public TransactionLedger(LedgerStore store, Logger logger, int queueCapacity, int batchSize, long flushIntervalMillis) {
+        this.store = store;
+        this.logger = logger;
+        this.queueCapacity = Math.max(100, queueCapacity);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(10L, flushIntervalMillis);
+    }
+
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "TokenEconomy-Ledger");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Transaction ledger enabled (queue " + queueCapacity + ", batch " + batchSize + ").");
+    }
+
+    /** Stops accepting work and writes what is queued, waiting up to ten seconds. */
+    public void close() {
+        running = false;
+        if (writer == null) return;
+        try {
+            writer.join(10_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive() || !queue.isEmpty()) {
+            logger.severe("Transaction ledger closed with " + queue.size() + " entries unwritten.");
+        }
+    }
+
+    /** A new transaction id; pass the same id for every entry of one operation. */
+    public UUID newTxId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    /** Queues an entry without blocking. Drops (and counts) it when the queue is full. */
+    public void record(UUID txId, UUID uuid, Double delta, Double balance, String cause) {
+        recorded.increment();
+        String label = cause == null || cause.isEmpty() ? CAUSE_PLUGIN : cause;
+        if (label.length() > MAX_CAUSE_LENGTH) label = label.substring(0, MAX_CAUSE_LENGTH);
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        if (queue.offer(new LedgerEntry(txId, uuid, delta, balance, label, System.currentTimeMillis()))) {
+            return;
+        }
+        dropped.increment();
+        long now = System.currentTimeMillis();
+        if (now - lastDropWarningAt >= DROP_WARNING_INTERVAL_MILLIS) {
+            lastDropWarningAt = now;
+            logger.warning("Transaction ledger queue is full, dropping entries (" + dropped.sum() + " dropped so far).");
+        }
+    }
+
+    private void run() {
+        List<LedgerEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty()) {
+                LedgerEntry first;
+                try {
+                    first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (first == null) continue;
+                batch.add(first);
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            if (write(batch)) {
+                batch.clear();
+                continue;
+            }
+            if (!running) {
+                logger.severe("Giving up on " + batch.size() + " ledger entries during shutdown.");
+                batch.clear();
+                continue;
+            }
+            try {
+                Thread.sleep(flushIntervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private boolean write(List<LedgerEntry> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            store.writeLedger(batch);
+        } catch (RuntimeException e) {
+            failedFlushes++;
+            logger.warning("Failed to write " + batch.size() + " ledger entries, will retry: " + e.getMessage());
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        written.add(batch.size());
+        lastFlushAt = now;
+        lastFlushMillis = now - start;
+        maxFlushMillis = Math.max(maxFlushMillis, lastFlushMillis);
+        lastFlushCount = batch.size();
+        lastFlushLagMillis = now - batch.get(0).getCreatedAt();
+        return true;
+    }
+
+    // ─── Diagnostics ─────────────────────────────────────────────────────────
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes;
+    }
+
+    public long getLastFlushAt() {
+        return lastFlushAt;
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    public long getMaxFlushMillis() {
+        return maxFlushMillis;
+    }
+
+    public int getLastFlushCount() {
+        return lastFlushCount;
+    }
+
+    /** Time the oldest entry of the last batch spent queued before it was written. */
+    public long getLastFlushLagMillis() {
+        return lastFlushLagMillis;
+    }
+}
@@ -0,0 +1,55 @@
+package org.fourz.tokeneconomy.Data;
+
+/**
+ * Outcome of a transfer together with both balances it left behind, so the ledger and
+ * the leaderboard record stored values instead of re-deriving them.
+ */
+public final class TransferResult {
+
+    private static final TransferResult REJECTED = new TransferResult(false, 0.0, 0.0, false);
+    private static final TransferResult FAILED = new TransferResult(false, 0.0, 0.0, true);
+
+    private final boolean success;
+    private final double fromBalance;
+    private final double toBalance;
+    private final boolean error;
+
+    private TransferResult(boolean success, double fromBalance, double toBalance, boolean error) {
+        this.success = success;
+        this.fromBalance = fromBalance;
+        this.toBalance = toBalance;
+        this.error = error;
+    }
+
+    /** The transfer was applied; the balances are both accounts' new balances. */
+    public static TransferResult applied(double fromBalance, double toBalance) {
+        return new TransferResult(true, fromBalance, toBalance, false);
+    }
+
+    /** Nothing changed: the sender could not cover the amount, or the transfer was invalid. */
+    public static TransferResult rejected() {
+        return REJECTED;
+    }
+
+    /** Nothing changed because of a storage error; the balances are unknown. */
+    public static TransferResult failed() {
+        return FAILED;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /** True when the transfer failed because of a storage error rather than the balance rules. */
+    public boolean isError() {
+        return error;
+    }
+
+    public double getFromBalance() {
+        return fromBalance;
+    }
+
+    public double getToBalance() {
+        return toBalance;
+    }
+}
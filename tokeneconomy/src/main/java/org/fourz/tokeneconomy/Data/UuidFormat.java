@@ -0,0 +1,104 @@
+package org.fourz.tokeneconomy.Data;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * How the UUID key of the economy table is stored.
+ *
+ * <p>{@code text} is the original 36-character VARCHAR/TEXT key. {@code binary} stores the
+ * 16 raw bytes (most significant long first, the same order as {@code UNHEX} of the
+ * dashed form) in BINARY(16)/BLOB, which more than halves the primary-key index and binds
+ * from the two longs without building a string.
+ */
+public final class UuidFormat {
+
+    private static final UuidFormat TEXT = new UuidFormat(false);
+    private static final UuidFormat BINARY = new UuidFormat(true);
+
+    private final boolean binary;
+
+    private UuidFormat(boolean binary) {
+        this.binary = binary;
+    }
+
+    public static UuidFormat text() {
+        return TEXT;
+    }
+
+    public static UuidFormat binary() {
+        return BINARY;
+    }
+
+    /** Builds the format from the storage.uuidFormat setting. */
+    public static UuidFormat fromConfig(String mode) {
+        return "binary".equalsIgnoreCase(mode) ? BINARY : TEXT;
+    }
+
+    /** Whether a declared column type (as reported by the driver) holds binary keys. */
+    public static UuidFormat ofColumnType(String typeName) {
+        if (typeName == null) return TEXT;
+        String type = typeName.toUpperCase();
+        return type.contains("BLOB") || type.contains("BINARY") ? BINARY : TEXT;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public void bind(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        if (binary) {
+            stmt.setBytes(index, toBytes(uuid));
+        } else {
+            stmt.setString(index, uuid.toString());
+        }
+    }
+
+    public UUID read(ResultSet rs, String column) throws SQLException {
+        return binary ? fromBytes(rs.getBytes(column)) : UUID.fromString(rs.getString(column));
+    }
+
+    /** The key in its dashed string form; free for text keys. */
+    public String readString(ResultSet rs, String column) throws SQLException {
+        return binary ? fromBytes(rs.getBytes(column)).toString() : rs.getString(column);
+    }
+
+    public String sqliteColumnType() {
+        return binary ? "BLOB" : "TEXT";
+    }
+
+    public String mysqlColumnType() {
+        return binary ? "BINARY(16)" : "VARCHAR(36)";
+    }
+
+    static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            throw new IllegalArgumentException("Binary UUID key must be 16 bytes");
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xFF);
+            lsb = (lsb << 8) | (bytes[8 + i] & 0xFF);
+        }
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public String toString() {
+        return binary ? "binary" : "text";
+    }
+}
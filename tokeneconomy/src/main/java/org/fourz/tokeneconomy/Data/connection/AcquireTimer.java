@@ -0,0 +1,91 @@
+package org.fourz.tokeneconomy.Data.connection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of how long callers waited for a pooled connection. Buckets are fixed and
+ * roughly logarithmic, so recording is one addition and percentiles are read as the upper
+ * bound of the bucket they fall in. Windows are taken by diffing two snapshots.
+ */
+public final class AcquireTimer {
+
+    /** Upper bounds (µs) of the buckets; the last bucket is open-ended. */
+    private static final long[] BUCKET_MICROS = {
+        50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_MICROS.length + 1];
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public AcquireTimer() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 0;
+        while (bucket < BUCKET_MICROS.length && micros > BUCKET_MICROS[bucket]) bucket++;
+        buckets[bucket].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** Bucket counts at this moment; pass two of these to {@link #percentileMillis} via {@link #since}. */
+    public long[] snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /** Per-bucket counts recorded after {@code earlier}. */
+    public long[] since(long[] earlier) {
+        long[] counts = snapshot();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= earlier[i];
+        }
+        return counts;
+    }
+
+    public static long count(long[] counts) {
+        long total = 0;
+        for (long c : counts) total += c;
+        return total;
+    }
+
+    /**
+     * Upper bound (ms) of the bucket holding the given percentile (0-100), or 0 with no
+     * samples. Waits beyond the last bound report that bound.
+     */
+    public static double percentileMillis(long[] counts, double percentile) {
+        long total = count(counts);
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKET_MICROS[Math.min(i, BUCKET_MICROS.length - 1)] / 1000.0;
+            }
+        }
+        return BUCKET_MICROS[BUCKET_MICROS.length - 1] / 1000.0;
+    }
+
+    public long getCount() {
+        return count(snapshot());
+    }
+
+    public double getMeanMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+}
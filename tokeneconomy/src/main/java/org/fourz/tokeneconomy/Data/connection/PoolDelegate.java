@@ -2,6 +2,7 @@ package org.fourz.tokeneconomy.Data.connection;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.UUID;
 
 /**
  * Internal abstraction for pool lifecycle. DataStoreFactory delegates to either
@@ -11,6 +12,36 @@ import java.sql.SQLException;
 public interface PoolDelegate {
     void initialize() throws SQLException;
     Connection getConnection() throws SQLException;
+    /**
+     * Connection for read-only queries. Pools with a separate reader pool (SQLite WAL mode)
+     * hand out a reader here so reads never queue behind the writer; others share getConnection.
+     */
+    default Connection getReadConnection() throws SQLException {
+        return getConnection();
+    }
+    /**
+     * Reader connection for a query about one account. A pool reading from an asynchronous
+     * replica returns a primary connection instead while the account's last write may not
+     * have replicated yet.
+     */
+    default Connection getReadConnection(UUID account) throws SQLException {
+        return getReadConnection();
+    }
+    /** Records a write to an account before it commits, for {@link #getReadConnection(UUID)}. */
+    default void noteWrite(UUID account) {
+    }
+    /** True when getReadConnection may return data that lags the primary. */
+    default boolean isReadReplica() {
+        return false;
+    }
+    /** Pool counts and acquire-wait statistics of the main pool, or null when not measured. */
+    default PoolStats getPoolStats() {
+        return null;
+    }
+    /** The same for a separate reader pool, or null when reads share the main pool. */
+    default PoolStats getReadPoolStats() {
+        return null;
+    }
     void shutdown();
     String getDatabaseType();
 }
@@ -0,0 +1,96 @@
+package org.fourz.tokeneconomy.Data.connection;
+
+/**
+ * Point-in-time view of a connection pool: Hikari's pool MXBean counts plus the acquire
+ * waits measured by the delegate. Counts are -1 when the pool is not ours to inspect
+ * (RVNKCore's shared pool).
+ */
+public final class PoolStats {
+
+    private final String name;
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int pending;
+    private final int maximumSize;
+    private final long acquisitions;
+    private final double meanAcquireMillis;
+    private final double p50AcquireMillis;
+    private final double p95AcquireMillis;
+    private final double p99AcquireMillis;
+    private final double maxAcquireMillis;
+    private final int resizes;
+
+    public PoolStats(String name, int active, int idle, int total, int pending, int maximumSize,
+                     AcquireTimer timer, int resizes) {
+        this.name = name;
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.pending = pending;
+        this.maximumSize = maximumSize;
+        long[] counts = timer.snapshot();
+        this.acquisitions = AcquireTimer.count(counts);
+        this.meanAcquireMillis = timer.getMeanMillis();
+        this.p50AcquireMillis = AcquireTimer.percentileMillis(counts, 50);
+        this.p95AcquireMillis = AcquireTimer.percentileMillis(counts, 95);
+        this.p99AcquireMillis = AcquireTimer.percentileMillis(counts, 99);
+        this.maxAcquireMillis = timer.getMaxMillis();
+        this.resizes = resizes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /** Threads currently waiting for a connection. */
+    public int getPending() {
+        return pending;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public double getMeanAcquireMillis() {
+        return meanAcquireMillis;
+    }
+
+    /** Percentiles are bucket upper bounds, see AcquireTimer. */
+    public double getP50AcquireMillis() {
+        return p50AcquireMillis;
+    }
+
+    public double getP95AcquireMillis() {
+        return p95AcquireMillis;
+    }
+
+    public double getP99AcquireMillis() {
+        return p99AcquireMillis;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireMillis;
+    }
+
+    /** Times the adaptive sizer changed the maximum size. */
+    public int getResizes() {
+        return resizes;
+    }
+}
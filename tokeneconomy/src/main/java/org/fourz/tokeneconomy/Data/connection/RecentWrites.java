@@ -0,0 +1,46 @@
+package org.fourz.tokeneconomy.Data.connection;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accounts written within the last window, so reads of them can bypass a lagging replica.
+ * Entries expire on their own; expired ones are swept every few thousand writes, so the
+ * map holds roughly the accounts written in one window. Only this process's writes are
+ * tracked; other servers' writes reach this one through the replica.
+ */
+final class RecentWrites {
+
+    private static final int SWEEP_EVERY = 4096;
+
+    private final long windowNanos;
+    private final Map<UUID, Long> expiries = new ConcurrentHashMap<>();
+    private final AtomicInteger sinceSweep = new AtomicInteger();
+
+    RecentWrites(long windowMillis) {
+        this.windowNanos = Math.max(0L, windowMillis) * 1_000_000L;
+    }
+
+    void note(UUID account) {
+        long now = System.nanoTime();
+        expiries.put(account, now + windowNanos);
+        if (sinceSweep.incrementAndGet() >= SWEEP_EVERY) {
+            sinceSweep.set(0);
+            expiries.values().removeIf(expiry -> expiry - now <= 0);
+        }
+    }
+
+    boolean isRecent(UUID account) {
+        Long expiry = expiries.get(account);
+        if (expiry == null) return false;
+        if (expiry - System.nanoTime() > 0) return true;
+        expiries.remove(account, expiry);
+        return false;
+    }
+
+    int size() {
+        return expiries.size();
+    }
+}
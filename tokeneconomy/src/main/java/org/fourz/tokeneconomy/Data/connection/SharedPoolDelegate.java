@@ -21,6 +21,7 @@ public class SharedPoolDelegate implements PoolDelegate {
     private final Plugin plugin;
     private final Logger logger;
     private ConnectionProvider borrowed;
+    private final AcquireTimer acquireTimer = new AcquireTimer();
 
     public SharedPoolDelegate(Plugin plugin, Logger logger) {
         this.plugin = plugin;
@@ -49,7 +50,16 @@ public class SharedPoolDelegate implements PoolDelegate {
         if (borrowed == null) {
             throw new SQLException("Shared pool not initialized");
         }
-        return borrowed.getConnection();
+        long start = System.nanoTime();
+        Connection conn = borrowed.getConnection();
+        acquireTimer.record(System.nanoTime() - start);
+        return conn;
+    }
+
+    /** RVNKCore owns the pool, so only the waits seen from this plugin are known. */
+    @Override
+    public PoolStats getPoolStats() {
+        return new PoolStats("RVNKCore shared pool", -1, -1, -1, -1, -1, acquireTimer, 0);
     }
 
     @Override
@@ -2,16 +2,39 @@ package org.fourz.tokeneconomy.Data.connection;
 
 import org.fourz.tokeneconomy.ConfigLoader;
 import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 /**
  * Own HikariCP pool built from storage.mysql.* / storage.sqlite.* config.
  * Uses shaded HikariCP — zero runtime dependency on RVNKCore for pool management.
+ *
+ * With storage.sqlite.wal the SQLite database runs in WAL mode: a single-connection writer
+ * pool serializes every write (and DDL) while a separate reader pool serves queries
+ * concurrently from the last committed snapshot.
+ *
+ * Every acquire is timed. With storage.mysql.pool.adaptive the MySQL pool's maximum size
+ * is re-evaluated periodically from the 95th-percentile wait of the last interval: it
+ * grows by a quarter while waits exceed the target and shrinks by one connection while
+ * waits stay far below it and connections sit idle, always within the configured bounds.
+ *
+ * With storage.mysql.replica.enabled the reader pool connects to a MySQL read replica.
+ * Replication is asynchronous, so an account written within the last
+ * readYourWritesWindow is read from the primary instead. A replica that cannot hand out
+ * a connection is skipped: reads go to the primary while a single read probes it again
+ * after a backoff that doubles from one to thirty seconds per failed probe.
  */
 public class StandalonePoolDelegate implements PoolDelegate {
 
@@ -20,6 +43,17 @@ public class StandalonePoolDelegate implements PoolDelegate {
     private final File dataFolder;
     private final Logger logger;
     private HikariDataSource dataSource;
+    private HikariDataSource readDataSource;
+    private final AcquireTimer acquireTimer = new AcquireTimer();
+    private final AcquireTimer readAcquireTimer = new AcquireTimer();
+    private ScheduledExecutorService sizer;
+    private long[] lastSizingWindow;
+    private volatile int resizes;
+    private RecentWrites recentWrites;
+    private final LongAdder replicaBypasses = new LongAdder();
+    /** When the replica may be probed again, or 0 while it is serving reads. */
+    private final AtomicLong replicaRetryAt = new AtomicLong();
+    private volatile long replicaBackoff = REPLICA_RETRY_MIN_MILLIS;
 
     public StandalonePoolDelegate(ConfigLoader configLoader, String storageType, File dataFolder, Logger logger) {
         this.configLoader = configLoader;
@@ -42,8 +76,12 @@ public class StandalonePoolDelegate implements PoolDelegate {
                 + "&useUnicode=true");
             cfg.setUsername(configLoader.getMySQLUsername());
             cfg.setPassword(configLoader.getMySQLPassword());
-            cfg.setMaximumPoolSize(10);
-            cfg.setMinimumIdle(2);
+            int size = configLoader.getMySQLPoolSize();
+            if (configLoader.isMySQLPoolAdaptive()) {
+                size = Math.clamp(size, configLoader.getMySQLPoolMinSize(), configLoader.getMySQLPoolMaxSize());
+            }
+            cfg.setMaximumPoolSize(Math.max(1, size));
+            cfg.setMinimumIdle(Math.clamp(configLoader.getMySQLPoolMinIdle(), 0, Math.max(1, size)));
             cfg.setIdleTimeout(300_000L);
             cfg.setMaxLifetime(580_000L);
             cfg.setConnectionTimeout(configLoader.getMySQLConnectionTimeout() > 0
@@ -57,6 +95,10 @@ public class StandalonePoolDelegate implements PoolDelegate {
             File dbFile = new File(dataFolder, "database.db");
             cfg.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
             cfg.setMaximumPoolSize(1);
+            if (configLoader.isSQLiteWal()) {
+                applySQLitePragmas(cfg);
+                cfg.addDataSourceProperty("journal_mode", "WAL");
+            }
         }
 
         cfg.setPoolName("TokenEconomy-" + storageType.toUpperCase() + "-Pool");
@@ -68,19 +110,245 @@ public class StandalonePoolDelegate implements PoolDelegate {
             throw new SQLException("Failed to initialize standalone connection pool: " + e.getMessage(), e);
         }
 
+        if (!"mysql".equalsIgnoreCase(storageType) && configLoader.isSQLiteWal()) {
+            initializeSQLiteReaders();
+        }
+
+        if ("mysql".equalsIgnoreCase(storageType) && configLoader.isMySQLReplicaEnabled()) {
+            initializeReplica(cfg);
+        }
+
+        if ("mysql".equalsIgnoreCase(storageType) && configLoader.isMySQLPoolAdaptive()) {
+            startAdaptiveSizing();
+        }
+
         logger.info("Standalone pool initialized (" + storageType + ")");
     }
 
+    // ─── Adaptive sizing ─────────────────────────────────────────────────────
+
+    private static final long MIN_SIZING_SAMPLES = 50;
+
+    private void startAdaptiveSizing() {
+        lastSizingWindow = acquireTimer.snapshot();
+        long interval = Math.max(5L, configLoader.getMySQLPoolAdjustInterval());
+        sizer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TokenEconomy-PoolSizer");
+            t.setDaemon(true);
+            return t;
+        });
+        sizer.scheduleWithFixedDelay(this::adjustPoolSizeQuietly, interval, interval, TimeUnit.SECONDS);
+        logger.info("Adaptive MySQL pool sizing between " + configLoader.getMySQLPoolMinSize() + " and " +
+            configLoader.getMySQLPoolMaxSize() + " connections (target p95 wait " +
+            configLoader.getMySQLPoolTargetWait() + "ms).");
+    }
+
+    private void adjustPoolSizeQuietly() {
+        try {
+            adjustPoolSize();
+        } catch (RuntimeException e) {
+            logger.warning("Adaptive pool sizing failed: " + e.getMessage());
+        }
+    }
+
+    private void adjustPoolSize() {
+        HikariDataSource ds = dataSource;
+        if (ds == null || ds.isClosed()) return;
+        long[] window = acquireTimer.since(lastSizingWindow);
+        lastSizingWindow = acquireTimer.snapshot();
+        long samples = AcquireTimer.count(window);
+        double p95 = AcquireTimer.percentileMillis(window, 95);
+        double target = Math.max(0.1, configLoader.getMySQLPoolTargetWait());
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        HikariConfigMXBean config = ds.getHikariConfigMXBean();
+        int size = config.getMaximumPoolSize();
+        int newSize = size;
+        if (samples >= MIN_SIZING_SAMPLES && p95 > target) {
+            newSize = Math.min(configLoader.getMySQLPoolMaxSize(), size + Math.max(1, size / 4));
+        } else if (p95 <= target / 4 && pool != null && pool.getIdleConnections() > 1
+                && pool.getThreadsAwaitingConnection() == 0) {
+            // A quiet interval (too few samples to judge waits) also counts as headroom
+            newSize = Math.max(configLoader.getMySQLPoolMinSize(), size - 1);
+        }
+        if (newSize == size) return;
+        if (config.getMinimumIdle() > newSize) {
+            config.setMinimumIdle(newSize);
+        }
+        config.setMaximumPoolSize(newSize);
+        resizes++;
+        logger.info("MySQL pool resized " + size + " -> " + newSize + " (p95 wait " + p95 + "ms over " +
+            samples + " acquisitions).");
+    }
+
+    // journal_mode is persistent in the file; the rest are per connection and go on every pool
+    private void applySQLitePragmas(HikariConfig cfg) {
+        cfg.addDataSourceProperty("synchronous", "NORMAL");
+        cfg.addDataSourceProperty("cache_size", String.valueOf(-configLoader.getSQLiteCacheSizeKb()));
+        cfg.addDataSourceProperty("busy_timeout", "5000");
+        cfg.setConnectionInitSql("PRAGMA mmap_size = " + configLoader.getSQLiteMmapSizeMb() * 1024L * 1024L);
+    }
+
+    private void initializeSQLiteReaders() throws SQLException {
+        HikariConfig readCfg = new HikariConfig();
+        readCfg.setJdbcUrl(dataSource.getJdbcUrl());
+        readCfg.setMaximumPoolSize(Math.max(1, configLoader.getSQLiteReaders()));
+        readCfg.setPoolName("TokenEconomy-SQLITE-ReadPool");
+        readCfg.setConnectionTestQuery("SELECT 1");
+        applySQLitePragmas(readCfg);
+        try {
+            readDataSource = new HikariDataSource(readCfg);
+        } catch (Exception e) {
+            throw new SQLException("Failed to initialize SQLite reader pool: " + e.getMessage(), e);
+        }
+        logger.info("SQLite WAL mode: 1 writer, " + readCfg.getMaximumPoolSize() + " readers");
+    }
+
+    // ─── MySQL read replica ──────────────────────────────────────────────────
+
+    private static final long REPLICA_RETRY_MIN_MILLIS = 1_000L;
+    private static final long REPLICA_RETRY_MAX_MILLIS = 30_000L;
+    private static final long REPLICA_CONNECTION_TIMEOUT_MILLIS = 5_000L;
+
+    /** Reader pool on the replica, reusing the primary's driver settings. */
+    private void initializeReplica(HikariConfig primary) throws SQLException {
+        HikariConfig replicaCfg = new HikariConfig();
+        primary.copyStateTo(replicaCfg);
+        replicaCfg.setJdbcUrl("jdbc:mysql://" + configLoader.getMySQLReplicaHost() + ":" +
+            configLoader.getMySQLReplicaPort() + "/" + configLoader.getMySQLReplicaDatabase()
+            + "?useSSL=" + configLoader.getMySQLUseSSL()
+            + "&allowPublicKeyRetrieval=true"
+            + "&characterEncoding=UTF-8"
+            + "&serverTimezone=UTC"
+            + "&useUnicode=true");
+        replicaCfg.setUsername(configLoader.getMySQLReplicaUsername());
+        replicaCfg.setPassword(configLoader.getMySQLReplicaPassword());
+        int size = Math.max(1, configLoader.getMySQLReplicaPoolSize());
+        replicaCfg.setMaximumPoolSize(size);
+        replicaCfg.setMinimumIdle(Math.min(size, Math.max(0, configLoader.getMySQLPoolMinIdle())));
+        replicaCfg.setReadOnly(true);
+        // A probe of a dead replica waits this long before its read falls back to the primary
+        replicaCfg.setConnectionTimeout(Math.min(primary.getConnectionTimeout(), REPLICA_CONNECTION_TIMEOUT_MILLIS));
+        replicaCfg.setPoolName("TokenEconomy-MYSQL-ReplicaPool");
+        try {
+            readDataSource = new HikariDataSource(replicaCfg);
+        } catch (Exception e) {
+            throw new SQLException("Failed to initialize MySQL replica pool: " + e.getMessage(), e);
+        }
+        recentWrites = new RecentWrites(configLoader.getMySQLReplicaReadYourWritesWindow());
+        logger.info("MySQL reads routed to replica " + configLoader.getMySQLReplicaHost() + " (" + size +
+            " connections, read-your-writes window " + configLoader.getMySQLReplicaReadYourWritesWindow() + "ms)");
+    }
+
+    @Override
+    public boolean isReadReplica() {
+        return recentWrites != null;
+    }
+
+    @Override
+    public void noteWrite(UUID account) {
+        RecentWrites writes = recentWrites;
+        if (writes != null) writes.note(account);
+    }
+
+    @Override
+    public Connection getReadConnection(UUID account) throws SQLException {
+        RecentWrites writes = recentWrites;
+        if (writes != null && writes.isRecent(account)) {
+            replicaBypasses.increment();
+            return getConnection();
+        }
+        return getReadConnection();
+    }
+
+    /** Reads answered by the primary because the account was written within the window. */
+    public long getReplicaBypasses() {
+        return replicaBypasses.sum();
+    }
+
     @Override
     public Connection getConnection() throws SQLException {
         if (dataSource == null || dataSource.isClosed()) {
             throw new SQLException("Standalone connection pool is not initialized");
         }
-        return dataSource.getConnection();
+        long start = System.nanoTime();
+        Connection conn = dataSource.getConnection();
+        acquireTimer.record(System.nanoTime() - start);
+        return conn;
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        if (readDataSource == null || readDataSource.isClosed()) {
+            return getConnection();
+        }
+        long retryAt = replicaRetryAt.get();
+        if (retryAt != 0) {
+            // While the replica is down only the caller that claims the expired backoff probes it
+            long now = System.currentTimeMillis();
+            if (now < retryAt || !replicaRetryAt.compareAndSet(retryAt, now + replicaBackoff)) {
+                return getConnection();
+            }
+        }
+        long start = System.nanoTime();
+        Connection conn;
+        try {
+            conn = readDataSource.getConnection();
+        } catch (SQLException e) {
+            if (recentWrites == null) throw e;
+            replicaFailed(e);
+            return getConnection();
+        }
+        readAcquireTimer.record(System.nanoTime() - start);
+        if (replicaRetryAt.getAndSet(0) != 0) {
+            replicaBackoff = REPLICA_RETRY_MIN_MILLIS;
+            logger.info("MySQL replica reachable again; reads routed back to it.");
+        }
+        return conn;
+    }
+
+    private void replicaFailed(SQLException e) {
+        if (replicaRetryAt.get() == 0) {
+            replicaBackoff = REPLICA_RETRY_MIN_MILLIS;
+            logger.warning("MySQL replica unavailable, reading from the primary: " + e.getMessage());
+        } else {
+            replicaBackoff = Math.min(REPLICA_RETRY_MAX_MILLIS, replicaBackoff * 2);
+        }
+        replicaRetryAt.set(System.currentTimeMillis() + replicaBackoff);
+    }
+
+    @Override
+    public PoolStats getPoolStats() {
+        return stats(dataSource, acquireTimer, resizes);
+    }
+
+    @Override
+    public PoolStats getReadPoolStats() {
+        return readDataSource == null ? null : stats(readDataSource, readAcquireTimer, 0);
+    }
+
+    private static PoolStats stats(HikariDataSource ds, AcquireTimer timer, int resizes) {
+        if (ds == null || ds.isClosed()) return null;
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        return new PoolStats(ds.getPoolName(),
+            pool != null ? pool.getActiveConnections() : -1,
+            pool != null ? pool.getIdleConnections() : -1,
+            pool != null ? pool.getTotalConnections() : -1,
+            pool != null ? pool.getThreadsAwaitingConnection() : -1,
+            ds.getHikariConfigMXBean().getMaximumPoolSize(),
+            timer, resizes);
     }
 
     @Override
     public void shutdown() {
+        if (sizer != null) {
+            sizer.shutdownNow();
+            sizer = null;
+        }
+        if (readDataSource != null && !readDataSource.isClosed()) {
+            readDataSource.close();
+        }
+        readDataSource = null;
+        recentWrites = null;
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
@@ -0,0 +1,84 @@
+package org.fourz.tokeneconomy.Listener;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.fourz.tokeneconomy.Data.DataConnector;
+import org.fourz.tokeneconomy.TokenEconomy;
+
+import java.util.UUID;
+
+/**
+ * Keeps online players' accounts resident in the balance cache.
+ *
+ * <p>Accounts are loaded on the async pre-login thread so the main thread never waits on
+ * JDBC for an online player, and are persisted and released off-thread when they quit.
+ * The same thread records the player's name for leaderboard display.
+ */
+public class PlayerSessionListener implements Listener {
+
+    private final TokenEconomy plugin;
+
+    public PlayerSessionListener(TokenEconomy plugin) {
+        this.plugin = plugin;
+    }
+
+    // MONITOR so we only load for logins no other plugin has denied
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        DataConnector connector = plugin.getDataConnector();
+        if (connector != null) {
+            connector.recordPlayerName(event.getUniqueId(), event.getName());
+            connector.preloadAccount(event.getUniqueId());
+        }
+    }
+
+    // A login denied after pre-login (whitelist, bans, full server) never reaches quit,
+    // so drop the pin taken above here
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+        DataConnector connector = plugin.getDataConnector();
+        if (connector == null) return;
+        UUID uuid = event.getPlayer().getUniqueId();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> connector.releaseAccount(uuid));
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        DataConnector connector = plugin.getDataConnector();
+        if (connector != null) {
+            connector.setPlayerOnline(event.getPlayer().getUniqueId(), true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        DataConnector connector = plugin.getDataConnector();
+        if (connector == null) return;
+        UUID uuid = event.getPlayer().getUniqueId();
+        connector.setPlayerOnline(uuid, false);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> connector.releaseAccount(uuid));
+    }
+
+    /** Loads accounts for players that were already online when the plugin enabled. */
+    public void preloadOnlinePlayers() {
+        DataConnector connector = plugin.getDataConnector();
+        if (connector == null) return;
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            UUID uuid = player.getUniqueId();
+            String name = player.getName();
+            connector.setPlayerOnline(uuid, true);
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                connector.recordPlayerName(uuid, name);
+                connector.preloadAccount(uuid);
+            });
+        }
+    }
+}
@@ -10,7 +10,9 @@ import org.fourz.tokeneconomy.Command.BalanceCommand;
 import org.fourz.tokeneconomy.Command.EconomyCommand;
 import org.fourz.tokeneconomy.Command.PayCommand;
 import org.fourz.tokeneconomy.Command.PlayerResolver;
+import org.fourz.tokeneconomy.Command.TopCommand;
 import org.fourz.tokeneconomy.Data.DataConnector;
+import org.fourz.tokeneconomy.Listener.PlayerSessionListener;
 
 import net.milkbowl.vault.economy.Economy;
 
@@ -52,8 +54,9 @@ public class TokenEconomy extends JavaPlugin {
             dataConnector.setupDatabase();
             getLogger().info("Database setup complete.");
 
-            // Register commands and hooks
+            // Register commands, listeners and hooks
             registerCommands();
+            registerListeners();
             registerGriefProtectionHook();
 
             TokenEconomyAPI.init(this);
@@ -114,9 +117,21 @@ public class TokenEconomy extends JavaPlugin {
         if (getCommand("pay") != null) {
             getCommand("pay").setExecutor(new PayCommand(this, resolver));
         }
+        if (getCommand("top") != null) {
+            TopCommand topCommand = new TopCommand(this, resolver);
+            getCommand("top").setExecutor(topCommand);
+            getCommand("top").setTabCompleter(topCommand);
+        }
         getLogger().info("Commands registered successfully.");
     }
 
+    private void registerListeners() {
+        PlayerSessionListener sessionListener = new PlayerSessionListener(this);
+        getServer().getPluginManager().registerEvents(sessionListener, this);
+        // Players already online after a reload never fire a login event
+        sessionListener.preloadOnlinePlayers();
+    }
+
     private void registerGriefProtectionHook() {
         // Integrates with GriefPrevention plugin for land claim features
         if (Bukkit.getPluginManager().isPluginEnabled("GriefPrevention")) {
@@ -158,7 +173,13 @@ public class TokenEconomy extends JavaPlugin {
     }
 
     public Map<String, Double> getTopBalances() {
-        return dataConnector.getTopBalances(15); // Default limit of 15
+        return getTopBalances(1);
+    }
+
+    /** Returns the given one-based leaderboard page. */
+    public Map<String, Double> getTopBalances(int page) {
+        int pageSize = configLoader.getTopPageSize();
+        return dataConnector.getTopBalances((Math.max(1, page) - 1) * pageSize, pageSize);
     }
 
 }
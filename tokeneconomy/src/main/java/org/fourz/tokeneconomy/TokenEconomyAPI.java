@@ -3,9 +3,16 @@ package org.fourz.tokeneconomy;
 
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public class TokenEconomyAPI {
+    // Ledger cause for calls that do not pass their own
+    private static final String CAUSE_API = "api";
     private static TokenEconomy plugin;
 
     protected static void init(TokenEconomy instance) {
@@ -17,14 +24,119 @@ public class TokenEconomyAPI {
     }
 
     public static boolean deposit(UUID playerUUID, double amount) {
-        return plugin.getDataConnector().changePlayerBalance(playerUUID, amount);
+        return deposit(playerUUID, amount, CAUSE_API);
+    }
+
+    /** Deposits and records {@code cause} (e.g. "shop.sell") with the change in the transaction ledger. */
+    public static boolean deposit(UUID playerUUID, double amount, String cause) {
+        return plugin.getDataConnector().changePlayerBalance(playerUUID, amount, cause);
     }
 
     public static boolean withdraw(UUID playerUUID, double amount) {
-        return plugin.getDataConnector().changePlayerBalance(playerUUID, -amount);
+        return withdraw(playerUUID, amount, CAUSE_API);
+    }
+
+    /** Withdraws and records {@code cause} with the change in the transaction ledger. */
+    public static boolean withdraw(UUID playerUUID, double amount, String cause) {
+        return plugin.getDataConnector().changePlayerBalance(playerUUID, -amount, cause);
+    }
+
+    /**
+     * Applies many deposits (positive) and withdrawals (negative) in one storage
+     * transaction, e.g. for event payouts. Returns per-player success.
+     */
+    public static Map<UUID, Boolean> changeBalances(Map<UUID, Double> changes) {
+        return changeBalances(changes, CAUSE_API);
+    }
+
+    public static Map<UUID, Boolean> changeBalances(Map<UUID, Double> changes, String cause) {
+        return plugin.getDataConnector().changeBalances(changes, cause);
+    }
+
+    /** Deposits the same amount to every player in one storage transaction. */
+    public static Map<UUID, Boolean> depositAll(Collection<UUID> playerUUIDs, double amount) {
+        return changeBalances(sameAmount(playerUUIDs, amount));
+    }
+
+    private static Map<UUID, Double> sameAmount(Collection<UUID> playerUUIDs, double amount) {
+        Map<UUID, Double> changes = new LinkedHashMap<>();
+        for (UUID playerUUID : playerUUIDs) {
+            changes.put(playerUUID, amount);
+        }
+        return changes;
+    }
+
+    /** Moves money between two accounts in one transaction; either both sides change or neither does. */
+    public static boolean transfer(UUID fromUUID, UUID toUUID, double amount) {
+        return transfer(fromUUID, toUUID, amount, CAUSE_API);
+    }
+
+    public static boolean transfer(UUID fromUUID, UUID toUUID, double amount, String cause) {
+        return plugin.getDataConnector().transfer(fromUUID, toUUID, amount, cause);
     }
 
     public static boolean has(UUID playerUUID, double amount) {
         return getBalance(playerUUID) >= amount;
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the action while holding the account's lock, so a has() followed by withdraw()
+     * or deposit() cannot interleave with other changes to that account on this server.
+     */
+    public static <T> T withAccountLock(UUID playerUUID, Supplier<T> action) {
+        return plugin.getDataConnector().withAccountLock(playerUUID, action);
+    }
+
+    /**
+     * Like withAccountLock for every account the action touches. Inside a lock, changes
+     * to any account not locked up front throw IllegalStateException.
+     */
+    public static <T> T withAccountLocks(Collection<UUID> playerUUIDs, Supplier<T> action) {
+        return plugin.getDataConnector().withAccountLocks(playerUUIDs, action);
+    }
+
+    // Async variants complete on a storage thread; hop back to the server thread before touching Bukkit state
+    public static CompletableFuture<Double> getBalanceAsync(UUID playerUUID) {
+        return plugin.getDataConnector().getPlayerBalanceByUUIDAsync(playerUUID);
+    }
+
+    public static CompletableFuture<Boolean> depositAsync(UUID playerUUID, double amount) {
+        return depositAsync(playerUUID, amount, CAUSE_API);
+    }
+
+    public static CompletableFuture<Boolean> depositAsync(UUID playerUUID, double amount, String cause) {
+        return plugin.getDataConnector().changePlayerBalanceAsync(playerUUID, amount, cause);
+    }
+
+    public static CompletableFuture<Boolean> withdrawAsync(UUID playerUUID, double amount) {
+        return withdrawAsync(playerUUID, amount, CAUSE_API);
+    }
+
+    public static CompletableFuture<Boolean> withdrawAsync(UUID playerUUID, double amount, String cause) {
+        return plugin.getDataConnector().changePlayerBalanceAsync(playerUUID, -amount, cause);
+    }
+
+    public static CompletableFuture<Map<UUID, Boolean>> changeBalancesAsync(Map<UUID, Double> changes) {
+        return changeBalancesAsync(changes, CAUSE_API);
+    }
+
+    public static CompletableFuture<Map<UUID, Boolean>> changeBalancesAsync(Map<UUID, Double> changes, String cause) {
+        return plugin.getDataConnector().changeBalancesAsync(changes, cause);
+    }
+
+    public static CompletableFuture<Map<UUID, Boolean>> depositAllAsync(Collection<UUID> playerUUIDs, double amount) {
+        return changeBalancesAsync(sameAmount(playerUUIDs, amount));
+    }
+
+    public static CompletableFuture<Boolean> transferAsync(UUID fromUUID, UUID toUUID, double amount) {
+        return transferAsync(fromUUID, toUUID, amount, CAUSE_API);
+    }
+
+    public static CompletableFuture<Boolean> transferAsync(UUID fromUUID, UUID toUUID, double amount, String cause) {
+        return plugin.getDataConnector().transferAsync(fromUUID, toUUID, amount, cause);
+    }
+
+    public static CompletableFuture<Boolean> hasAsync(UUID playerUUID, double amount) {
+        return getBalanceAsync(playerUUID).thenApply(balance -> balance >= amount);
+    }
+}
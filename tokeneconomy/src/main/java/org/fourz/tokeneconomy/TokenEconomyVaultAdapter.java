@@ -8,6 +8,7 @@ import java.util.List;
 
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
+import org.fourz.tokeneconomy.Data.BalanceChange;
 import org.fourz.tokeneconomy.Utility.CurrencyFormatter;
 
 public class TokenEconomyVaultAdapter implements Economy {
@@ -84,7 +85,7 @@ public class TokenEconomyVaultAdapter implements Economy {
         if (hasAccount(player)) {
             return true; // already exists
         }
-        plugin.getDataConnector().setPlayerBalance(player.getUniqueId(), 0.0);
+        plugin.getDataConnector().setPlayerBalance(player.getUniqueId(), 0.0, "vault.create");
         return true;
     }
 
@@ -153,11 +154,13 @@ public class TokenEconomyVaultAdapter implements Economy {
     public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
         EconomyResponse invalid = validateAmount(player, amount);
         if (invalid != null) return invalid;
-        boolean success = plugin.getDataConnector().changePlayerBalance(player.getUniqueId(), -amount);
-        double balance = getBalance(player);
-        return success
-            ? new EconomyResponse(amount, balance, EconomyResponse.ResponseType.SUCCESS, null)
-            : new EconomyResponse(0, balance, EconomyResponse.ResponseType.FAILURE, "Insufficient balance");
+        double applied = plugin.getDataConnector().normalizeAmount(amount);
+        BalanceChange change = plugin.getDataConnector().changePlayerBalanceAndGet(player.getUniqueId(), -applied, "vault");
+        if (change.isSuccess()) {
+            return new EconomyResponse(applied, change.getBalance(), EconomyResponse.ResponseType.SUCCESS, null);
+        }
+        return new EconomyResponse(0, change.getBalance(), EconomyResponse.ResponseType.FAILURE,
+            change.isError() ? "Database error" : "Insufficient balance");
     }
 
     @Override
@@ -181,8 +184,12 @@ public class TokenEconomyVaultAdapter implements Economy {
     public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
         EconomyResponse invalid = validateAmount(player, amount);
         if (invalid != null) return invalid;
-        plugin.getDataConnector().changePlayerBalance(player.getUniqueId(), amount);
-        return new EconomyResponse(amount, getBalance(player), EconomyResponse.ResponseType.SUCCESS, null);
+        double applied = plugin.getDataConnector().normalizeAmount(amount);
+        BalanceChange change = plugin.getDataConnector().changePlayerBalanceAndGet(player.getUniqueId(), applied, "vault");
+        if (!change.isSuccess()) {
+            return new EconomyResponse(0, change.getBalance(), EconomyResponse.ResponseType.FAILURE, "Database error");
+        }
+        return new EconomyResponse(applied, change.getBalance(), EconomyResponse.ResponseType.SUCCESS, null);
     }
 
     @Override
@@ -223,6 +230,10 @@ public class TokenEconomyVaultAdapter implements Economy {
         if (amount < 0) {
             return new EconomyResponse(0, getBalance(player), EconomyResponse.ResponseType.FAILURE, "Amount must be positive");
         }
+        if (amount > 0 && plugin.getDataConnector().normalizeAmount(amount) == 0) {
+            return new EconomyResponse(0, getBalance(player), EconomyResponse.ResponseType.FAILURE,
+                "Amount is below the smallest currency unit");
+        }
         return null;
     }
 